@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+
+/**
+ * The specifications and command lines the benchmarks use.
+ */
+final class BenchmarkSpecs {
+
+    private BenchmarkSpecs(){
+        //can not instantiate
+    }
+
+    /**
+     * Create a flat specification of the given number of options named {@code opt0, opt1 ...};
+     * every third option is a flag and the rest take a value.
+     */
+    static CliSpecification flat(int numberOfOptions){
+        return CliSpecification.createWithHelp(options(numberOfOptions))
+                               .programName("benchmark")
+                               .description("a specification with " + numberOfOptions + " options")
+                               .example("-opt1 value", "an example")
+                               .footer("the footer");
+    }
+
+    /**
+     * Create the builders of the options of {@link #flat(int)}, the way
+     * a specification generated from a tool descriptor would;
+     * the builders can be used to create any number of specifications.
+     */
+    static CliOptionBuilder[] options(int numberOfOptions){
+        CliOptionBuilder[] options = new CliOptionBuilder[numberOfOptions];
+        for(int i=0; i< numberOfOptions; i++){
+            BasicCliOptionBuilder option = option("opt" + i).longName("long-option-" + i)
+                                            .description("the description of option " + i + " which is long enough " +
+                                                         "that it has to be wrapped when the usage is printed at the default width");
+            options[i] = isFlag(i) ? option.isFlag(true) : option.argName("value" + i);
+        }
+        return options;
+    }
+
+    /**
+     * Create a command line for {@link #flat(int)} that sets about 8 options
+     * spread out over all the options.
+     */
+    static String[] flatArgs(int numberOfOptions){
+        List<String> args = new ArrayList<>();
+        int step = Math.max(1, numberOfOptions / 8);
+        for(int i=0; i< numberOfOptions; i+= step){
+            args.add("-opt" + i);
+            if(!isFlag(i)){
+                args.add("value" + i);
+            }
+        }
+        return args.toArray(new String[0]);
+    }
+
+    /**
+     * The same command line as {@link #flatArgs(int)} as a URL query.
+     */
+    static String flatQuery(int numberOfOptions){
+        StringBuilder builder = new StringBuilder();
+        int step = Math.max(1, numberOfOptions / 8);
+        for(int i=0; i< numberOfOptions; i+= step){
+            if(builder.length() > 0){
+                builder.append('&');
+            }
+            builder.append("opt").append(i);
+            if(!isFlag(i)){
+                builder.append("=value").append(i);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean isFlag(int i){
+        return i % 3 == 0;
+    }
+
+    /**
+     * Create a tree of the given depth where each level is a radio
+     * of a leaf option and a group of another leaf option with the next level down,
+     * so a command line that selects the deepest options has to check every level.
+     */
+    static CliSpecification nested(int depth){
+        return CliSpecification.create(nestedLevel(0, depth));
+    }
+
+    private static CliOptionBuilder nestedLevel(int level, int depth){
+        if(level == depth){
+            return option("leaf" + level);
+        }
+        return radio(option("r" + level),
+                     group(option("g" + level), nestedLevel(level +1, depth)));
+    }
+
+    /**
+     * Create a command line for {@link #nested(int)} that takes the deepest path.
+     */
+    static String[] nestedArgs(int depth){
+        List<String> args = new ArrayList<>();
+        for(int level =0; level < depth; level++){
+            args.add("-g" + level);
+            args.add("x");
+        }
+        args.add("-leaf" + depth);
+        args.add("x");
+        return args.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static gov.nih.ncats.common.cli.CliSpecification.radio;
+
+/**
+ * Creating a specification from already made option builders,
+ * either all at the top level, all at the top level with every other one required,
+ * or all as the choices of one radio.
+ * The retained heap of the specifications is measured by {@link SpecificationFootprint}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ConstructionBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int numberOfOptions;
+
+    @Param({"flat", "required", "radio"})
+    public String shape;
+
+    private CliOptionBuilder[] options;
+
+    @Setup
+    public void setup(){
+        options = options(shape, numberOfOptions);
+    }
+
+    @Benchmark
+    public CliSpecification create(){
+        return create(shape, options);
+    }
+
+    static CliOptionBuilder[] options(String shape, int numberOfOptions){
+        CliOptionBuilder[] options = BenchmarkSpecs.options(numberOfOptions);
+        if("required".equals(shape)){
+            for(int i=0; i< numberOfOptions; i+=2){
+                options[i].setRequired(true);
+            }
+        }
+        return options;
+    }
+
+    static CliSpecification create(String shape, CliOptionBuilder[] options){
+        if("radio".equals(shape)){
+            return CliSpecification.create(radio(options));
+        }
+        return CliSpecification.create(options);
+    }
+}
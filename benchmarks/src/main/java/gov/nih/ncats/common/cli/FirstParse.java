@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+
+/**
+ * The program {@link StartupBenchmark} runs in a fresh JVM:
+ * builds a small specification with a few kinds of setters, parses one command line
+ * and prints how long that took in nanoseconds.
+ */
+public final class FirstParse {
+
+    private FirstParse(){
+        //can not instantiate
+    }
+
+    public static void main(String[] args) throws CliValidationException {
+        long start = System.nanoTime();
+        int[] sink = new int[1];
+        Cli cli = CliSpecification.createWithHelp(
+                        option("in").argName("file").setToFile(f -> sink[0]++),
+                        option("n").setToInt(i -> sink[0] += i),
+                        option("v").isFlag(true).setToBoolean(b -> sink[0]++),
+                        radio(option("fast").isFlag(true), option("slow").isFlag(true)))
+                    .programName("first-parse")
+                    .parse(new String[]{"-in", "input.txt", "-n", "3", "-v", "-fast"});
+        long end = System.nanoTime();
+        if(!cli.hasOption("fast")){
+            throw new IllegalStateException("did not parse");
+        }
+        System.out.println(StartupBenchmark.RESULT_PREFIX + (end - start));
+    }
+}
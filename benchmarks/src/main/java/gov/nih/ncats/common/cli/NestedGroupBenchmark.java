@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and validating a command line against deeply nested radio and group options.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NestedGroupBenchmark {
+
+    @Param({"4", "32", "256"})
+    public int depth;
+
+    private CliSpecification spec;
+    private String[] args;
+    private String[] invalidArgs;
+
+    @Setup
+    public void setup(){
+        spec = BenchmarkSpecs.nested(depth);
+        args = BenchmarkSpecs.nestedArgs(depth);
+        //both choices of the top radio
+        invalidArgs = new String[]{"-r0", "x", "-g0", "x"};
+        spec.compile();
+    }
+
+    @Benchmark
+    public Cli parseDeepestPath() throws CliValidationException{
+        return spec.parse(args);
+    }
+
+    @Benchmark
+    public ParseResult tryParseInvalid(){
+        return spec.tryParse(invalidArgs);
+    }
+}
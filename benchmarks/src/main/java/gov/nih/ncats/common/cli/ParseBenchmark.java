@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing command lines with small and huge specifications.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int numberOfOptions;
+
+    private CliSpecification spec;
+    private String[] args;
+    private String[] unknownArgs;
+    private URL url;
+
+    @Setup
+    public void setup() throws IOException{
+        spec = BenchmarkSpecs.flat(numberOfOptions);
+        args = BenchmarkSpecs.flatArgs(numberOfOptions);
+        unknownArgs = new String[]{"-opt0", "-unknown"};
+        url = new URL("http://example.com/benchmark?" + BenchmarkSpecs.flatQuery(numberOfOptions));
+        //compile up front so only the parse is measured
+        spec.compile();
+    }
+
+    @Benchmark
+    public Cli parseArgs() throws CliValidationException{
+        return spec.parse(args);
+    }
+
+    @Benchmark
+    public Cli parseUrl() throws IOException{
+        return spec.parse(url);
+    }
+
+    @Benchmark
+    public boolean helpRequested(){
+        return spec.helpRequested(args);
+    }
+
+    @Benchmark
+    public ParseResult tryParseFailure(){
+        return spec.tryParse(unknownArgs);
+    }
+}
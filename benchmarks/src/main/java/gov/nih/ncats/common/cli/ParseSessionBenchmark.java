@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Editing one token of a command line in a {@link ParseSession} and getting the diagnostics,
+ * which is what an interactive shell does on every key press, compared to
+ * a full parse of the same command line.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseSessionBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int numberOfOptions;
+
+    private CompiledCliSpecification spec;
+    private String[] args;
+    private ParseSession session;
+    private int edits;
+
+    @Setup
+    public void setup(){
+        spec = BenchmarkSpecs.flat(numberOfOptions).compile();
+        args = BenchmarkSpecs.flatArgs(numberOfOptions);
+        session = spec.newSession().setTokens(args);
+    }
+
+    /**
+     * Switch the first option between two flags, so an option is removed
+     * and another one added on every edit.
+     */
+    @Benchmark
+    public List<ParseDiagnostic> changeOption(){
+        session.set(0, (edits++ & 1) == 0 ? "-h" : args[0]);
+        return session.getDiagnostics();
+    }
+
+    /**
+     * Switch the last value between a valid value and an unknown option.
+     */
+    @Benchmark
+    public List<ParseDiagnostic> changeLastToken(){
+        int last = args.length -1;
+        session.set(last, (edits++ & 1) == 0 ? "-unknownOption" : args[last]);
+        return session.getDiagnostics();
+    }
+
+    /**
+     * Type a new token at the end and then delete it.
+     */
+    @Benchmark
+    public boolean addAndRemove(){
+        if((edits++ & 1) == 0){
+            session.add("-h");
+        }else{
+            session.remove(session.size() -1);
+        }
+        return session.isValid();
+    }
+
+    @Benchmark
+    public ParseResult fullParse(){
+        return spec.tryParse(args);
+    }
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+
+/**
+ * Firing the setters of the options on the command line,
+ * one at a time and on an executor.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SetterBenchmark {
+
+    @Param({"1", "16", "256"})
+    public int numberOfSetters;
+
+    @Param({"false", "true"})
+    public boolean useExecutor;
+
+    private ExecutorService executor;
+    private CliSpecification spec;
+    private String[] args;
+    private long[] values;
+
+    @Setup
+    public void setup(){
+        values = new long[numberOfSetters];
+        CliOptionBuilder[] options = new CliOptionBuilder[numberOfSetters];
+        args = new String[numberOfSetters * 2];
+        for(int i=0; i< numberOfSetters; i++){
+            int index = i;
+            options[i] = option("opt" + i).independentSetter(true)
+                                          .setToLong(v -> values[index] = v);
+            args[2 * i] = "-opt" + i;
+            args[2 * i +1] = Integer.toString(i);
+        }
+        spec = CliSpecification.create(options);
+        if(useExecutor){
+            executor = Executors.newFixedThreadPool(4);
+            spec.setterExecutor(executor);
+        }
+        spec.compile();
+    }
+
+    @TearDown
+    public void tearDown(){
+        if(executor != null){
+            executor.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public long[] parseAndFireSetters() throws CliValidationException{
+        spec.parse(args);
+        return values;
+    }
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+/**
+ * Measures the heap each option retains once a specification is created,
+ * which JMH doesn't report since its GC profiler only counts allocations.
+ * The option builders are made first so only what the specification itself keeps is counted.
+ *
+ * <pre>
+ * java -Xmx4g -cp target/benchmarks.jar gov.nih.ncats.common.cli.SpecificationFootprint [numberOfOptions...]
+ * </pre>
+ */
+public final class SpecificationFootprint {
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+    /**
+     * Keeps the specification being measured reachable.
+     */
+    private static CliSpecification measured;
+
+    private SpecificationFootprint(){
+        //can not instantiate
+    }
+
+    public static void main(String[] args){
+        int[] sizes = args.length == 0 ? new int[]{1_000, 10_000, 100_000} : new int[args.length];
+        for(int i=0; i< args.length; i++){
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        System.out.printf("%-8s %10s %12s %16s%n", "shape", "options", "create ms", "bytes/option");
+        for(String shape : new String[]{"flat", "required", "radio"}){
+            for(int numberOfOptions : sizes){
+                measure(shape, numberOfOptions);
+            }
+        }
+    }
+
+    private static void measure(String shape, int numberOfOptions){
+        CliOptionBuilder[] options = ConstructionBenchmark.options(shape, numberOfOptions);
+        long before = usedHeap();
+        long start = System.nanoTime();
+        measured = ConstructionBenchmark.create(shape, options);
+        long nanos = System.nanoTime() - start;
+        long retained = usedHeap() - before;
+        measured = null;
+        System.out.printf("%-8s %10d %12.2f %16.1f%n", shape, numberOfOptions, nanos / 1e6, retained / (double) numberOfOptions);
+    }
+
+    private static long usedHeap(){
+        long used = Long.MAX_VALUE;
+        //keep collecting until nothing more is freed
+        for(int i=0; i< 10; i++){
+            System.gc();
+            long now = MEMORY.getHeapMemoryUsage().getUsed();
+            if(now >= used){
+                break;
+            }
+            used = now;
+        }
+        return used;
+    }
+}
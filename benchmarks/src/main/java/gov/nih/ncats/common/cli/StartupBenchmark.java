@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Measures time to first parse by running {@link FirstParse} in a fresh JVM
+ * for every iteration, which JMH can't do since it measures inside one JVM.
+ * Reports the wall clock time of each JVM from launch to exit, the time the first parse
+ * took inside it, and how many classes were loaded broken down by where they came from.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar gov.nih.ncats.common.cli.StartupBenchmark [iterations] [JVM options...]
+ * </pre>
+ * The JVM options are passed to each fresh JVM, so the same command with
+ * {@code -XX:SharedArchiveFile=...} compares startup with an AppCDS archive
+ * made by {@link AppCdsTraining} against the baseline.
+ *
+ * A {@code -cp} among the JVM options goes in front of this benchmark's own classpath
+ * in each fresh JVM.  The JVM only uses an archive if the classpath it was made with
+ * is the start of the classpath it runs with, so to measure the archive made by
+ * {@code mvn -Pappcds package} pass the classpath that build ran the training with,
+ * which is the library jar followed by the dependency classpath it logs:
+ * <pre>
+ * java -cp target/benchmarks.jar gov.nih.ncats.common.cli.StartupBenchmark 20 \
+ *      -XX:SharedArchiveFile=../target/ncats-common-cli-VERSION.jsa \
+ *      -cp ../target/ncats-common-cli-VERSION.jar:DEPENDENCY_CLASSPATH
+ * </pre>
+ * Use absolute paths if the archive was made with them.
+ */
+public final class StartupBenchmark {
+
+    static final String RESULT_PREFIX = "firstParseNanos=";
+
+    private StartupBenchmark(){
+        //can not instantiate
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        String classPath = System.getProperty("java.class.path");
+        List<String> jvmOptions = new ArrayList<>();
+        for(int i=1; i< args.length; i++){
+            if((args[i].equals("-cp") || args[i].equals("-classpath")) && i+1 < args.length){
+                //FirstParse still has to be found after whatever the archive was made with
+                classPath = args[++i] + File.pathSeparator + classPath;
+            }else{
+                jvmOptions.add(args[i]);
+            }
+        }
+
+        long[] wallNanos = new long[iterations];
+        long[] parseNanos = new long[iterations];
+        for(int i=0; i< iterations; i++){
+            long start = System.nanoTime();
+            List<String> output = runFirstParse(jvmOptions, classPath, false);
+            wallNanos[i] = System.nanoTime() - start;
+            parseNanos[i] = findParseNanos(output);
+        }
+        System.out.printf("iterations: %d%n", iterations);
+        System.out.printf("JVM launch to exit ms: min %.2f median %.2f%n", millis(min(wallNanos)), millis(median(wallNanos)));
+        System.out.printf("first parse ms:        min %.2f median %.2f%n", millis(min(parseNanos)), millis(median(parseNanos)));
+
+        Map<String, Integer> loaded = countLoadedClasses(runFirstParse(jvmOptions, classPath, true));
+        System.out.println("loaded classes:");
+        for(Map.Entry<String, Integer> entry : loaded.entrySet()){
+            System.out.printf("  %-28s %6d%n", entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static List<String> runFirstParse(List<String> jvmOptions, String classPath, boolean verboseClass) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(jvmOptions);
+        if(verboseClass){
+            command.add("-verbose:class");
+        }
+        command.add("-cp");
+        command.add(classPath);
+        command.add(FirstParse.class.getName());
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<String> lines = new ArrayList<>();
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))){
+            String line;
+            while((line = reader.readLine()) != null){
+                lines.add(line);
+            }
+        }
+        int exitCode = process.waitFor();
+        if(exitCode != 0){
+            throw new IllegalStateException("first parse exited with " + exitCode + ": " + lines);
+        }
+        return lines;
+    }
+
+    private static long findParseNanos(List<String> output){
+        for(String line : output){
+            if(line.startsWith(RESULT_PREFIX)){
+                return Long.parseLong(line.substring(RESULT_PREFIX.length()));
+            }
+        }
+        throw new IllegalStateException("no result in " + output);
+    }
+
+    /**
+     * Count the classes in the {@code -verbose:class} output, which is
+     * {@code [Loaded name from ...]} on Java 8 and {@code [info][class,load] name source: ...} after,
+     * along with how many of this library's classes came from a CDS archive, which shows
+     * whether an archive was used.
+     */
+    private static Map<String, Integer> countLoadedClasses(List<String> output){
+        Map<String, Integer> counts = new TreeMap<>();
+        for(String line : output){
+            String className = loadedClassName(line);
+            if(className != null){
+                counts.merge("total", 1, Integer::sum);
+                String category = category(className);
+                counts.merge(category, 1, Integer::sum);
+                if(category.equals("ncats-common-cli") && line.contains("source: shared objects file")){
+                    counts.merge("ncats-common-cli from CDS", 1, Integer::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static String loadedClassName(String line){
+        int start;
+        if(line.startsWith("[Loaded ")){
+            start = "[Loaded ".length();
+        }else{
+            //the tag is padded to line up with other tags, like [class,load ], if there were warnings
+            int tag = line.indexOf("[class,load");
+            int tagEnd = tag < 0 ? -1 : line.indexOf(']', tag);
+            if(tagEnd < 0){
+                return null;
+            }
+            start = tagEnd +1;
+            while(start < line.length() && line.charAt(start) == ' '){
+                start++;
+            }
+        }
+        int end = line.indexOf(' ', start);
+        return end < 0 ? line.substring(start) : line.substring(start, end);
+    }
+
+    private static String category(String className){
+        if(className.contains("$$Lambda")){
+            return className.startsWith("gov.nih.ncats.common.cli.") ? "ncats-common-cli lambdas" : "other lambdas";
+        }
+        if(className.startsWith("gov.nih.ncats.common.cli.")){
+            return "ncats-common-cli";
+        }
+        if(className.startsWith("gov.nih.ncats.common.")){
+            return "ncats-common";
+        }
+        if(className.startsWith("org.apache.commons.cli.")){
+            return "commons-cli";
+        }
+        if(className.startsWith("java.util.stream.")){
+            return "java.util.stream";
+        }
+        return "other";
+    }
+
+    private static long min(long[] values){
+        long min = Long.MAX_VALUE;
+        for(long value : values){
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    private static long median(long[] values){
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static double millis(long nanos){
+        return nanos / 1_000_000D;
+    }
+}
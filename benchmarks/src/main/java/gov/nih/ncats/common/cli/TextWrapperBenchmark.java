@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+
+package gov.nih.ncats.common.cli;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares {@link TextWrapper} to the regular expression wrapper
+ * the usage used before, which reversed a copy of each line to find where to break it
+ * and made a new substring of the rest of the text for every line.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextWrapperBenchmark {
+
+    private static final String NEW_LINE = String.format("%n");
+    private static final Pattern NEXT_WHITE_SPACE_PATTERN = Pattern.compile("\\s");
+
+    @Param({"100", "10000", "100000"})
+    public int textLength;
+
+    @Param({"80", "120"})
+    public int width;
+
+    private String text;
+
+    @Setup
+    public void setup(){
+        Random random = new Random(1234);
+        StringBuilder builder = new StringBuilder(textLength);
+        while(builder.length() < textLength){
+            int wordLength = 1 + random.nextInt(12);
+            for(int i=0; i< wordLength; i++){
+                builder.append((char) ('a' + random.nextInt(26)));
+            }
+            builder.append(' ');
+        }
+        builder.setLength(textLength);
+        text = builder.toString();
+    }
+
+    @Benchmark
+    public String textWrapper(){
+        StringBuilder builder = new StringBuilder();
+        TextWrapper.wrap(builder, width, 3, text);
+        return builder.toString();
+    }
+
+    @Benchmark
+    public String regexWrapper(){
+        StringBuilder builder = new StringBuilder();
+        regexWrap(builder, width, 3, text);
+        return builder.toString();
+    }
+
+    private static void regexWrap(StringBuilder builder, int width, int nextLineTabStop, String text){
+        int pos = regexFindWrapPos(text, width);
+        if(pos == -1){
+            builder.append(regexRTrim(text));
+            return;
+        }
+        builder.append(regexRTrim(text.substring(0, pos))).append(NEW_LINE);
+        StringBuilder padding = new StringBuilder(nextLineTabStop);
+        for(int i=0; i< nextLineTabStop; i++){
+            padding.append(' ');
+        }
+        while(true){
+            text = text.substring(pos).trim();
+            pos = regexFindWrapPos(text, width);
+            if(pos == -1){
+                builder.append(padding).append(text);
+                return;
+            }
+            builder.append(padding).append(regexRTrim(text.substring(0, pos))).append(NEW_LINE);
+        }
+    }
+
+    private static String regexRTrim(String buf){
+        int pos = buf.length();
+        while(pos > 0 && Character.isWhitespace(buf.charAt(pos -1))){
+            --pos;
+        }
+        return buf.substring(0, pos);
+    }
+
+    private static int regexFindWrapPos(String text, int width){
+        if(text.length() < width){
+            return -1;
+        }
+        String subString = new StringBuilder(text.substring(0, width)).reverse().toString();
+        Matcher matcher = NEXT_WHITE_SPACE_PATTERN.matcher(subString);
+        if(matcher.find()){
+            return subString.length() - matcher.start();
+        }
+        return -1;
+    }
+}
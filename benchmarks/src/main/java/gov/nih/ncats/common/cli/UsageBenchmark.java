@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generating the usage of small and huge specifications, both rendering it
+ * and getting the already rendered text.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UsageBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int numberOfOptions;
+
+    private CliSpecification spec;
+    private final StringBuilder out = new StringBuilder();
+
+    @Setup
+    public void setup(){
+        spec = BenchmarkSpecs.flat(numberOfOptions);
+        spec.generateUsage();
+    }
+
+    @Benchmark
+    public String generateUsage(){
+        return spec.generateUsage();
+    }
+
+    @Benchmark
+    public ByteBuffer generateUsageUtf8(){
+        return spec.generateUsageUtf8();
+    }
+
+    /**
+     * Render the usage in a format that is never cached.
+     */
+    @Benchmark
+    public int renderUsage() throws IOException{
+        out.setLength(0);
+        spec.writeUsage(out, UsageFormat.DEFAULT.width(80));
+        return out.length();
+    }
+
+    @Benchmark
+    public int writeOptionHelp() throws IOException{
+        out.setLength(0);
+        spec.writeOptionHelp(out, "opt1");
+        return out.length();
+    }
+}
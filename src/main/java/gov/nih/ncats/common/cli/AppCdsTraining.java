@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+
+package gov.nih.ncats.common.cli;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+
+/**
+ * A training run for making an AppCDS archive that has the classes
+ * a CLI tool needs from this library.  A single run of a tool only loads the classes
+ * for the options it was given, so the training goes through every kind of option,
+ * setter, parse and usage on a made up specification
+ * without any side effects.
+ *
+ * On JDK 13 or later, run the training with the same classpath as the tool:
+ * <pre>
+ * java -XX:ArchiveClassesAtExit=tool.jsa -cp tool.jar:ncats-common-cli.jar:... gov.nih.ncats.common.cli.AppCdsTraining
+ * java -XX:SharedArchiveFile=tool.jsa -cp tool.jar:ncats-common-cli.jar:... com.example.Tool ...
+ * </pre>
+ * Tools can also call {@link #run()} from their own training run
+ * so their own classes are in the same archive.
+ * The archive only covers classes loaded from jars, not directories,
+ * and commons-cli 1.4 is compiled for Java 5 which is too old to be archived.
+ *
+ * Building with {@code mvn -Pappcds package} makes an archive of just this library
+ * next to its jar, made with the jar followed by the dependency classpath the build logs.
+ * The JVM only uses an archive when the classpath it was made with is the start of the
+ * classpath it runs with, so give {@code StartupBenchmark} that same classpath with {@code -cp}
+ * along with {@code -XX:SharedArchiveFile}; it puts its own classes after it.
+ */
+public final class AppCdsTraining {
+
+    private AppCdsTraining(){
+        //can not instantiate
+    }
+
+    public static void main(String[] args) {
+        run();
+    }
+
+    /**
+     * Load the classes used to build, parse and print the usage of a specification
+     * by doing each of them on a specification that is thrown away.
+     */
+    public static void run(){
+        CliSpecification spec = createSpec();
+        try {
+            Cli cli = spec.parse(new String[]{"-s", "a", "-i", "1", "-l", "2", "-d", "0.5", "-b", "true",
+                                              "-f", "file", "-r", "x", "-r", "y", "-flag",
+                                              "-radio1", "x", "-g1", "x", "-g2", "x", "-any1", "x",
+                                              "v1", "v2", "last"});
+            cli.getOptionValue("s");
+            cli.getOptionValues("r");
+            cli.getInt("i", 0);
+            cli.getLong("l", 0);
+            cli.getPath("f");
+            cli.getTrailer(0);
+            cli.getVariadicTrailer();
+
+            byte[] bytes = "-s\0a\0-radio1\0x\0-g1\0x\0-g2\0x\0-any1\0x\0last\0".getBytes(StandardCharsets.UTF_8);
+            spec.parse(bytes, 0, bytes.length);
+            spec.parseAll(Collections.singletonList(new String[]{"-radio1", "x", "-g1", "x", "-g2", "x", "-any1", "x", "last"}));
+        } catch (CliValidationException e) {
+            throw new IllegalStateException("training specification should parse", e);
+        }
+        //a query can't have trailers so this is a failure but still goes through the decoder
+        spec.tryParse("s=a&i=1&flag&radio1=x&g1=x&g2=x&any1=x");
+        //failures
+        spec.tryParse(new String[]{"-unknown"});
+        spec.tryParse(new String[]{"-i", "notANumber", "last"});
+        spec.tryParse(new String[]{"-radio1", "x", "-radio2", "y", "last"});
+        spec.tryParse(new String[0]);
+        spec.helpRequested(new String[]{"-h"});
+        //what an interactive shell does as the command line is typed
+        spec.newSession().setTokens("-radio1", "x", "-g1").add("x").getDiagnostics();
+
+        StringWriter writer = new StringWriter();
+        try {
+            spec.writeUsage(writer, UsageFormat.DEFAULT);
+            spec.writeOptionHelp(writer, "s");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        spec.generateUsage();
+        spec.generateUsageUtf8();
+    }
+
+    private static CliSpecification createSpec(){
+        return CliSpecification.createWithHelp(
+                option("s").longName("string").argName("value").description("a string").setter(s -> {}),
+                option("i").setToInt(i -> {}, i -> i >= 0),
+                option("l").setToLong(l -> {}),
+                option("d").setToDouble(d -> {}),
+                option("b").setToBoolean(b -> {}),
+                option("f").setToFile(f -> {}),
+                option("r").setToStream(s -> s.count()),
+                option("flag").isFlag(true).independentSetter(true).setter(s -> {}),
+                radio(option("radio1"), option("radio2")).setRequired(true),
+                group(option("g1"), option("g2").setterDependsOn("g1").setter(s -> {}))
+                        .addValidation(cli -> true, "group validation"),
+                atLeastOneOf(option("any1"), option("any2")))
+                    .programName("training")
+                    .description("the AppCDS training specification")
+                    .example("-radio1 x", "an example")
+                    .footer("footer")
+                    .addValidation(cli -> true, "validation")
+                    .variadicTrailer(new VariadicTrailerBuilder().name("values").setToStream(s -> s.count()).build())
+                    .trailer(new TrailerBuilder().setter(s -> {}).build());
+    }
+}
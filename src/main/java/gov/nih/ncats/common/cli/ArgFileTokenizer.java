@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import gov.nih.ncats.common.functions.ThrowableConsumer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Splits an argument file ({@code @file}) into arguments.
+ * The file is read through a {@link FileChannel} into fixed size buffers
+ * and each argument is handed off as soon as it is complete, so only the current
+ * argument is ever in memory no matter how big the file is.
+ *
+ * The file must be UTF-8 and uses the same rules as the java launcher's argument files:
+ * <ul>
+ *     <li>Arguments are separated by whitespace.</li>
+ *     <li>A {@code #} at the start of an argument comments out the rest of the line.</li>
+ *     <li>Single or double quotes group characters, including whitespace, into one argument.
+ *     Inside quotes a backslash escapes the next character ({@code \n}, {@code \t}, {@code \r}
+ *     and {@code \f} are the usual control characters).</li>
+ * </ul>
+ */
+final class ArgFileTokenizer {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final int bufferSize;
+
+    ArgFileTokenizer(){
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a new tokenizer.
+     * @param bufferSize the size of the buffers to read and decode the file with;
+     *                   must be at least 4 so any UTF-8 character fits.
+     */
+    ArgFileTokenizer(int bufferSize){
+        if(bufferSize < 4){
+            throw new IllegalArgumentException("buffer size must be at least 4");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Read the arguments in the given file.
+     * @param path the argument file.
+     * @param consumer the consumer to give each argument to in order.
+     * @throws IOException if there is a problem reading the file.
+     * @throws CliValidationException if the file is not a valid argument file or thrown by the consumer.
+     */
+    void tokenize(Path path, ThrowableConsumer<String, CliValidationException> consumer) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                                                .onMalformedInput(CodingErrorAction.REPORT)
+                                                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer bytes = ByteBuffer.allocate(bufferSize);
+        CharBuffer chars = CharBuffer.allocate(bufferSize);
+        Tokens tokens = new Tokens(consumer);
+
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            boolean endOfInput = false;
+            while(!endOfInput){
+                endOfInput = channel.read(bytes) < 0;
+                bytes.flip();
+                CoderResult result;
+                do{
+                    result = decoder.decode(bytes, chars, endOfInput);
+                    if(result.isError()){
+                        result.throwException();
+                    }
+                    drain(chars, tokens);
+                }while(result.isOverflow());
+                //keep any partial character for the next read
+                bytes.compact();
+            }
+            while(decoder.flush(chars).isOverflow()){
+                drain(chars, tokens);
+            }
+            drain(chars, tokens);
+        }
+        tokens.finish();
+    }
+
+    private static void drain(CharBuffer chars, Tokens tokens) throws CliValidationException {
+        chars.flip();
+        while(chars.hasRemaining()){
+            tokens.accept(chars.get());
+        }
+        chars.clear();
+    }
+
+    private static final class Tokens{
+        private final ThrowableConsumer<String, CliValidationException> consumer;
+        private final StringBuilder current = new StringBuilder();
+
+        private boolean inToken;
+        private boolean inComment;
+        private boolean escaped;
+        /**
+         * The quote character we are in or 0 if not quoted.
+         */
+        private char quote;
+
+        Tokens(ThrowableConsumer<String, CliValidationException> consumer) {
+            this.consumer = consumer;
+        }
+
+        void accept(char c) throws CliValidationException {
+            if(inComment){
+                inComment = c != '\n' && c != '\r';
+            }else if(escaped){
+                current.append(unescape(c));
+                escaped = false;
+            }else if(quote !=0){
+                if(c == quote){
+                    quote = 0;
+                }else if(c == '\\'){
+                    escaped = true;
+                }else{
+                    current.append(c);
+                }
+            }else if(Character.isWhitespace(c)){
+                if(inToken){
+                    emit();
+                }
+            }else if(c == '#' && !inToken){
+                inComment = true;
+            }else{
+                inToken = true;
+                if(c == '"' || c == '\''){
+                    quote = c;
+                }else{
+                    current.append(c);
+                }
+            }
+        }
+
+        void finish() throws CliValidationException {
+            if(quote !=0){
+                throw CliValidationException.stackless("unterminated quote in argument file");
+            }
+            if(inToken){
+                emit();
+            }
+        }
+
+        private void emit() throws CliValidationException {
+            String token = current.toString();
+            current.setLength(0);
+            inToken = false;
+            consumer.accept(token);
+        }
+
+        private static char unescape(char c){
+            switch(c){
+                case 'n' : return '\n';
+                case 't' : return '\t';
+                case 'r' : return '\r';
+                case 'f' : return '\f';
+                default: return c;
+            }
+        }
+    }
+}
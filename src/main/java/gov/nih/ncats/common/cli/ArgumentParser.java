@@ -0,0 +1,616 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.apache.commons.cli.Option;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Single pass command line parser that works directly off of the options
+ * registered in an {@link InternalCliSpecification}.
+ *
+ * This follows the same token rules as commons-cli's {@code DefaultParser}
+ * (short options, long options, unambiguous long prefixes, {@code --opt=value},
+ * {@code -Svalue} and concatenated flags) so switching parsers
+ * does not change how a command line is interpreted, but it doesn't
+ * have to build and then copy a commons-cli {@code CommandLine}.
+ * Unlike {@code DefaultParser} it doesn't check for required options,
+ * that is left to the specification's validation, so a missing required option
+ * is reported with the validation's message and not commons-cli's
+ * {@code Missing required option: x}.
+ *
+ * Options are tracked by their id, which option was seen is set in a bitset
+ * and every value of a (repeated) option is collected into {@link OptionValues}.
+ *
+ * Arguments can be given all at once or one at a time as they are read
+ * so the whole command line never has to be in memory.  The last arguments,
+ * which are the trailers, are held back until there are newer arguments
+ * to take their place.
+ *
+ * If there is a variadic trailer, every positional argument (before the trailers) is kept too,
+ * wherever it is on the command line, the same as commons-cli's {@code CommandLine.getArgList()}.
+ * When the arguments are given as an array and the positional arguments are all next to each other
+ * those are just the range of the array they are in, otherwise they have to be collected as they are seen.
+ *
+ * A {@link ParseSession} instead parses one token at a time with {@link #parseToken(CharSequence, int, TokenRecord)}
+ * and keeps what each token did in its own {@link TokenRecord} so a token can be re-parsed on its own.
+ *
+ * A new parser must be created for each parse.
+ */
+final class ArgumentParser {
+
+    private static final int NONE = OptionNameIndex.NONE;
+    /**
+     * The state of {@link #parseToken(CharSequence, int, TokenRecord)} when
+     * the next token is not the value of an option.
+     */
+    static final int READY = NONE;
+    /**
+     * The state of {@link #parseToken(CharSequence, int, TokenRecord)} after a
+     * {@code --} when every token is positional.
+     */
+    static final int SKIPPING = -2;
+
+    private final InternalCliSpecification spec;
+
+    private final long[] present;
+    /**
+     * The values of the options, which may still be undecoded bytes
+     * until something asks for them as Strings.
+     */
+    private final OptionValues.Builder values;
+    /**
+     * The id of the option seen that still needs its argument; {@link #NONE}
+     * if we aren't waiting on an argument.
+     */
+    private int currentOption = NONE;
+
+    private boolean skipParsing;
+    /**
+     * Ring buffer of the most recent arguments which will be the trailers
+     * if no more arguments are given.
+     */
+    private final CharSequence[] trailers;
+    private int trailerStart;
+    private int numberOfHeldTrailers;
+
+    private final boolean hasVariadicTrailer;
+    /**
+     * The arguments being parsed if they were all given at once as an array.
+     */
+    private String[] source;
+    /**
+     * The number of arguments handled so far, which doesn't count the held back trailers.
+     */
+    private int handledTokens;
+    /**
+     * The number of positional arguments seen so far.
+     */
+    private int numberOfPositional;
+    /**
+     * The index in {@link #source} of the first positional argument while
+     * the positional arguments are all next to each other.
+     */
+    private int firstPositional;
+    /**
+     * The positional arguments seen so far, only used if there is no {@link #source}
+     * or options came in between the positional arguments.
+     */
+    private CharSequence[] positional;
+    /**
+     * Where the options seen go instead of {@link #present} and {@link #values}
+     * while {@link #parseToken(CharSequence, int, TokenRecord)} runs; null otherwise.
+     */
+    private TokenRecord record;
+
+    ArgumentParser(InternalCliSpecification spec) {
+        this(spec, 0);
+    }
+
+    ArgumentParser(InternalCliSpecification spec, int numberOfTrailers) {
+        this(spec, numberOfTrailers, false);
+    }
+
+    ArgumentParser(InternalCliSpecification spec, int numberOfTrailers, boolean hasVariadicTrailer) {
+        this.spec = spec;
+        this.hasVariadicTrailer = hasVariadicTrailer;
+        int numberOfOptions = spec.getOptionCount();
+        present = OptionBits.newBits(numberOfOptions);
+        values = new OptionValues.Builder(numberOfOptions);
+        trailers = new CharSequence[numberOfTrailers];
+    }
+
+    /**
+     * Parse the given arguments.
+     * @param args the arguments to parse including the trailers.
+     * @return a new {@link Cli} of the parsed options.
+     * @throws CliValidationException if the arguments can not be parsed.
+     */
+    Cli parse(String[] args) throws CliValidationException {
+        source = args;
+        for(String token : args){
+            accept(token);
+        }
+        return finish();
+    }
+
+    /**
+     * Parse the next argument.
+     * @param token the argument.
+     * @throws CliValidationException if the arguments can not be parsed.
+     */
+    void accept(CharSequence token) throws CliValidationException {
+        if(trailers.length ==0){
+            handleToken(token);
+        }else if(numberOfHeldTrailers < trailers.length){
+            trailers[(trailerStart + numberOfHeldTrailers) % trailers.length] = token;
+            numberOfHeldTrailers++;
+        }else{
+            //the oldest held argument can't be a trailer anymore
+            CharSequence oldest = trailers[trailerStart];
+            trailers[trailerStart] = token;
+            trailerStart = (trailerStart +1) % trailers.length;
+            handleToken(oldest);
+        }
+    }
+
+    /**
+     * Parse a single token on its own starting from the given state and record what it did,
+     * instead of adding it to this parser's options and values.
+     * An error doesn't stop the parse: it is recorded, along with the options the token set
+     * if the error is a missing argument of the option before, or else nothing the token did counts.
+     * @param token the token to parse.
+     * @param state the state left by the token before it: {@link #READY},
+     *              {@link #SKIPPING} or the id of the option waiting on its value.
+     * @param record the record to fill in, anything it had is cleared first.
+     * @return the state after this token.
+     */
+    int parseToken(CharSequence token, int state, TokenRecord record){
+        record.clear(state);
+        this.record = record;
+        skipParsing = state == SKIPPING;
+        currentOption = skipParsing ? NONE : state;
+        try{
+            handleToken(token);
+        }catch(CliValidationException e){
+            record.fail(e.getMessage());
+            currentOption = NONE;
+        }finally{
+            this.record = null;
+        }
+        if(skipParsing && currentOption != NONE){
+            //a whole parse finds this at the end since nothing after a -- can be the value
+            record.error = missingArgument(spec, currentOption);
+            currentOption = NONE;
+        }
+        record.exitState = skipParsing ? SKIPPING : currentOption;
+        return record.exitState;
+    }
+
+    /**
+     * Parse an option whose name has already been split from its value,
+     * by a URL query for example.  The name is either a short name, a long name
+     * or an unambiguous prefix of a long name.
+     * @param name the characters that contain the option name.
+     * @param start the start of the name in those characters.
+     * @param end the end of the name (exclusive).
+     * @throws CliValidationException if there is no such option
+     * or the previous option is still missing its value.
+     */
+    void acceptOption(CharSequence name, int start, int end) throws CliValidationException {
+        int id = spec.getShortOption(name, start, end);
+        if(id == NONE){
+            id = spec.findLongOption(name, start, end);
+        }
+        if(id == NONE){
+            throw CliValidationException.stackless("Unrecognized option: -" + name.subSequence(start, end));
+        }
+        if(id == OptionNameIndex.AMBIGUOUS){
+            throw ambiguous("-" + name.subSequence(start, end), spec.getMatchingLongOptions(name, start, end));
+        }
+        handleOption(id);
+    }
+
+    /**
+     * Is the last option seen waiting on its value.
+     */
+    boolean isExpectingValue(){
+        return currentOption != NONE;
+    }
+
+    /**
+     * Set the value of the last option seen.
+     * @see #isExpectingValue()
+     */
+    void acceptValue(String value){
+        addValue(value);
+    }
+
+    /**
+     * There are no more arguments.
+     * @return a new {@link Cli} of the parsed options.
+     * @throws CliValidationException if the arguments can not be parsed.
+     */
+    Cli finish() throws CliValidationException {
+        if(numberOfHeldTrailers < trailers.length){
+            throw CliValidationException.stackless("not enough arguments");
+        }
+        checkRequiredArgs();
+        String[] actualTrailers = new String[trailers.length];
+        for(int i=0; i< actualTrailers.length; i++){
+            actualTrailers[i] = trailers[(trailerStart + i) % trailers.length].toString();
+        }
+        return new Cli(spec, present, values.build(), actualTrailers, getVariadicTrailer());
+    }
+
+    private List<String> getVariadicTrailer(){
+        if(numberOfPositional == 0){
+            return Collections.emptyList();
+        }
+        if(positional == null){
+            return new ArgumentRange(source, firstPositional, firstPositional + numberOfPositional);
+        }
+        String[] args = new String[numberOfPositional];
+        for(int i=0; i< args.length; i++){
+            args[i] = positional[i].toString();
+        }
+        return new ArgumentRange(args, 0, args.length);
+    }
+
+    private void handleToken(CharSequence token) throws CliValidationException {
+        handledTokens++;
+        if(skipParsing){
+            addPositional(token);
+            return;
+        }
+        if(isDoubleHyphen(token)){
+            skipParsing = true;
+        }else if(currentOption != NONE && isArgument(token)){
+            addValue(stripLeadingAndTrailingQuotes(token));
+        }else if(startsWith(token, "--")){
+            handleLongOption(token);
+        }else if(startsWith(token, "-") && token.length() > 1){
+            handleShortAndLongOption(token);
+        }else{
+            handleUnknownToken(token);
+        }
+    }
+
+    private void handleLongOption(CharSequence token) throws CliValidationException {
+        if(indexOf(token, '=', 0) == -1){
+            handleLongOptionWithoutEqual(token);
+        }else{
+            handleLongOptionWithEqual(token);
+        }
+    }
+
+    private void handleLongOptionWithoutEqual(CharSequence token) throws CliValidationException {
+        int start = InternalCliSpecification.leadingHyphens(token);
+        int id = spec.findLongOption(token, start, token.length());
+        if(id == NONE){
+            handleUnknownToken(token);
+        }else if(id == OptionNameIndex.AMBIGUOUS){
+            throw ambiguous(token, spec.getMatchingLongOptions(token, start, token.length()));
+        }else{
+            handleOption(id);
+        }
+    }
+
+    private void handleLongOptionWithEqual(CharSequence token) throws CliValidationException {
+        int pos = indexOf(token, '=', 0);
+        int start = InternalCliSpecification.leadingHyphens(token);
+        int id = spec.findLongOption(token, start, pos);
+        if(id == NONE){
+            handleUnknownToken(token);
+        }else if(id == OptionNameIndex.AMBIGUOUS){
+            throw ambiguous(token.subSequence(0, pos), spec.getMatchingLongOptions(token, start, pos));
+        }else if(spec.hasArg(id)){
+            handleOption(id);
+            addValue(token.subSequence(pos + 1, token.length()));
+        }else{
+            handleUnknownToken(token);
+        }
+    }
+
+    /**
+     * Handle a token that starts with a single hyphen.
+     */
+    private void handleShortAndLongOption(CharSequence token) throws CliValidationException {
+        int length = token.length();
+        int pos = indexOf(token, '=', 1);
+
+        if(length == 2){
+            // -S
+            int id = spec.getShortOption(token, 1, 2);
+            if(id == NONE){
+                handleUnknownToken(token);
+            }else{
+                handleOption(id);
+            }
+        }else if(pos == -1){
+            // -xxx
+            int id = spec.getShortOption(token, 1, length);
+            if(id != NONE){
+                handleOption(id);
+            }else if(spec.findLongOption(token, 1, length) != NONE){
+                // -L or -l
+                handleLongOptionWithoutEqual(token);
+            }else{
+                // -Xmx512m
+                int prefixId = spec.getLongPrefix(token, 1, length);
+                if(prefixId != NONE && spec.hasArg(prefixId)){
+                    handleOption(prefixId);
+                    addValue(token.subSequence(1 + spec.getOption(prefixId).getLongOpt().length(), token.length()));
+                }else{
+                    // -S1S2S3 or -S1S2V
+                    handleConcatenatedOptions(token);
+                }
+            }
+        }else if(pos == 2){
+            // -S=V
+            int id = spec.resolve(token, 1, 2);
+            if(id != NONE && spec.hasArg(id)){
+                handleOption(id);
+                addValue(token.subSequence(pos + 1, token.length()));
+            }else{
+                handleUnknownToken(token);
+            }
+        }else{
+            // -L=V or -l=V
+            handleLongOptionWithEqual(token);
+        }
+    }
+
+    private void handleConcatenatedOptions(CharSequence token) throws CliValidationException {
+        for(int i=1; i< token.length(); i++){
+            int id = spec.resolve(token, i, i+1);
+            if(id == NONE){
+                handleUnknownToken(token);
+                return;
+            }
+            handleOption(id);
+            if(currentOption != NONE && token.length() != i+1){
+                //the rest of the token is the argument
+                addValue(token.subSequence(i+1, token.length()));
+                return;
+            }
+        }
+    }
+
+    private void handleOption(int id) throws CliValidationException {
+        checkRequiredArgs();
+        if(record != null){
+            record.addOption(id);
+        }else{
+            OptionBits.set(present, id);
+        }
+        currentOption = spec.hasArg(id) ? id : NONE;
+    }
+
+    private void addValue(CharSequence value){
+        if(record == null){
+            values.add(currentOption, value);
+        }
+        currentOption = NONE;
+    }
+
+    /**
+     * Positional arguments are only kept if they could be part of a variadic trailer.
+     */
+    private void addPositional(CharSequence token){
+        if(record != null){
+            record.positional = true;
+            return;
+        }
+        if(!hasVariadicTrailer){
+            return;
+        }
+        if(source != null && positional == null){
+            //tokens are handled in order so this one is at handledTokens -1 in the source
+            int index = handledTokens -1;
+            if(numberOfPositional == 0){
+                firstPositional = index;
+            }
+            if(firstPositional + numberOfPositional == index){
+                numberOfPositional++;
+                return;
+            }
+            //options came in between so they aren't a range of the source anymore
+            positional = Arrays.copyOfRange(source, firstPositional, firstPositional + numberOfPositional * 2,
+                                            CharSequence[].class);
+        }
+        if(positional == null){
+            positional = new CharSequence[8];
+        }else if(numberOfPositional == positional.length){
+            positional = Arrays.copyOf(positional, numberOfPositional * 2);
+        }
+        positional[numberOfPositional] = token;
+        numberOfPositional++;
+    }
+
+    private void handleUnknownToken(CharSequence token) throws CliValidationException {
+        if(startsWith(token, "-") && token.length() > 1){
+            throw CliValidationException.stackless("Unrecognized option: " + token);
+        }
+        //otherwise it's a positional argument
+        addPositional(token);
+    }
+
+    private void checkRequiredArgs() throws CliValidationException {
+        if(currentOption != NONE){
+            String message = missingArgument(spec, currentOption);
+            if(record == null){
+                throw CliValidationException.stackless(message);
+            }
+            //carry on as if the value was given so the rest of the token still counts
+            record.error = message;
+            currentOption = NONE;
+        }
+    }
+
+    static String missingArgument(InternalCliSpecification spec, int id){
+        return "Missing argument for option: " + spec.getOption(id).getOpt();
+    }
+
+    private boolean isArgument(CharSequence token){
+        return !isOption(token) || isNegativeNumber(token);
+    }
+
+    private boolean isOption(CharSequence token){
+        return isLongOption(token) || isShortOption(token);
+    }
+
+    private boolean isShortOption(CharSequence token){
+        // -S, -SV, -S=V, -S1S2
+        if(!startsWith(token, "-") || token.length() == 1){
+            return false;
+        }
+        int pos = indexOf(token, '=', 0);
+        int end = pos == -1 ? token.length() : pos;
+        if(spec.getShortOption(token, 1, end) != NONE){
+            return true;
+        }
+        return end > 1 && spec.getShortOption(token, 1, 2) != NONE;
+    }
+
+    private boolean isLongOption(CharSequence token){
+        if(!startsWith(token, "-") || token.length() == 1){
+            return false;
+        }
+        int pos = indexOf(token, '=', 0);
+        int end = pos == -1 ? token.length() : pos;
+        if(spec.findLongOption(token, InternalCliSpecification.leadingHyphens(token), end) != NONE){
+            // --L, -L, --L=V, -L=V, --l, --l=V
+            return true;
+        }
+        // -LV
+        return !startsWith(token, "--") && spec.getLongPrefix(token, 1, token.length()) != NONE;
+    }
+
+    private static boolean isNegativeNumber(CharSequence token){
+        try{
+            Double.parseDouble(token.toString());
+            return true;
+        }catch(NumberFormatException e){
+            return false;
+        }
+    }
+
+    private static CharSequence stripLeadingAndTrailingQuotes(CharSequence token){
+        int length = token.length();
+        if(length > 1 && token.charAt(0) == '"' && token.charAt(length -1) == '"'
+                && indexOf(token, '"', 1) == length -1){
+            return token.subSequence(1, length -1);
+        }
+        return token;
+    }
+
+    private static boolean isDoubleHyphen(CharSequence token){
+        return token.length() == 2 && token.charAt(0) == '-' && token.charAt(1) == '-';
+    }
+
+    private static boolean startsWith(CharSequence token, String prefix){
+        if(token.length() < prefix.length()){
+            return false;
+        }
+        for(int i=0; i< prefix.length(); i++){
+            if(token.charAt(i) != prefix.charAt(i)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence token, char c, int fromIndex){
+        for(int i= fromIndex; i< token.length(); i++){
+            if(token.charAt(i) == c){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static CliValidationException ambiguous(CharSequence token, List<Option> matching){
+        StringBuilder builder = new StringBuilder("Ambiguous option: '")
+                                        .append(token)
+                                        .append("'  (could be: ");
+        for(int i=0; i< matching.size(); i++){
+            if(i > 0){
+                builder.append(", ");
+            }
+            builder.append('\'').append(matching.get(i).getLongOpt()).append('\'');
+        }
+        return CliValidationException.stackless(builder.append(')').toString());
+    }
+
+    /**
+     * What parsing a single token did.
+     */
+    static final class TokenRecord{
+        /**
+         * The state before and after the token.
+         */
+        int entryState;
+        int exitState;
+        /**
+         * The ids of the options the token set, an option may be in here more than once.
+         */
+        private int[] options = new int[2];
+        private int numberOfOptions;
+        /**
+         * Is the token a positional argument.
+         */
+        boolean positional;
+        /**
+         * The error message if the token could not be parsed; null otherwise.
+         */
+        String error;
+
+        private void clear(int entryState){
+            this.entryState = entryState;
+            numberOfOptions = 0;
+            positional = false;
+            error = null;
+        }
+
+        private void addOption(int id){
+            if(numberOfOptions == options.length){
+                options = Arrays.copyOf(options, numberOfOptions * 2);
+            }
+            options[numberOfOptions++] = id;
+        }
+
+        private void fail(String message){
+            numberOfOptions = 0;
+            positional = false;
+            error = message;
+        }
+
+        int getNumberOfOptions(){
+            return numberOfOptions;
+        }
+
+        int getOption(int i){
+            return options[i];
+        }
+    }
+}
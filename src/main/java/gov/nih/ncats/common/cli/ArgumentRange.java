@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * An unmodifiable list view of a range of an argument array so
+ * trailing arguments don't have to be copied.  The spliterator splits
+ * the range evenly so the arguments can be processed in parallel.
+ */
+final class ArgumentRange extends AbstractList<String> implements RandomAccess {
+
+    private final String[] args;
+    private final int from;
+    private final int to;
+
+    ArgumentRange(String[] args, int from, int to) {
+        this.args = args;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public String get(int index) {
+        if(index < 0 || index >= size()){
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+        return args[from + index];
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public Object[] toArray() {
+        return Arrays.copyOfRange(args, from, to, Object[].class);
+    }
+
+    @Override
+    public Spliterator<String> spliterator() {
+        return Spliterators.spliterator(args, from, to, Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+    }
+}
@@ -1,7 +1,6 @@
 package gov.nih.ncats.common.cli;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
@@ -48,15 +47,15 @@ class AtLeastOneOfOption implements InternalCliOptionBuilder{
 	 @Override
 	    public InternalCliOption build() {
 	        return new AtLeastOneOfInternalCliOption(isRequired,
-	                Arrays.stream(choices).map(InternalCliOptionBuilder::build).toArray(i-> new InternalCliOption[i]),
-	                validators);
+	                InternalCliOptionBuilder.buildAll(choices),
+	                CliValidator.copyOf(validators));
 	    }
 
 	    @Override
 	    public InternalCliOption build(boolean isRequired) {
 	        return new AtLeastOneOfInternalCliOption(isRequired,
-	                Arrays.stream(choices).map(InternalCliOptionBuilder::build).toArray(i-> new InternalCliOption[i]),
-	                validators);
+	                InternalCliOptionBuilder.buildAll(choices),
+	                CliValidator.copyOf(validators));
 
 	    }
 	
@@ -66,6 +65,12 @@ class AtLeastOneOfOption implements InternalCliOptionBuilder{
         private final boolean isRequired;
 
         private final List<CliValidator> validators;
+        /**
+         * Option ids are handed out in tree order so the options under choice {@code i}
+         * have the ids {@code choiceStart[i] .. choiceStart[i+1] -1};
+         * set when this option is added to the specification.
+         */
+        private int[] choiceStart;
 
         public AtLeastOneOfInternalCliOption(boolean isRequired, InternalCliOption[] choices,
                                       List<CliValidator> validators) {
@@ -75,10 +80,6 @@ class AtLeastOneOfOption implements InternalCliOptionBuilder{
 
         }
 
-        @Override
-        public void addValidator(CliValidator validator) {
-            validators.add(validator);
-        }
         @Override
         public Optional<String> generateUsage(boolean force) {
             if(!force && !isRequired){
@@ -96,9 +97,34 @@ class AtLeastOneOfOption implements InternalCliOptionBuilder{
 
         @Override
         public void addTo(InternalCliSpecification spec, Boolean forceIsRequired) {
-            for(InternalCliOption choice : choices){
-                choice.addTo(spec, false);
+            choiceStart = new int[choices.length +1];
+            for(int i=0; i< choices.length; i++){
+                choiceStart[i] = spec.getOptionCount();
+                choices[i].addTo(spec, false);
+            }
+            choiceStart[choices.length] = spec.getOptionCount();
+        }
+
+        @Override
+        public int compileTo(ConstraintProgram.Builder program) {
+            int[] nodes = new int[choices.length];
+            for(int i=0; i< choices.length; i++){
+                nodes[i] = choices[i].compileTo(program);
+            }
+            return program.choice(this, ConstraintProgram.AT_LEAST_ONE_OF, isRequired, nodes, validators);
+        }
+
+        /**
+         * Count how many of our choices have at least one option seen.
+         */
+        private int countSeenChoices(Cli cli){
+            int seen=0;
+            for(int i=0; i< choices.length; i++){
+                if(cli.isAnyPresent(choiceStart[i], choiceStart[i+1])){
+                    seen++;
+                }
             }
+            return seen;
         }
 
         @Override
@@ -130,11 +156,7 @@ class AtLeastOneOfOption implements InternalCliOptionBuilder{
 
         @Override
         public void validate(Cli cli) throws CliValidationException {
-            List<String> seen = getSeenList(cli);
-           
-            if(isRequired && seen.size() ==0){
-                throw new CliValidationException("AtLeastOneOf option was required but did not find selected option choice");
-            }
+            checkConstraint(cli);
             for(InternalCliOption choice : choices){
                 choice.validate(cli);
             }
@@ -142,6 +164,13 @@ class AtLeastOneOfOption implements InternalCliOptionBuilder{
                 v.validate(cli);
             }
         }
+
+        @Override
+        public void checkConstraint(Cli cli) throws CliValidationException {
+            if(isRequired && countSeenChoices(cli) ==0){
+                throw CliValidationException.stackless("AtLeastOneOf option was required but did not find selected option choice");
+            }
+        }
         @Override
         public List<String> getSeenList(Cli cli) {
             List<String> list = new ArrayList<>();
@@ -154,6 +183,13 @@ class AtLeastOneOfOption implements InternalCliOptionBuilder{
             }
             return list;
         }
+        @Override
+        public void addSettersTo(SetterSchedule.Builder schedule) {
+            for(InternalCliOption choice : choices){
+                choice.addSettersTo(schedule);
+            }
+        }
+
         @Override
         public void fireConsumerIfNeeded(Cli cli) throws CliValidationException {
             for(InternalCliOption choice : choices){
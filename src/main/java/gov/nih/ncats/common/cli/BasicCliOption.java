@@ -26,6 +26,7 @@ import gov.nih.ncats.common.functions.ThrowableIntConsumer;
 import java.io.File;
 import java.util.*;
 import java.util.function.*;
+import java.util.stream.Stream;
 
 /**
  * Created by katzelda on 5/28/19.
@@ -39,7 +40,27 @@ class BasicCliOption implements InternalCliOptionBuilder, BasicCliOptionBuilder
 
     private String argName;
 
-    private ThrowableConsumer<String, CliValidationException> consumer = (s) ->{}; //no -op
+    /**
+     * Calls a setter with the value of an option.
+     */
+    @FunctionalInterface
+    private interface OptionSetter {
+        void set(Cli cli, int id) throws CliValidationException;
+    }
+    /**
+     * Turns the String value into the type the setter wants,
+     * null if the setter doesn't use a converter.
+     */
+    private ThrowableFunction<String, ?, CliValidationException> converter;
+    /**
+     * null if there is no setter.
+     */
+    private OptionSetter setter;
+    /**
+     * The options whose setters have to be called before this one's,
+     * null if this setter is called in order with the others.
+     */
+    private String[] setterDependencies;
 
     private List<CliValidator> validators = new ArrayList<>();
 
@@ -105,16 +126,16 @@ class BasicCliOption implements InternalCliOptionBuilder, BasicCliOptionBuilder
     @Override
     public <T extends Throwable> BasicCliOptionBuilder setToFile(ThrowableConsumer<File, T> consumer) {
         Objects.requireNonNull(consumer);
-        this.consumer = s -> {
+        setConverted(File::new, value -> {
             try{
-                consumer.accept(new File(s));
+                consumer.accept((File) value);
             }catch(Throwable t){
                 if( t instanceof CliValidationException){
                     throw (CliValidationException)t;
                 }
-                throw new CliValidationException(t.getMessage(), t);
+                throw CliValidationException.stackless(t.getMessage(), t);
             }
-        };
+        });
         return this;
     }
 
@@ -123,13 +144,12 @@ class BasicCliOption implements InternalCliOptionBuilder, BasicCliOptionBuilder
         if(validator == null){
             return setToInt(consumer);
         }
-
-        this.consumer = s->{
+        setFromCli((cli, id)->{
             int value;
             try {
-                value = Integer.parseInt(s);
+                value = cli.getIntValue(id);
             }catch(Throwable t){
-                throw new CliValidationException("error parsing int value", t);
+                throw CliValidationException.stackless("error parsing int value", t);
             }
             if(validator.test(value)){
                 try {
@@ -138,41 +158,51 @@ class BasicCliOption implements InternalCliOptionBuilder, BasicCliOptionBuilder
                     if( t instanceof CliValidationException){
                         throw (CliValidationException)t;
                     }
-                    throw new CliValidationException(t.getMessage(), t);
+                    throw CliValidationException.stackless(t.getMessage(), t);
                 }
             }else{
-                throw new CliValidationException("setter did not pass validation test");
+                throw CliValidationException.stackless("setter did not pass validation test");
             }
-        };
+        });
         return this;
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T extends Throwable, R> BasicCliOption setter(ThrowableFunction<String, R, T> typeConverter,
                                                           ThrowableConsumer<R, T> consumer, Predicate<R> validator){
         if(validator ==null){
-            this.consumer=s-> {
+            setConverted(s-> {
+                try {
+                    return typeConverter.apply(s);
+                } catch (Throwable t) {
+                    if( t instanceof CliValidationException){
+                        throw (CliValidationException)t;
+                    }
+                    throw CliValidationException.stackless(t.getMessage(), t);
+                }
+            }, value-> {
                 try {
-                    consumer.accept(typeConverter.apply(s));
+                    consumer.accept((R) value);
                 } catch (Throwable t) {
                     if( t instanceof CliValidationException){
                         throw (CliValidationException)t;
                     }
-                    throw new CliValidationException(t.getMessage(), t);
+                    throw CliValidationException.stackless(t.getMessage(), t);
                 }
-            };
+            });
         }else{
-
-            this.consumer = s->{
-                R value;
+            setConverted(s->{
                 try {
-                    value = typeConverter.apply(s);
+                    return typeConverter.apply(s);
                 } catch (Throwable t) {
                     if( t instanceof CliValidationException){
                         throw (CliValidationException)t;
                     }
-                   throw new CliValidationException(t);
+                   throw CliValidationException.stackless(t);
                 }
+            }, v->{
+                R value = (R) v;
                 if(validator.test(value)){
                     try {
                         consumer.accept(value);
@@ -180,12 +210,12 @@ class BasicCliOption implements InternalCliOptionBuilder, BasicCliOptionBuilder
                         if( t instanceof CliValidationException){
                             throw (CliValidationException)t;
                         }
-                        throw new CliValidationException(t.getMessage(), t);
+                        throw CliValidationException.stackless(t.getMessage(), t);
                     }
                 }else{
-                    throw new CliValidationException("setter did not pass validation test");
+                    throw CliValidationException.stackless("setter did not pass validation test");
                 }
-            };
+            });
         }
         return this;
     }
@@ -203,24 +233,168 @@ class BasicCliOption implements InternalCliOptionBuilder, BasicCliOptionBuilder
     @Override
     public <T extends Throwable> BasicCliOption setToInt(ThrowableIntConsumer<T> consumer){
         Objects.requireNonNull(consumer);
-        this.consumer = s ->{
+        setFromCli((cli, id) ->{
             try {
-                consumer.accept(Integer.parseInt(s));
+                consumer.accept(cli.getIntValue(id));
             }catch(Throwable t){
-                throw new CliValidationException(t);
+                throw CliValidationException.stackless(t);
             }
-        };
+        });
         return this;
     }
 
-    public String getName() {
-        return name;
+    @Override
+    public <T extends Throwable> BasicCliOptionBuilder setToLong(ThrowableLongConsumer<T> consumer){
+        Objects.requireNonNull(consumer);
+        setFromCli((cli, id) ->{
+            try {
+                consumer.accept(cli.getLongValue(id));
+            }catch(Throwable t){
+                throw CliValidationException.stackless(t);
+            }
+        });
+        return this;
+    }
+
+    @Override
+    public <T extends Throwable> BasicCliOptionBuilder setToLong(ThrowableLongConsumer<T> consumer, LongPredicate validator) {
+        if(validator == null){
+            return setToLong(consumer);
+        }
+        setFromCli((cli, id)->{
+            long value;
+            try {
+                value = cli.getLongValue(id);
+            }catch(Throwable t){
+                throw CliValidationException.stackless("error parsing long value", t);
+            }
+            if(validator.test(value)){
+                try {
+                    consumer.accept(value);
+                }catch(Throwable t){
+                    if( t instanceof CliValidationException){
+                        throw (CliValidationException)t;
+                    }
+                    throw CliValidationException.stackless(t.getMessage(), t);
+                }
+            }else{
+                throw CliValidationException.stackless("setter did not pass validation test");
+            }
+        });
+        return this;
+    }
+
+    @Override
+    public <T extends Throwable> BasicCliOptionBuilder setToDouble(ThrowableDoubleConsumer<T> consumer){
+        Objects.requireNonNull(consumer);
+        setFromCli((cli, id) ->{
+            try {
+                consumer.accept(cli.getDoubleValue(id));
+            }catch(Throwable t){
+                throw CliValidationException.stackless(t);
+            }
+        });
+        return this;
+    }
+
+    @Override
+    public <T extends Throwable> BasicCliOptionBuilder setToDouble(ThrowableDoubleConsumer<T> consumer, DoublePredicate validator) {
+        if(validator == null){
+            return setToDouble(consumer);
+        }
+        setFromCli((cli, id)->{
+            double value;
+            try {
+                value = cli.getDoubleValue(id);
+            }catch(Throwable t){
+                throw CliValidationException.stackless("error parsing double value", t);
+            }
+            if(validator.test(value)){
+                try {
+                    consumer.accept(value);
+                }catch(Throwable t){
+                    if( t instanceof CliValidationException){
+                        throw (CliValidationException)t;
+                    }
+                    throw CliValidationException.stackless(t.getMessage(), t);
+                }
+            }else{
+                throw CliValidationException.stackless("setter did not pass validation test");
+            }
+        });
+        return this;
     }
 
-    public ThrowableConsumer<String, CliValidationException> getConsumer() {
-        return consumer;
+    @Override
+    public <T extends Throwable> BasicCliOptionBuilder setToBoolean(ThrowableBooleanConsumer<T> consumer){
+        Objects.requireNonNull(consumer);
+        setFromCli((cli, id) ->{
+            try {
+                consumer.accept(cli.getBooleanValue(id));
+            }catch(Throwable t){
+                throw CliValidationException.stackless(t);
+            }
+        });
+        return this;
     }
 
+    @Override
+    public <T extends Throwable> BasicCliOptionBuilder setToStream(ThrowableConsumer<Stream<String>, T> consumer) {
+        Objects.requireNonNull(consumer);
+        setFromCli((cli, id) -> {
+            try{
+                consumer.accept(cli.getValues(id).stream());
+            }catch(Throwable t){
+                if( t instanceof CliValidationException){
+                    throw (CliValidationException)t;
+                }
+                throw CliValidationException.stackless(t.getMessage(), t);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Use a setter that converts the value with the given converter, which is
+     * registered with the specification so the typed getters on {@link Cli} can reuse the converted value.
+     */
+    private void setConverted(ThrowableFunction<String, ?, CliValidationException> converter,
+                              ThrowableConsumer<Object, CliValidationException> consumer){
+        this.converter = converter;
+        this.setter = (cli, id) -> consumer.accept(cli.getConvertedValue(id, converter));
+    }
+
+    /**
+     * Use a setter that gets its value(s) straight from the {@link Cli},
+     * which keeps primitives unboxed.
+     */
+    private void setFromCli(OptionSetter setter){
+        this.converter = null;
+        this.setter = setter;
+    }
+
+    @Override
+    public BasicCliOptionBuilder setterDependsOn(String... optionNames) {
+        for(String name : optionNames){
+            Objects.requireNonNull(name);
+        }
+        this.setterDependencies = optionNames.clone();
+        return this;
+    }
+
+    @Override
+    public BasicCliOptionBuilder independentSetter(boolean isIndependent) {
+        if(isIndependent){
+            setterDependencies = new String[0];
+        }else if(setterDependencies != null && setterDependencies.length ==0){
+            setterDependencies = null;
+        }
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
 
     org.apache.commons.cli.Option asApacheOption(){
         return org.apache.commons.cli.Option.builder(name)
@@ -234,14 +408,14 @@ class BasicCliOption implements InternalCliOptionBuilder, BasicCliOptionBuilder
 
     @Override
     public InternalCliOption build() {
-        return new InternalBasicCliOption(asApacheOption(), consumer, this.isRequired, validators);
+        return new InternalBasicCliOption(asApacheOption(), converter, setter, setterDependencies, this.isRequired, CliValidator.copyOf(validators));
     }
 
     @Override
     public InternalCliOption build(boolean isRequired) {
         org.apache.commons.cli.Option option = asApacheOption();
         option.setRequired(isRequired);
-        return new InternalBasicCliOption(option, consumer, this.isRequired, validators);
+        return new InternalBasicCliOption(option, converter, setter, setterDependencies, this.isRequired, CliValidator.copyOf(validators));
     }
 
 
@@ -249,27 +423,35 @@ class BasicCliOption implements InternalCliOptionBuilder, BasicCliOptionBuilder
 
         private final org.apache.commons.cli.Option option;
 
-        private final ThrowableConsumer<String, CliValidationException> consumer;
+        private final ThrowableFunction<String, ?, CliValidationException> converter;
+
+        private final OptionSetter setter;
+
+        private final String[] setterDependencies;
 
         private final boolean isRequired;
 
         private final List<CliValidator> validators;
+        /**
+         * The option id in the specification, assigned when added to it.
+         */
+        private int id = -1;
 
         private InternalBasicCliOption(org.apache.commons.cli.Option option,
-                                       ThrowableConsumer<String, CliValidationException> consumer,
+                                       ThrowableFunction<String, ?, CliValidationException> converter,
+                                       OptionSetter setter,
+                                       String[] setterDependencies,
                                        boolean isRequired,
                                        List<CliValidator> validators
                                        ){
             this.option = option;
-            this.consumer = consumer;
+            this.converter = converter;
+            this.setter = setter;
+            this.setterDependencies = setterDependencies;
             this.isRequired = isRequired;
             this.validators = validators;
         }
 
-        @Override
-        public void addValidator(CliValidator validator) {
-            validators.add(validator);
-        }
         @Override
         public Optional<String> generateUsage(boolean force) {
             if(!force && !isRequired()){
@@ -285,10 +467,20 @@ class BasicCliOption implements InternalCliOptionBuilder, BasicCliOptionBuilder
 
         @Override
         public void addTo(InternalCliSpecification spec, Boolean forceIsRequired) {
-            if(forceIsRequired !=null){
-                option.setRequired(forceIsRequired);
+            id = spec.addOption(option, forceIsRequired ==null ? option.isRequired() : forceIsRequired, converter);
+        }
+
+        @Override
+        public int compileTo(ConstraintProgram.Builder program) {
+            return program.leaf(this, id, validators);
+        }
+
+        @Override
+        public void addSettersTo(SetterSchedule.Builder schedule) {
+            //an option without a setter has nothing to call
+            if(setter != null){
+                schedule.add(id, setterDependencies, this::fireConsumerIfNeeded);
             }
-            spec.getInternalOptions().addOption(option);
         }
 
         @Override
@@ -301,26 +493,31 @@ class BasicCliOption implements InternalCliOptionBuilder, BasicCliOptionBuilder
 
         @Override
         public boolean isPresent(Cli cli) {
-            return cli.hasOption(option.getOpt());
+            return cli.isPresent(id);
         }
 
         @Override
         public void validate(Cli cli) throws CliValidationException {
-            boolean isPresent = isPresent(cli);
-            if(option.isRequired() && !isPresent){
-                throw new CliValidationException(option.getOpt() + " is required");
-            }
-            if(isPresent){
+            checkConstraint(cli);
+            if(isPresent(cli)){
                 for(CliValidator v : validators){
                     v.validate(cli);
                 }
             }
         }
 
+        @Override
+        public void checkConstraint(Cli cli) throws CliValidationException {
+            if(!isPresent(cli) && cli.getInternalSpecification().isRequired(id)){
+                throw CliValidationException.stackless(option.getOpt() + " is required");
+            }
+        }
+
         @Override
         public void fireConsumerIfNeeded(Cli cli) throws CliValidationException {
-            if(isPresent(cli)){
-                consumer.accept(cli.getOptionValue(option.getOpt()));
+            //without a setter there is no need to decode the value now
+            if(setter != null && isPresent(cli)){
+                setter.set(cli, id);
             }
         }
 
@@ -24,6 +24,7 @@ import gov.nih.ncats.common.functions.ThrowableIntConsumer;
 
 import java.io.File;
 import java.util.function.*;
+import java.util.stream.Stream;
 
 /**
  * Builder that builds a single option.
@@ -52,6 +53,54 @@ public interface BasicCliOptionBuilder extends CliOptionBuilder{
 
     <T extends Throwable> BasicCliOptionBuilder setToInt(ThrowableIntConsumer<T> consumer, IntPredicate validator);
 
+    <T extends Throwable> BasicCliOptionBuilder setToLong(ThrowableLongConsumer<T> consumer);
+
+    <T extends Throwable> BasicCliOptionBuilder setToLong(ThrowableLongConsumer<T> consumer, LongPredicate validator);
+
+    <T extends Throwable> BasicCliOptionBuilder setToDouble(ThrowableDoubleConsumer<T> consumer);
+
+    <T extends Throwable> BasicCliOptionBuilder setToDouble(ThrowableDoubleConsumer<T> consumer, DoublePredicate validator);
+
+    /**
+     * Set a setter that gets the value as a boolean which must be {@code true} or {@code false}
+     * ignoring case; if this option is a flag, the setter gets {@code true} when the flag is present.
+     * @param consumer the consumer of the boolean value.
+     * @param <T> the Throwable type the consumer might throw.
+     * @return this
+     */
+    <T extends Throwable> BasicCliOptionBuilder setToBoolean(ThrowableBooleanConsumer<T> consumer);
+
+    /**
+     * Set a setter that gets every value of a repeated option, like {@code -i a -i b},
+     * as one stream in the order they were given.  The stream is over the parsed values
+     * themselves so they are not copied into a new collection first.
+     * @param consumer the consumer of the stream of values, only called if the option is present.
+     * @param <T> the Throwable type the consumer might throw.
+     * @return this
+     */
+    <T extends Throwable> BasicCliOptionBuilder setToStream(ThrowableConsumer<Stream<String>, T> consumer);
+
+    /**
+     * Declare that this option's setter needs the setters of the given options to be called first.
+     * If the specification has a {@link CliSpecification#setterExecutor(java.util.concurrent.Executor) setter executor}
+     * this setter may be called concurrently with any setter it doesn't depend on.
+     * By default, setters are called one at a time in the order the options were declared.
+     * @param optionNames the names of the options this setter depends on;
+     *                    options without setters are ignored.
+     * @return this
+     */
+    BasicCliOptionBuilder setterDependsOn(String... optionNames);
+
+    /**
+     * Declare that this option's setter doesn't depend on any other setter so it
+     * may be called concurrently with the others if the specification has a
+     * {@link CliSpecification#setterExecutor(java.util.concurrent.Executor) setter executor}.
+     * This is the same as {@code setterDependsOn()} with no names.
+     * @param isIndependent {@code true} if the setter is independent.
+     * @return this
+     */
+    BasicCliOptionBuilder independentSetter(boolean isIndependent);
+
     @Override
     BasicCliOptionBuilder setRequired(boolean isRequired);
     @Override
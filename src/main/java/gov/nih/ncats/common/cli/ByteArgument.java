@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import gov.nih.ncats.common.functions.ThrowableConsumer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A command line argument that is a range of ASCII bytes
+ * which are only turned into a String when something asks for it.
+ * Since each ASCII byte is one char, the parser can match option names
+ * directly against the bytes.
+ *
+ * Arguments that have non-ASCII UTF-8 bytes are decoded up front
+ * since their bytes don't line up with their chars.
+ */
+final class ByteArgument implements CharSequence {
+
+    private final ByteBuffer bytes;
+    private final int start;
+    private final int length;
+
+    private String string;
+
+    private ByteArgument(ByteBuffer bytes, int start, int length) {
+        this.bytes = bytes;
+        this.start = start;
+        this.length = length;
+    }
+
+    /**
+     * Split the remaining bytes of the given buffer on NUL bytes the way
+     * {@code /proc/<pid>/cmdline} is laid out; the last argument may or may not
+     * end with a NUL, so an empty last argument is only seen if it has one.
+     * The buffer's position is not changed.
+     * @param buffer the UTF-8 bytes of the arguments.
+     * @param consumer the consumer to give each argument to in order.
+     * @throws CliValidationException if thrown by the consumer.
+     */
+    static void splitOnNul(ByteBuffer buffer, ThrowableConsumer<CharSequence, CliValidationException> consumer) throws CliValidationException {
+        //absolute gets so position and limit changes made later by the caller don't matter
+        ByteBuffer bytes = buffer.duplicate();
+        int end = bytes.limit();
+        int argStart = bytes.position();
+        boolean ascii = true;
+        for(int i= argStart; i< end; i++){
+            byte b = bytes.get(i);
+            if(b == 0){
+                consumer.accept(of(bytes, argStart, i, ascii));
+                argStart = i +1;
+                ascii = true;
+            }else if(b < 0){
+                ascii = false;
+            }
+        }
+        if(argStart < end){
+            consumer.accept(of(bytes, argStart, end, ascii));
+        }
+    }
+
+    private static CharSequence of(ByteBuffer bytes, int start, int end, boolean ascii){
+        if(ascii){
+            return new ByteArgument(bytes, start, end - start);
+        }
+        return decode(bytes, start, end - start, true);
+    }
+
+    private static String decode(ByteBuffer bytes, int start, int length, boolean utf8){
+        byte[] array;
+        int offset;
+        if(bytes.hasArray()){
+            array = bytes.array();
+            offset = bytes.arrayOffset() + start;
+        }else{
+            array = new byte[length];
+            for(int i=0; i< length; i++){
+                array[i] = bytes.get(start + i);
+            }
+            offset = 0;
+        }
+        return new String(array, offset, length, utf8 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if(index < 0 || index >= length){
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+        return (char) bytes.get(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if(start < 0 || end > length || start > end){
+            throw new IndexOutOfBoundsException("start " + start + " end " + end);
+        }
+        return new ByteArgument(bytes, this.start + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        if(string == null){
+            //only ASCII so this is the cheap single byte decode
+            string = decode(bytes, start, length, false);
+        }
+        return string;
+    }
+}
@@ -18,19 +18,301 @@
 
 package gov.nih.ncats.common.cli;
 
+import gov.nih.ncats.common.functions.ThrowableFunction;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
 /**
  * A Parsed command line object that
  * lets the user programmatically see what
  * options were set and what those option values are.
+ * It can be shared between threads, the typed getters
+ * cache what they convert in a thread-safe way.
  */
 public class Cli {
 
-    private final org.apache.commons.cli.CommandLine delegate;
+    private static final byte INT = 1, LONG = 2, DOUBLE = 3, BOOLEAN = 4;
+    /**
+     * The type of a primitive slot that a thread is filling in.
+     */
+    private static final long CLAIMED = -1;
+
+    private final InternalCliSpecification spec;
+    /**
+     * Bitset of the ids of the options that were seen.
+     */
+    private final long[] present;
+    /**
+     * All the values of each option.
+     */
+    private final OptionValues values;
+    /**
+     * The value of each option indexed by option id after it was converted
+     * by its setter's converter, so each value is converted at most once.
+     * The setter reads its value from here so nothing else may write to it.
+     * Only created when first needed.
+     */
+    private volatile AtomicReferenceArray<Object> converted;
+    /**
+     * The value of each option indexed by option id after it was converted by
+     * one of the typed getters because the setter's converter makes a different type.
+     * Only created when first needed.
+     */
+    private volatile AtomicReferenceArray<Object> typed;
+    /**
+     * The parsed primitive value of each option so primitives are never boxed:
+     * element {@code 2*id} is which primitive type it is, 0 if it hasn't been parsed
+     * or {@link #CLAIMED} while a thread fills it in, and element {@code 2*id+1} is its long bits.  The type is written after the bits
+     * so a thread that sees the type sees the bits too.  Only created when first needed.
+     */
+    private volatile AtomicLongArray primitives;
+
+    /**
+     * Scratch space for the flags of each constraint when this Cli is validated
+     * so validating doesn't allocate anything.
+     */
+    private final byte[] constraintState;
 
     private String[] trailers;
-    Cli(org.apache.commons.cli.CommandLine cmd, String[] trailers){
-        this.delegate = cmd;
+
+    private final List<String> variadicTrailer;
+
+    Cli(InternalCliSpecification spec, long[] present, OptionValues values, String[] trailers){
+        this(spec, present, values, trailers, Collections.emptyList());
+    }
+
+    Cli(InternalCliSpecification spec, long[] present, OptionValues values, String[] trailers, List<String> variadicTrailer){
+        this.spec = spec;
+        this.present = present;
+        this.values = values;
         this.trailers = trailers;
+        this.variadicTrailer = variadicTrailer;
+        this.constraintState = new byte[spec.getConstraints().size()];
+    }
+
+    /**
+     * Create a new Cli from a commons-cli parse which is used
+     * when the specification is set to use the commons-cli parser.
+     */
+    static Cli fromCommandLine(InternalCliSpecification spec, org.apache.commons.cli.CommandLine cmd, String[] trailers, boolean hasVariadicTrailer){
+        int numberOfOptions = spec.getOptionCount();
+        long[] present = OptionBits.newBits(numberOfOptions);
+        OptionValues.Builder values = new OptionValues.Builder(numberOfOptions);
+        //a repeated option is in here once for each time it was given
+        for(org.apache.commons.cli.Option option : cmd.getOptions()){
+            int id = spec.resolve(option.getOpt());
+            OptionBits.set(present, id);
+            String[] optionValues = option.getValues();
+            if(optionValues != null){
+                for(String value : optionValues){
+                    values.add(id, value);
+                }
+            }
+        }
+        //the positional arguments, wherever they were, the same as the built-in parser
+        List<String> variadicTrailer = hasVariadicTrailer ? Collections.unmodifiableList(cmd.getArgList()) : Collections.emptyList();
+        return new Cli(spec, present, values.build(), trailers, variadicTrailer);
+    }
+
+    InternalCliSpecification getInternalSpecification(){
+        return spec;
+    }
+
+    boolean isPresent(int id){
+        return OptionBits.get(present, id);
+    }
+
+    /**
+     * Was at least one of the options with an id in the given range seen.
+     * @param from the first option id, inclusive.
+     * @param to the last option id, exclusive.
+     */
+    boolean isAnyPresent(int from, int to){
+        return OptionBits.anySet(present, from, to);
+    }
+
+    byte[] getConstraintState(){
+        return constraintState;
+    }
+
+    /**
+     * Get the first value of the given option.
+     */
+    String getValue(int id){
+        return values.get(id, 0);
+    }
+
+    List<String> getValues(int id){
+        return values.asList(id);
+    }
+
+    private boolean hasPrimitive(int id, byte type){
+        AtomicLongArray cache = primitives;
+        return cache != null && cache.get(2 * id) == type;
+    }
+
+    /**
+     * Get the bits of a primitive slot, only called after {@link #hasPrimitive(int, byte)}.
+     */
+    private long getPrimitive(int id){
+        return primitives.get(2 * id +1);
+    }
+
+    private void setPrimitive(int id, byte type, long bits){
+        AtomicLongArray cache = primitives;
+        if(cache == null){
+            synchronized (this){
+                cache = primitives;
+                if(cache == null){
+                    cache = new AtomicLongArray(2 * spec.getOptionCount());
+                    primitives = cache;
+                }
+            }
+        }
+        //only the first type asked for is kept so a slot's type and bits always go together
+        if(cache.compareAndSet(2 * id, 0, CLAIMED)){
+            cache.set(2 * id +1, bits);
+            cache.set(2 * id, type);
+        }
+    }
+
+    private AtomicReferenceArray<Object> getConvertedCache(){
+        AtomicReferenceArray<Object> cache = converted;
+        if(cache == null){
+            synchronized (this){
+                cache = converted;
+                if(cache == null){
+                    cache = new AtomicReferenceArray<>(spec.getOptionCount());
+                    converted = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    private AtomicReferenceArray<Object> getTypedCache(){
+        AtomicReferenceArray<Object> cache = typed;
+        if(cache == null){
+            synchronized (this){
+                cache = typed;
+                if(cache == null){
+                    cache = new AtomicReferenceArray<>(spec.getOptionCount());
+                    typed = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Get what the setter's converter made of the given option if it has been converted already.
+     */
+    private Object getCachedConvertedValue(int id){
+        AtomicReferenceArray<Object> cache = converted;
+        return cache == null ? null : cache.get(id);
+    }
+
+    /**
+     * Get the value of the given option as an int, only parsing it the first time.
+     * @throws NumberFormatException if the value is not an int.
+     */
+    int getIntValue(int id){
+        if(hasPrimitive(id, INT)){
+            return (int) getPrimitive(id);
+        }
+        int value = Integer.parseInt(getValue(id));
+        setPrimitive(id, INT, value);
+        return value;
+    }
+
+    /**
+     * Get the value of the given option as a long, only parsing it the first time.
+     * @throws NumberFormatException if the value is not a long.
+     */
+    long getLongValue(int id){
+        if(hasPrimitive(id, LONG)){
+            return getPrimitive(id);
+        }
+        long value = Long.parseLong(getValue(id));
+        setPrimitive(id, LONG, value);
+        return value;
+    }
+
+    /**
+     * Get the value of the given option as a double, only parsing it the first time.
+     * @throws NumberFormatException if the value is not a double.
+     */
+    double getDoubleValue(int id){
+        if(hasPrimitive(id, DOUBLE)){
+            return Double.longBitsToDouble(getPrimitive(id));
+        }
+        double value = PrimitiveParsing.parseDouble(getValue(id));
+        setPrimitive(id, DOUBLE, Double.doubleToRawLongBits(value));
+        return value;
+    }
+
+    /**
+     * Get the value of the given option as a boolean, only parsing it the first time.
+     * @throws IllegalArgumentException if the value is not a boolean.
+     */
+    boolean getBooleanValue(int id){
+        if(hasPrimitive(id, BOOLEAN)){
+            return getPrimitive(id) != 0;
+        }
+        boolean value = PrimitiveParsing.parseBoolean(getValue(id));
+        setPrimitive(id, BOOLEAN, value ? 1 : 0);
+        return value;
+    }
+
+    /**
+     * Get the value of the given option after it went through the given converter,
+     * only calling the converter the first time.  If two threads convert the
+     * same value at once they both get whichever value was cached first.
+     */
+    Object getConvertedValue(int id, ThrowableFunction<String, ?, CliValidationException> converter) throws CliValidationException {
+        AtomicReferenceArray<Object> cache = getConvertedCache();
+        Object value = cache.get(id);
+        if(value == null){
+            value = converter.apply(getValue(id));
+            if(!cache.compareAndSet(id, null, value)){
+                value = cache.get(id);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Get the converted value of the given present option as the given type.  If the option's
+     * setter converts to that type then its value is used, otherwise the String value is converted
+     * with the given conversion and kept apart from the setter's value so the setter
+     * still gets the type its converter makes.
+     */
+    private <T> T getConvertedValue(int id, Class<T> type, Function<String, T> conversion){
+        ThrowableFunction<String, ?, CliValidationException> converter = spec.getConverter(id);
+        Object value = null;
+        if(converter != null){
+            try {
+                value = getConvertedValue(id, converter);
+            } catch (CliValidationException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            }
+        }
+        if(type.isInstance(value)){
+            return type.cast(value);
+        }
+        AtomicReferenceArray<Object> cache = getTypedCache();
+        value = cache.get(id);
+        if(!type.isInstance(value)){
+            value = conversion.apply(getValue(id));
+            cache.set(id, value);
+        }
+        return type.cast(value);
     }
 
     /**
@@ -40,15 +322,123 @@ public class Cli {
      * @return {@code true} if this command line has the given option; {@code flase} otherwise.
      */
     public boolean hasOption(String optName) {
-        return delegate.hasOption(optName);
+        int id = spec.resolve(optName);
+        return id >=0 && isPresent(id);
     }
 
+    /**
+     * Get the value of the given option; if the option
+     * was repeated this is the first value.
+     * @param optName the option name to look for.
+     * @return the value or {@code null} if the option is not present or is a flag.
+     * @see #getOptionValues(String)
+     */
     public String getOptionValue(String optName){
-        return delegate.getOptionValue(optName);
+        int id = spec.resolve(optName);
+        return id < 0 ? null : getValue(id);
+    }
+
+    /**
+     * Get every value of the given option in the order they were given
+     * for an option that is repeated like {@code -i a -i b} or {@code i=a&i=b}.
+     * @param optName the option name to look for.
+     * @return an unmodifiable view of the values which is
+     * empty if the option is not present or is a flag.
+     */
+    public List<String> getOptionValues(String optName){
+        int id = spec.resolve(optName);
+        return id < 0 ? Collections.emptyList() : getValues(id);
+    }
+
+    /**
+     * Get the value of the given option as an int.  The value is only parsed
+     * the first time (or not at all if the option's setter already did) so
+     * calling this repeatedly is cheap.
+     * @param optName the option name to look for.
+     * @param defaultValue the value to return if the option is not present.
+     * @return the int value of the option or the default value.
+     * @throws NumberFormatException if the value is not an int.
+     */
+    public int getInt(String optName, int defaultValue){
+        int id = spec.resolve(optName);
+        if(id < 0 || !isPresent(id)){
+            return defaultValue;
+        }
+        if(spec.getConverter(id) == null){
+            return getIntValue(id);
+        }
+        Object value = getCachedConvertedValue(id);
+        if(value instanceof Integer){
+            return (Integer) value;
+        }
+        return getConvertedValue(id, Integer.class, Integer::valueOf);
+    }
+
+    /**
+     * Get the value of the given option as a long.  The value is only parsed
+     * the first time so calling this repeatedly is cheap.
+     * @param optName the option name to look for.
+     * @param defaultValue the value to return if the option is not present.
+     * @return the long value of the option or the default value.
+     * @throws NumberFormatException if the value is not a long.
+     */
+    public long getLong(String optName, long defaultValue){
+        int id = spec.resolve(optName);
+        if(id < 0 || !isPresent(id)){
+            return defaultValue;
+        }
+        if(spec.getConverter(id) == null){
+            return getLongValue(id);
+        }
+        Object value = getCachedConvertedValue(id);
+        if(value instanceof Long){
+            return (Long) value;
+        }
+        return getConvertedValue(id, Long.class, Long::valueOf);
+    }
+
+    /**
+     * Get the value of the given option as a {@link Path}.  The Path is only created
+     * the first time so calling this repeatedly is cheap.
+     * @param optName the option name to look for.
+     * @return the Path or {@code null} if the option is not present.
+     * @throws java.nio.file.InvalidPathException if the value is not a valid path.
+     */
+    public Path getPath(String optName){
+        int id = spec.resolve(optName);
+        if(id < 0 || !isPresent(id)){
+            return null;
+        }
+        Object value = getCachedConvertedValue(id);
+        if(value instanceof Path){
+            return (Path) value;
+        }
+        return getConvertedValue(id, Path.class, Paths::get);
+    }
+
+    /**
+     * Get the value of the given option as a constant of the given enum.  The
+     * constant is only looked up the first time so calling this repeatedly is cheap.
+     * @param optName the option name to look for.
+     * @param type the enum class.
+     * @param <E> the enum type.
+     * @return the enum constant with the same name as the value or {@code null} if the option is not present.
+     * @throws IllegalArgumentException if the enum has no constant with that name.
+     */
+    public <E extends Enum<E>> E getEnum(String optName, Class<E> type){
+        int id = spec.resolve(optName);
+        if(id < 0 || !isPresent(id)){
+            return null;
+        }
+        Object value = getCachedConvertedValue(id);
+        if(type.isInstance(value)){
+            return type.cast(value);
+        }
+        return getConvertedValue(id, type, s -> Enum.valueOf(type, s));
     }
 
     public boolean helpRequested(){
-        return delegate.hasOption("h") || delegate.hasOption("help");
+        return hasOption("h") || hasOption("help");
     }
     /**
      * Get the ith trailer.
@@ -66,4 +456,19 @@ public class Cli {
     public int getNumberOfTrailers() {
     	return trailers.length;
     }
+
+    /**
+     * Get the arguments of the variadic trailer, which are all the positional arguments
+     * on the command line before the other trailers.
+     * When the command line was parsed from a String array and the positional arguments
+     * are next to each other this is a view of that array so it must not be modified
+     * while this Cli is in use.
+     * @return an unmodifiable list of the arguments, which is empty if
+     * there is no variadic trailer.
+     *
+     * @see CliSpecification#variadicTrailer(VariadicTrailer)
+     */
+    public List<String> getVariadicTrailer() {
+        return variadicTrailer;
+    }
 }
@@ -21,13 +21,18 @@ package gov.nih.ncats.common.cli;
 import org.apache.commons.cli.*;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.net.URL;
-import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.Predicate;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * Specification describing the options for a given program.
@@ -38,13 +43,14 @@ import java.util.regex.Pattern;
 public class CliSpecification {
 
     private static final String NEW_LINE = String.format("%n");
-    private static final Pattern NEXT_WHITE_SPACE_PATTERN = Pattern.compile("\\s");
     /**
      * Create a new {@link CliSpecification} with a default help option
      * with the option name "-h" and long name "--help" along with  the given other options.
      * @param options varargs of other options to include in this specification;
      *                may be empty but no item in the list can be null.
      * @return a new {@link CliSpecification} will never be null.
+     * @throws IllegalArgumentException if more than one option has the same short name
+     * or the same long name, including the help option.
      */
     public static CliSpecification createWithHelp(CliOptionBuilder... options){
 
@@ -63,6 +69,8 @@ public class CliSpecification {
      * @param options varargs of options to include in this specification;
      *                may be empty but no item in the list can be null.
      * @return a new {@link CliSpecification} will never be null.
+     * @throws IllegalArgumentException if more than one option has the same short name
+     * or the same long name.
      */
     public static CliSpecification create(CliOptionBuilder... options){
          return new CliSpecification(group(options)
@@ -126,8 +134,21 @@ public class CliSpecification {
     public static CliOptionBuilder atLeastOneOf(CliOptionBuilder... options){
         return new AtLeastOneOfOption(options);
     }
-    private final Options options;
-    private   InternalCliOption internalCliOption;
+    private final InternalCliSpecification internalSpec;
+    private final InternalCliOption internalCliOption;
+
+    private boolean useCommonsCliParser;
+
+    private boolean expandArgFiles;
+
+    private final List<CliValidator> validators = new ArrayList<>();
+    /**
+     * The last compiled snapshot of this specification, cleared
+     * whenever something that changes how we parse is modified.
+     * Since CompiledCliSpecification only has final fields it is safe
+     * to publish without synchronization.
+     */
+    private CompiledCliSpecification compiled;
 
     private String programName;
     private String description;
@@ -135,8 +156,23 @@ public class CliSpecification {
     private String footer;
 
     private List<Trailer> trailers = new ArrayList<>();
+
+    private VariadicTrailer variadicTrailer;
+
+    private Executor setterExecutor;
+
+    private ParseListener listener;
+
+    private int listenerSampleRate = 1;
     
     private Set<UsageExample> examples = new LinkedHashSet<>();
+    /**
+     * The rendered usage by format, cleared whenever something that is
+     * printed in the usage is modified.
+     */
+    private final ConcurrentMap<UsageFormat, RenderedUsage> usageCache = new ConcurrentHashMap<>();
+
+    private OptionLayout optionLayout;
     /**
      * Add an additional validation rule to this overall specification.
      * @param validationRule A {@link Predicate} function that passes in the
@@ -150,7 +186,8 @@ public class CliSpecification {
      * @throws NullPointerException if validationRule is null.
      */
     public CliSpecification addValidation(Predicate<Cli> validationRule, String errorMessage) {
-        internalCliOption.addValidator(new CliValidator(validationRule, errorMessage));
+        validators.add(new CliValidator(validationRule, errorMessage));
+        compiled = null;
         return this;
     }
     /**
@@ -165,7 +202,8 @@ public class CliSpecification {
      * @throws NullPointerException if either parameter is null.
      */
     public CliSpecification addValidation(Predicate<Cli> validationRule, Function<Cli, String> errorMessageFunction) {
-        internalCliOption.addValidator(new CliValidator(validationRule, errorMessageFunction));
+        validators.add(new CliValidator(validationRule, errorMessageFunction));
+        compiled = null;
         return this;
     }
 
@@ -180,6 +218,7 @@ public class CliSpecification {
      */
     public CliSpecification example(String options, String explanation){
         this.examples.add(new UsageExample(options, explanation));
+        usageCache.clear();
         return this;
     }
     /**
@@ -191,13 +230,87 @@ public class CliSpecification {
      */
     public CliSpecification footer(String footer){
         this.footer = footer;
+        usageCache.clear();
         return this;
     }
     
     public CliSpecification trailer(Trailer trailer) {
     	this.trailers.add(Objects.requireNonNull(trailer));
+    	compiled = null;
+    	usageCache.clear();
     	return this;
     }
+
+    /**
+     * Sets the executor to call option setters on so setters that are
+     * {@link BasicCliOptionBuilder#independentSetter(boolean) independent} or
+     * {@link BasicCliOptionBuilder#setterDependsOn(String...) only depend on other setters}
+     * can be called concurrently.  The parse waits for all the setters to finish
+     * so the executor should not be one that only has the parsing thread.
+     *
+     * @param setterExecutor the executor to use,
+     *                   if {@code null}, then setters are called on the parsing thread.
+     * @return this.
+     */
+    public CliSpecification setterExecutor(Executor setterExecutor) {
+        this.setterExecutor = setterExecutor;
+        compiled = null;
+        return this;
+    }
+
+    /**
+     * Sets the listener that is told how long each phase of every parse takes,
+     * which validations passed and which setters were called.
+     *
+     * @param listener the listener,
+     *                   if {@code null}, then nothing is timed.
+     * @return this.
+     */
+    public CliSpecification parseListener(ParseListener listener) {
+        return parseListener(listener, 1);
+    }
+
+    /**
+     * Sets the listener that is told how long each phase of a randomly chosen
+     * 1 in {@code sampleRate} parses takes, which validations passed and which setters were called,
+     * so it can be left on under load.  The other parses cost the same as
+     * if there wasn't a listener.
+     *
+     * @param listener the listener,
+     *                   if {@code null}, then nothing is timed.
+     * @param sampleRate how many parses there are for each one the listener is told about;
+     *                   must be positive.
+     * @return this.
+     * @throws IllegalArgumentException if sampleRate is not positive.
+     */
+    public CliSpecification parseListener(ParseListener listener, int sampleRate) {
+        if(sampleRate < 1){
+            throw new IllegalArgumentException("sample rate must be positive: " + sampleRate);
+        }
+        this.listener = listener;
+        this.listenerSampleRate = sampleRate;
+        compiled = null;
+        return this;
+    }
+
+    /**
+     * Sets the trailer that takes a variable number of arguments;
+     * it gets every positional argument, that is every argument that isn't an option
+     * or an option's value, in the order they are given wherever they are
+     * on the command line, so {@code a -x 1 b c} gives {@code a, b, c}.
+     * Every argument after a {@code --} is positional.  The last arguments
+     * still go to the other trailers, if there are any.
+     *
+     * @param variadicTrailer the variadic trailer,
+     *                   if {@code null}, then there isn't one.
+     * @return this.
+     */
+    public CliSpecification variadicTrailer(VariadicTrailer variadicTrailer) {
+        this.variadicTrailer = variadicTrailer;
+        compiled = null;
+        usageCache.clear();
+        return this;
+    }
     
     /**
      * Sets a description to this usage to describe what this program
@@ -208,6 +321,7 @@ public class CliSpecification {
      */
     public CliSpecification description(String description){
         this.description = description;
+        usageCache.clear();
         return this;
     }
     /**
@@ -218,20 +332,83 @@ public class CliSpecification {
      */
     public CliSpecification programName(String programName){
         this.programName = programName;
+        compiled = null;
+        usageCache.clear();
+        return this;
+    }
+
+    /**
+     * Sets whether this specification should use the Apache commons-cli
+     * {@code DefaultParser} to parse the command line instead of the built-in parser.
+     * The parser is used for every kind of input: argument arrays, URL queries and NUL separated bytes,
+     * which are turned into an argument array first for commons-cli.
+     * Both parsers interpret the command line the same way, the commons-cli
+     * parser is kept for compatibility, except that:
+     * <ul>
+     *     <li>when a required option is missing commons-cli reports {@code Missing required option: x}
+     *     while the built-in parser reports the same message as any other failed validation.</li>
+     *     <li>in a URL query the built-in parser takes a value that looks like an option, like {@code o=-v},
+     *     as the value while commons-cli sees an option.</li>
+     *     <li>a {@link ParseSession} always checks its tokens with the built-in parser;
+     *     only its {@link ParseSession#toParseResult()} uses the commons-cli parser.</li>
+     * </ul>
+     * By default the built-in parser is used.
+     * @param useCommonsCliParser {@code true} to use the commons-cli parser;
+     *                           {@code false} to use the built-in parser.
+     * @return this.
+     */
+    public CliSpecification commonsCliParser(boolean useCommonsCliParser){
+        this.useCommonsCliParser = useCommonsCliParser;
+        compiled = null;
+        return this;
+    }
+
+    /**
+     * Sets whether an argument of the form {@code @path} should be replaced by
+     * the arguments in that file, which gets around the operating system's limit
+     * on the length of a command line.  The file is streamed so it can be of any size.
+     * Arguments in the file are separated by whitespace and can be quoted with single or double quotes,
+     * a {@code #} starts a comment until the end of the line.  An argument that starts with
+     * {@code @@} is passed on without the first {@code @}.
+     * URL parameters are never treated as argument files.  By default argument files are not expanded.
+     * @param expandArgFiles {@code true} to expand argument files;
+     *                       {@code false} to treat {@code @path} as a regular argument.
+     * @return this.
+     */
+    public CliSpecification argFiles(boolean expandArgFiles){
+        this.expandArgFiles = expandArgFiles;
+        compiled = null;
         return this;
     }
 
     private CliSpecification(CliOptionBuilder options ){
-        InternalCliSpecification internalSpec = new InternalCliSpecification();
+        internalSpec = new InternalCliSpecification();
 
         internalCliOption = ((InternalCliOptionBuilder) options).build();
         internalCliOption.addTo(internalSpec, null);
+        internalSpec.buildIndex();
+        internalSpec.compileConstraints(internalCliOption);
+        internalSpec.compileSetters(internalCliOption);
+    }
 
-        this.options = internalSpec.getInternalOptions();
 
+    /**
+     * Compile this specification into an immutable {@link CompiledCliSpecification}
+     * that can be safely shared between threads that parse concurrently.
+     * Any changes made to this specification afterwards are not seen by the returned object.
+     *
+     * @return a {@link CompiledCliSpecification} will never be null.
+     */
+    public CompiledCliSpecification compile(){
+        CompiledCliSpecification current = compiled;
+        if(current == null){
+            current = new CompiledCliSpecification(internalSpec, internalCliOption, validators, trailers, variadicTrailer, setterExecutor, useCommonsCliParser, expandArgFiles,
+                                                     listener, listenerSampleRate, programName);
+            compiled = current;
+        }
+        return current;
     }
 
-
     /**
      * Parse the query parameters as a urlencoded command line arguments.
      * It is a assumed that {@code key=value} means {@code -key value}.
@@ -242,106 +419,367 @@ public class CliSpecification {
      * @throws CliValidationException if the url parameters violate this {@link CliSpecification}.
      */
     public Cli parse(URL url) throws IOException {
-        List<String> args = new ArrayList<>();
-
-        String[] split = url.getQuery().split("&");
-        if(split !=null){
-            for(String s : split){
-                int index = s.indexOf('=');
-                if(index >0){
-                    args.add("-"+ URLDecoder.decode( s.substring(0, index), "UTF-8"));
-                    args.add(URLDecoder.decode( s.substring(index+1, s.length()), "UTF-8"));
-                }else{
-                    args.add("-"+ URLDecoder.decode( s, "UTF-8"));
-                }
-            }
-        }
+        return compile().parse(url);
+    }
 
-        return parse(args.toArray(new String[args.size()]));
+    /**
+     * Try to parse the query parameters as a urlencoded command line arguments
+     * without throwing an exception if they are invalid.
+     * It is a assumed that {@code key=value} means {@code -key value}.
+     *
+     * @param url the {@link URL} to parse; can not e null.
+     * @return a new {@link ParseResult} will never be null.
+     *
+     * @see CompiledCliSpecification#tryParse(URL)
+     */
+    public ParseResult tryParse(URL url) {
+        return compile().tryParse(url);
+    }
+
+    /**
+     * Parse the query parameters as a urlencoded command line arguments.
+     * It is a assumed that {@code key=value} means {@code -key value}.
+     *
+     * @param uri the {@link URI} to parse; can not e null.
+     * @return a new {@link Cli} of the parsed options in the URI parameters.
+     * @throws CliValidationException if the query can not be decoded or
+     * the parameters violate this {@link CliSpecification}.
+     *
+     * @see CompiledCliSpecification#parse(URI)
+     */
+    public Cli parse(URI uri) throws CliValidationException {
+        return compile().parse(uri);
+    }
+
+    /**
+     * Parse a urlencoded query string as command line arguments.
+     * It is a assumed that {@code key=value} means {@code -key value}.
+     *
+     * @param query the raw query without the leading {@code ?};
+     *              if null, then the query is empty.
+     * @return a new {@link Cli} of the parsed options in the query.
+     * @throws CliValidationException if the query can not be decoded or
+     * the parameters violate this {@link CliSpecification}.
+     *
+     * @see CompiledCliSpecification#parse(CharSequence)
+     */
+    public Cli parse(CharSequence query) throws CliValidationException {
+        return compile().parse(query);
+    }
+
+    /**
+     * Try to parse the query parameters as a urlencoded command line arguments
+     * without throwing an exception if they are invalid.
+     *
+     * @param uri the {@link URI} to parse; can not e null.
+     * @return a new {@link ParseResult} will never be null.
+     *
+     * @see CompiledCliSpecification#tryParse(URI)
+     */
+    public ParseResult tryParse(URI uri) {
+        return compile().tryParse(uri);
+    }
+
+    /**
+     * Try to parse a urlencoded query string as command line arguments
+     * without throwing an exception if they are invalid.
+     *
+     * @param query the raw query without the leading {@code ?};
+     *              if null, then the query is empty.
+     * @return a new {@link ParseResult} will never be null.
+     *
+     * @see CompiledCliSpecification#tryParse(CharSequence)
+     */
+    public ParseResult tryParse(CharSequence query) {
+        return compile().tryParse(query);
+    }
+
+    /**
+     * Parse a NUL separated command line, in the same layout as {@code /proc/<pid>/cmdline}.
+     * Option values are only decoded when they are asked for, so the bytes
+     * must not be modified while the returned {@link Cli} is in use.
+     * @param bytes the UTF-8 bytes from the buffer's position to its limit are parsed;
+     *              the buffer's position is not changed.
+     * @return a new {@link Cli} of the parsed options.
+     * @throws CliValidationException if the arguments violate this {@link CliSpecification}.
+     *
+     * @see CompiledCliSpecification#parse(ByteBuffer)
+     */
+    public Cli parse(ByteBuffer bytes) throws CliValidationException {
+        return compile().parse(bytes);
+    }
+
+    /**
+     * Parse a NUL separated command line, in the same layout as {@code /proc/<pid>/cmdline}.
+     * @param bytes the array that contains the UTF-8 bytes of the command line.
+     * @param offset the offset into the array where the command line starts.
+     * @param length the number of bytes in the command line.
+     * @return a new {@link Cli} of the parsed options.
+     * @throws CliValidationException if the arguments violate this {@link CliSpecification}.
+     *
+     * @see CompiledCliSpecification#parse(byte[], int, int)
+     */
+    public Cli parse(byte[] bytes, int offset, int length) throws CliValidationException {
+        return compile().parse(bytes, offset, length);
+    }
+
+    /**
+     * Try to parse a NUL separated command line without throwing an exception if it is invalid.
+     * @param bytes the UTF-8 bytes from the buffer's position to its limit are parsed.
+     * @return a new {@link ParseResult} will never be null.
+     *
+     * @see CompiledCliSpecification#tryParse(ByteBuffer)
+     */
+    public ParseResult tryParse(ByteBuffer bytes) {
+        return compile().tryParse(bytes);
+    }
+
+    /**
+     * Try to parse a NUL separated command line without throwing an exception if it is invalid.
+     * @param bytes the array that contains the UTF-8 bytes of the command line.
+     * @param offset the offset into the array where the command line starts.
+     * @param length the number of bytes in the command line.
+     * @return a new {@link ParseResult} will never be null.
+     *
+     * @see CompiledCliSpecification#tryParse(byte[], int, int)
+     */
+    public ParseResult tryParse(byte[] bytes, int offset, int length) {
+        return compile().tryParse(bytes, offset, length);
     }
     /**
      * Generate the Usage String of this specification.
-     * @return a new String will never be null.
+     * The usage is only rendered the first time and reused
+     * until something printed in it is changed.
+     * @return a String will never be null.
      */
     public String generateUsage(){
+        return generateUsage(UsageFormat.DEFAULT);
+    }
 
-        //this code is based on the printHelp and printUsage commands in apache.cli.HelpFormatter
-        //with additions for handling the groups
+    /**
+     * Generate the Usage String of this specification wrapped
+     * to the given width.
+     * @param width the maximum number of characters on each line; must be positive.
+     * @return a String will never be null.
+     * @throws IllegalArgumentException if width is not positive.
+     *
+     * @see #generateUsage(UsageFormat)
+     */
+    public String generateUsage(int width){
+        return generateUsage(UsageFormat.DEFAULT.width(width));
+    }
 
-        //width, left and desc padding use defaults from HelpFormatter
-        int width = 120;
-        int leftPadding = 1;
-        int descPadding= 3;
+    /**
+     * Generate the Usage String of this specification laid out
+     * in the given format.
+     * The usage is only rendered the first time for each format and reused
+     * until something printed in it is changed.
+     * @param format the {@link UsageFormat} to use; can not be null.
+     * @return a String will never be null.
+     * @throws NullPointerException if format is null.
+     */
+    public String generateUsage(UsageFormat format){
+        return getRenderedUsage(format).text;
+    }
+
+    /**
+     * Get the UTF-8 bytes of {@link #generateUsage()}, which are
+     * encoded once and shared so they can be written out without copying.
+     * @return a new read-only ByteBuffer positioned at the start of the usage;
+     * will never be null.
+     */
+    public ByteBuffer generateUsageUtf8(){
+        return generateUsageUtf8(UsageFormat.DEFAULT);
+    }
+
+    /**
+     * Get the UTF-8 bytes of {@link #generateUsage(int)}, which are
+     * encoded once and shared so they can be written out without copying.
+     * @param width the maximum number of characters on each line; must be positive.
+     * @return a new read-only ByteBuffer positioned at the start of the usage;
+     * will never be null.
+     * @throws IllegalArgumentException if width is not positive.
+     */
+    public ByteBuffer generateUsageUtf8(int width){
+        return generateUsageUtf8(UsageFormat.DEFAULT.width(width));
+    }
+
+    /**
+     * Get the UTF-8 bytes of {@link #generateUsage(UsageFormat)}, which are
+     * encoded once and shared so they can be written out without copying.
+     * @param format the {@link UsageFormat} to use; can not be null.
+     * @return a new read-only ByteBuffer positioned at the start of the usage;
+     * will never be null.
+     * @throws NullPointerException if format is null.
+     */
+    public ByteBuffer generateUsageUtf8(UsageFormat format){
+        return ByteBuffer.wrap(getRenderedUsage(format).utf8).asReadOnlyBuffer();
+    }
+
+    /**
+     * Write the usage of this specification to the given Appendable.
+     * Unless the usage in this format has already been generated, it is rendered
+     * a section at a time and each option is written as soon as it is rendered
+     * so the whole text is never in memory.  To write to a channel,
+     * wrap it in a Writer using {@link java.nio.channels.Channels#newWriter(java.nio.channels.WritableByteChannel, String)}.
+     * @param out the Appendable to write to such as a {@link java.io.PrintStream} or {@link java.io.Writer};
+     *            can not be null.
+     * @param format the {@link UsageFormat} to use; can not be null.
+     * @throws IOException if there is a problem writing to out.
+     * @throws NullPointerException if either parameter is null.
+     */
+    public void writeUsage(Appendable out, UsageFormat format) throws IOException{
+        Objects.requireNonNull(out);
+        RenderedUsage usage = usageCache.get(format);
+        if(usage != null){
+            out.append(usage.text);
+            return;
+        }
+        renderUsage(format, new StringBuilder(), out);
+    }
+
+    /**
+     * Write the help of a single option, the way it looks in the
+     * options section of the usage, to the given Appendable.
+     * Only that option is rendered.
+     * @param out the Appendable to write to; can not be null.
+     * @param name the short or long name of the option.
+     * @param format the {@link UsageFormat} to use; can not be null.
+     * @throws IOException if there is a problem writing to out.
+     * @throws IllegalArgumentException if there is no option with that name.
+     * @throws NullPointerException if any parameter is null.
+     */
+    public void writeOptionHelp(Appendable out, String name, UsageFormat format) throws IOException{
+        Objects.requireNonNull(out);
+        int id = internalSpec.resolve(name);
+        if(id == OptionNameIndex.NONE){
+            throw new IllegalArgumentException("unknown option: " + name);
+        }
+        Option option = internalSpec.getOption(id);
+        StringBuilder builder = new StringBuilder();
+        renderOption(builder, new StringBuilder(), option, format, getOptionLayout().maxPrefixLength);
+        builder.append(NEW_LINE);
+        out.append(builder);
+    }
+
+    /**
+     * Write the help of a single option using the {@link UsageFormat#DEFAULT default format}
+     * to the given Appendable.
+     * @param out the Appendable to write to; can not be null.
+     * @param name the short or long name of the option.
+     * @throws IOException if there is a problem writing to out.
+     * @throws IllegalArgumentException if there is no option with that name.
+     *
+     * @see #writeOptionHelp(Appendable, String, UsageFormat)
+     */
+    public void writeOptionHelp(Appendable out, String name) throws IOException{
+        writeOptionHelp(out, name, UsageFormat.DEFAULT);
+    }
+
+    private RenderedUsage getRenderedUsage(UsageFormat format){
+        RenderedUsage usage = usageCache.get(format);
+        if(usage == null){
+            //two threads may both render it but they render the same text
+            StringBuilder builder = new StringBuilder();
+            try {
+                renderUsage(format, builder, null);
+            } catch (IOException e) {
+                //can't happen since nothing is written out
+                throw new UncheckedIOException(e);
+            }
+            usage = new RenderedUsage(builder.toString());
+            usageCache.put(format, usage);
+        }
+        return usage;
+    }
+
+    /**
+     * The usage text along with its UTF-8 bytes.
+     */
+    private static final class RenderedUsage{
+        private final String text;
+        private final byte[] utf8;
+
+        RenderedUsage(String text){
+            this.text = text;
+            this.utf8 = text.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * The options in the order they are printed along with the length
+     * of the longest option name, not counting the left padding.
+     * The options never change after this specification is made so this only needs to be computed once.
+     */
+    private static final class OptionLayout{
+        private final List<Option> sortedOptions;
+        private final int maxPrefixLength;
+
+        OptionLayout(Collection<Option> options){
+            List<Option> opList = new ArrayList<>(options);
+            Collections.sort(opList, DEFAULT_OPTION_COMPARATOR.INSTANCE);
+            int max = 0;
+            for(Option option : opList){
+                max = Math.max(max, prefixLength(option));
+            }
+            this.sortedOptions = Collections.unmodifiableList(opList);
+            this.maxPrefixLength = max;
+        }
+    }
 
+    private OptionLayout getOptionLayout(){
+        //only has final fields so safe to publish without synchronization
+        OptionLayout layout = optionLayout;
+        if(layout == null){
+            layout = new OptionLayout(internalSpec.getOptions());
+            optionLayout = layout;
+        }
+        return layout;
+    }
 
+    /**
+     * Render the usage into the given builder.
+     * @param out if not null, then each section is written to out and the builder is cleared
+     *            so the builder only ever has one section in it.
+     */
+    private void renderUsage(UsageFormat format, StringBuilder builder, Appendable out) throws IOException{
 
-        String lpad = createPadding(leftPadding);
-        String dpad = createPadding(descPadding);
+        //this code is based on the printHelp and printUsage commands in apache.cli.HelpFormatter
+        //with additions for handling the groups
+        int width = format.getWidth();
+        int descPadding= format.getDescPadding();
 
-        StringBuilder builder = new StringBuilder("usage: ");
+        builder.append("usage: ");
         if(programName !=null) {
             builder.append(programName).append(" ");
         }
         StringBuilder usagebuilder = new StringBuilder();
         internalCliOption.generateUsage(false).ifPresent(usagebuilder::append);
 
-        renderWrappedText(builder, width, builder.length(), usagebuilder.toString());
+        TextWrapper.wrap(builder, width, builder.length(), usagebuilder);
 
         builder.append(NEW_LINE);
 
         if(description !=null){
-            renderWrappedText(builder, width, 0, description);
+            TextWrapper.wrap(builder, width, 0, description);
             builder.append(NEW_LINE);
         }
 
-        
-        List<Option> opList = new ArrayList<>(options.getOptions());
+        OptionLayout layout = getOptionLayout();
+        List<Option> opList = layout.sortedOptions;
         if(!opList.isEmpty()){
             builder.append(NEW_LINE).append("options:").append(NEW_LINE);
         }
-        List<StringBuilder> prefixList = new ArrayList<>();
-        int max= 0;
-
-        Collections.sort(opList, DEFAULT_OPTION_COMPARATOR.INSTANCE);
-
-        for(Option option : opList){
-            StringBuilder optBuf = new StringBuilder();
-
-            optBuf.append(lpad).append("    -").append(option.getOpt());
-            if(option.hasLongOpt()){
-                optBuf.append(",--").append(option.getLongOpt());
-            }
-            if(option.hasArg()){
-                if(option.hasArgName()){
-                    optBuf.append(" <").append(option.getArgName()).append('>');
-                }else{
-                    optBuf.append(' ');
-                }
-            }
-            prefixList.add(optBuf);
-            max = Math.max(optBuf.length(), max);
-        }
+        flushSection(builder, out);
 
+        StringBuilder optBuf = new StringBuilder();
         for(int x = 0; x<opList.size(); x++){
-            Option option = opList.get(x);
-            StringBuilder optBuf= prefixList.get(x);
-
-            if(optBuf.length() < max){
-                optBuf.append(createPadding(max - optBuf.length()));
-            }
-            optBuf.append(dpad);
-
-            int nextLineTabStop = max + descPadding;
-
-            if(option.getDescription() !=null){
-                optBuf.append(option.getDescription());
-            }
-
-            renderWrappedText(builder, width, nextLineTabStop, optBuf.toString());
+            renderOption(builder, optBuf, opList.get(x), format, layout.maxPrefixLength);
 
             if(x < opList.size()-1){
                 builder.append(NEW_LINE).append(NEW_LINE);
             }
+            flushSection(builder, out);
         }
 
 
@@ -350,15 +788,19 @@ public class CliSpecification {
                     .append("Examples:").append(NEW_LINE);
 
             for(UsageExample example : examples){
-                builder.append(NEW_LINE).append(lpad).append("     $");
+                builder.append(NEW_LINE);
+                appendPadding(builder, format.getLeftPadding());
+                builder.append("     $");
                 if(programName !=null) {
                     builder.append(programName).append(' ');
                 }
 
-                renderWrappedText(builder, width, descPadding, example.getUsage());
-                builder.append(NEW_LINE).append(NEW_LINE).append(dpad);
-                renderWrappedText(builder, width, descPadding, example.getDescription());
+                TextWrapper.wrap(builder, width, descPadding, example.getUsage());
+                builder.append(NEW_LINE).append(NEW_LINE);
+                appendPadding(builder, descPadding);
+                TextWrapper.wrap(builder, width, descPadding, example.getDescription());
                 builder.append(NEW_LINE);
+                flushSection(builder, out);
             }
 
         }
@@ -366,40 +808,65 @@ public class CliSpecification {
 
         if(footer !=null){
             builder.append(NEW_LINE);
-            renderWrappedText(builder, width, 0, footer);
+            TextWrapper.wrap(builder, width, 0, footer);
         }
         //add new line at the end no matter what
         builder.append(NEW_LINE);
-
-        return builder.toString();
-
+        flushSection(builder, out);
     }
 
-    private void renderWrappedText(StringBuilder builder, int width,
-                                   int nextLineTabStop, String optionString) {
-
-        String text = optionString;
-        int pos = findWrapPos(text, width,0);
-        if(pos == -1){
-            builder.append(rTrim(text));
-            return;
+    private static void flushSection(StringBuilder builder, Appendable out) throws IOException{
+        if(out != null){
+            out.append(builder);
+            builder.setLength(0);
         }
+    }
 
-        builder.append(rTrim(text.substring(0, pos))).append(NEW_LINE);
+    /**
+     * Render the help of one option into the builder.
+     * @param optBuf a scratch builder to put the unwrapped text in.
+     * @param maxPrefixLength the length of the longest option name so the descriptions line up.
+     */
+    private static void renderOption(StringBuilder builder, StringBuilder optBuf, Option option,
+                                     UsageFormat format, int maxPrefixLength){
+        optBuf.setLength(0);
+        appendPadding(optBuf, format.getLeftPadding());
+        optBuf.append("    -").append(option.getOpt());
+        if(option.hasLongOpt()){
+            optBuf.append(",--").append(option.getLongOpt());
+        }
+        if(option.hasArg()){
+            if(option.hasArgName()){
+                optBuf.append(" <").append(option.getArgName()).append('>');
+            }else{
+                optBuf.append(' ');
+            }
+        }
+        int max = format.getLeftPadding() + maxPrefixLength;
+        appendPadding(optBuf, max - optBuf.length());
+        appendPadding(optBuf, format.getDescPadding());
 
-        //the rest of the lines of the text have to be
-        String padding = createPadding(nextLineTabStop);
+        if(option.getDescription() !=null){
+            optBuf.append(option.getDescription());
+        }
 
+        TextWrapper.wrap(builder, format.getWidth(), max + format.getDescPadding(), optBuf);
+    }
 
-        while(true){
-            text = text.substring(pos).trim();
-            pos = findWrapPos(text, width, nextLineTabStop);
-            if(pos == -1){
-                builder.append(padding).append(text);
-                return;
-            }
-            builder.append(padding).append(rTrim(text.substring(0, pos))).append(NEW_LINE);
+    /**
+     * The length of the option name part of an option's help
+     * rendered by {@link #renderOption(StringBuilder, StringBuilder, Option, UsageFormat, int)}
+     * not counting the left padding.
+     */
+    private static int prefixLength(Option option){
+        int length = "    -".length() + option.getOpt().length();
+        if(option.hasLongOpt()){
+            length += ",--".length() + option.getLongOpt().length();
+        }
+        if(option.hasArg()){
+            length += option.hasArgName() ? " <>".length() + option.getArgName().length() : 1;
         }
+        return length;
     }
 
     /**
@@ -425,42 +892,10 @@ public class CliSpecification {
 //    }
 
 
-    private String rTrim(String buf) {
-        int pos = buf.length();
-        while( (pos > 0) && Character.isWhitespace(buf.charAt(pos -1))){
-            --pos;
-        }
-        return buf.substring(0, pos);
-    }
-
-
-    private int findWrapPos(String text, int width, int startPos) {
-        if(text.length() < width){
-            return -1;
-        }
-
-        String subString = new StringBuilder(text.substring(0, width))
-                .reverse()
-                .toString();
-
-        Matcher matcher = NEXT_WHITE_SPACE_PATTERN.matcher(subString);
-        if(matcher.find()){
-            //our string is reversed so flip it
-            int foundPosition= matcher.start();
-            return subString.length() - foundPosition;
-        }
-        //no more whitespace
-        return -1;
-
-    }
-
-
-    private String createPadding(int length) {
-        StringBuilder builder = new StringBuilder(length);
-        for(int i =0; i<length; i++	){
+    private static void appendPadding(StringBuilder builder, int length) {
+        for(int i =0; i<length; i++){
             builder.append(' ');
         }
-        return builder.toString();
     }
     /**
      * Is one of these passed in arguments -h, --h, -help or --help.
@@ -469,14 +904,7 @@ public class CliSpecification {
      * is "-h", "--h", "-help" or "--help"; {@code false} otherwise
      */
     public boolean helpRequested(String[] args){
-        for(int i=0; i< args.length; i++){
-            String v = args[i];
-            if("-h".equals(v) || "--help".equals(v) ||"--h".equals(v) || "-help".equals(v)){
-                return true;
-            }
-        }
-        return false;
-
+        return compile().helpRequested(args);
     }
 
     /**
@@ -486,38 +914,81 @@ public class CliSpecification {
      * @throws CliValidationException if the arguments violate this {@link CliSpecification}.
      */
     public Cli parse(String[] args) throws CliValidationException {
+        return compile().parse(args);
+    }
 
-    	String[] argsToUse;
-    	String[] actualTrailers;
-    	if(trailers.isEmpty()) {
-    		argsToUse = args;
-    		actualTrailers = new String[0];
-    	}else {
-    		//assume trailers are the last fields
-    		if(args.length < trailers.size()) {
-    			throw new CliValidationException("not enough arguments");
-    		}
-    		argsToUse = Arrays.copyOf(args, args.length - trailers.size());
-    		actualTrailers = Arrays.copyOfRange(args, args.length-trailers.size(), args.length);
-    	}
-        CommandLineParser parser = new DefaultParser();
-
-        Cli cli;
-        try {
-            org.apache.commons.cli.CommandLine cmdline = parser.parse(options, argsToUse);
-            cli = new Cli(cmdline, actualTrailers);
-        } catch (ParseException e) {
-            throw new CliValidationException(e);
-        }
+    /**
+     * Try to parse the command line options of the given String array
+     * without throwing an exception if they are invalid.
+     * @param args the arguments array to parse.
+     * @return a new {@link ParseResult} will never be null.
+     *
+     * @see CompiledCliSpecification#tryParse(String[])
+     */
+    public ParseResult tryParse(String[] args) {
+        return compile().tryParse(args);
+    }
+
+    /**
+     * Parse each of the given command lines in parallel.
+     * @param argsList the arguments of each command line to parse; can not be null.
+     * @return a new unmodifiable List of the {@link ParseResult} of each command line
+     * in the same order as the given list.
+     *
+     * @see CompiledCliSpecification#parseAll(List)
+     */
+    public List<ParseResult> parseAll(List<String[]> argsList){
+        return compile().parseAll(argsList);
+    }
+
+    /**
+     * Start a new {@link ParseSession} without any tokens.
+     * @return a new {@link ParseSession} will never be null.
+     *
+     * @see CompiledCliSpecification#newSession()
+     */
+    public ParseSession newSession(){
+        return compile().newSession();
+    }
+
+    /**
+     * Parse each of the given command lines in parallel.
+     * @param argsList the arguments of each command line to parse; can not be null.
+     * @param invokeSetters {@code true} if the setters should be called for each valid command line;
+     *                      {@code false} to only parse and validate.
+     * @return a new unmodifiable List of the {@link ParseResult} of each command line
+     * in the same order as the given list.
+     *
+     * @see CompiledCliSpecification#parseAll(List, boolean)
+     */
+    public List<ParseResult> parseAll(List<String[]> argsList, boolean invokeSetters){
+        return compile().parseAll(argsList, invokeSetters);
+    }
 
-        internalCliOption.validate(cli);
-        internalCliOption.fireConsumerIfNeeded(cli);
-        
-        for(int i=0; i< actualTrailers.length; i++) {
-    		trailers.get(i).fireConsumerIfNeeded(actualTrailers[i]);
-    	}
-        return cli;
+    /**
+     * Parse each of the given command lines in parallel.
+     * @param args the arguments of each command line to parse; can not be null.
+     * @return a new unmodifiable List of the {@link ParseResult} of each command line
+     * in the encounter order of the stream.
+     *
+     * @see CompiledCliSpecification#parseAll(Stream)
+     */
+    public List<ParseResult> parseAll(Stream<String[]> args){
+        return compile().parseAll(args);
+    }
 
+    /**
+     * Parse each of the given command lines in parallel.
+     * @param args the arguments of each command line to parse; can not be null.
+     * @param invokeSetters {@code true} if the setters should be called for each valid command line;
+     *                      {@code false} to only parse and validate.
+     * @return a new unmodifiable List of the {@link ParseResult} of each command line
+     * in the encounter order of the stream.
+     *
+     * @see CompiledCliSpecification#parseAll(Stream, boolean)
+     */
+    public List<ParseResult> parseAll(Stream<String[]> args, boolean invokeSetters){
+        return compile().parseAll(args, invokeSetters);
     }
 
     private static enum DEFAULT_OPTION_COMPARATOR implements Comparator<Option> {
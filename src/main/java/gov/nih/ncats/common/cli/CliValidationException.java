@@ -35,4 +35,48 @@ public class CliValidationException extends IOException {
     public CliValidationException(String message, Throwable cause) {
         super(message, cause);
     }
+
+    /**
+     * Create a new exception that doesn't fill in its stack trace,
+     * which is most of the cost of rejecting bad input.
+     */
+    static CliValidationException stackless(String message){
+        return new StacklessCliValidationException(message, null);
+    }
+
+    static CliValidationException stackless(String message, Throwable cause){
+        return new StacklessCliValidationException(message, cause);
+    }
+
+    static CliValidationException stackless(Throwable cause){
+        return new StacklessCliValidationException(cause == null ? null : cause.toString(), cause);
+    }
+
+    /**
+     * Get an exception to throw to the caller that has a stack trace.
+     * @return this if it already has a stack trace,
+     * otherwise a new exception with the same message and cause.
+     */
+    CliValidationException withStackTrace(){
+        return this;
+    }
+
+    private static final class StacklessCliValidationException extends CliValidationException{
+
+        private static final long serialVersionUID = 1L;
+
+        StacklessCliValidationException(String message, Throwable cause) {
+            super(message, cause);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+
+        @Override
+        CliValidationException withStackTrace() {
+            return new CliValidationException(getMessage(), getCause());
+        }
+    }
 }
@@ -18,6 +18,9 @@
 
 package gov.nih.ncats.common.cli;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -38,9 +41,20 @@ final class CliValidator {
         this.errorMessage = Objects.requireNonNull(errorMessage);
     }
 
+    /**
+     * Copy the given validators into a new unmodifiable list
+     * so built options don't see validators added to their builders afterwards.
+     */
+    static List<CliValidator> copyOf(List<CliValidator> validators){
+        if(validators.isEmpty()){
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(new ArrayList<>(validators));
+    }
+
     public void validate(Cli cli) throws CliValidationException{
         if(!validator.test(cli)){
-            throw new CliValidationException(errorMessage.apply(cli));
+            throw CliValidationException.stackless(errorMessage.apply(cli));
         }
     }
 }
@@ -0,0 +1,598 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import gov.nih.ncats.common.functions.ThrowableConsumer;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.ParseException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An immutable snapshot of a {@link CliSpecification} that can parse
+ * command lines.  Unlike a {@link CliSpecification}, a {@code CompiledCliSpecification}
+ * is thread-safe and can be shared by any number of threads that parse concurrently
+ * without any locking.  Changes made to the {@link CliSpecification} after it was compiled
+ * are not seen by this object.
+ *
+ * Note that the setters registered on the options are invoked by whichever thread
+ * is parsing so any setter that writes to shared state has to handle its own synchronization.
+ *
+ * @see CliSpecification#compile()
+ */
+public final class CompiledCliSpecification {
+
+    private final InternalCliSpecification internalSpec;
+    private final InternalCliOption internalCliOption;
+
+    private final List<CliValidator> validators;
+
+    private final List<Trailer> trailers;
+
+    private final VariadicTrailer variadicTrailer;
+
+    private final Executor setterExecutor;
+
+    private final boolean useCommonsCliParser;
+
+    private final boolean expandArgFiles;
+
+    private final ParseListener listener;
+    /**
+     * The listener is told about 1 in this many parses.
+     */
+    private final int listenerSampleRate;
+    /**
+     * The program name put in the Flight Recorder events, may be null.
+     */
+    private final String programName;
+
+    CompiledCliSpecification(InternalCliSpecification internalSpec, InternalCliOption internalCliOption,
+                             List<CliValidator> validators, List<Trailer> trailers, VariadicTrailer variadicTrailer, Executor setterExecutor,
+                             boolean useCommonsCliParser, boolean expandArgFiles,
+                             ParseListener listener, int listenerSampleRate, String programName) {
+        this.internalSpec = internalSpec;
+        this.internalCliOption = internalCliOption;
+        this.validators = CliValidator.copyOf(validators);
+        this.trailers = trailers.isEmpty()? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(trailers));
+        this.variadicTrailer = variadicTrailer;
+        this.setterExecutor = setterExecutor;
+        this.useCommonsCliParser = useCommonsCliParser;
+        this.expandArgFiles = expandArgFiles;
+        this.listener = listener;
+        this.listenerSampleRate = listenerSampleRate;
+        this.programName = programName;
+    }
+
+    /**
+     * Parse the query parameters as a urlencoded command line arguments.
+     * It is a assumed that {@code key=value} means {@code -key value}
+     * and a {@code key} without a value is a flag.
+     *
+     * @param url the {@link URL} to parse; can not e null.
+     * @return a new {@link Cli} of the parsed options in the URL parameters.
+     * @throws IOException if there is a problem decoding the URL parameters
+     * @throws CliValidationException if the url parameters violate this specification.
+     */
+    public Cli parse(URL url) throws IOException {
+        return tryParse(url).getOrThrow();
+    }
+
+    /**
+     * Parse the query parameters as a urlencoded command line arguments.
+     * It is a assumed that {@code key=value} means {@code -key value}
+     * and a {@code key} without a value is a flag.
+     *
+     * @param uri the {@link URI} to parse; can not e null.
+     * @return a new {@link Cli} of the parsed options in the URI parameters.
+     * @throws CliValidationException if the query can not be decoded or
+     * the parameters violate this specification.
+     */
+    public Cli parse(URI uri) throws CliValidationException {
+        return tryParse(uri).getOrThrow();
+    }
+
+    /**
+     * Parse a urlencoded query string as command line arguments.
+     * It is a assumed that {@code key=value} means {@code -key value}
+     * and a {@code key} without a value is a flag.
+     *
+     * @param query the raw query without the leading {@code ?}, for example {@code "foo=bar&v"};
+     *              if null, then the query is empty.
+     * @return a new {@link Cli} of the parsed options in the query.
+     * @throws CliValidationException if the query can not be decoded or
+     * the parameters violate this specification.
+     */
+    public Cli parse(CharSequence query) throws CliValidationException {
+        return tryParse(query).getOrThrow();
+    }
+
+    /**
+     * Try to parse the query parameters as a urlencoded command line arguments
+     * without throwing an exception if they are invalid.
+     *
+     * @param url the {@link URL} to parse; can not e null.
+     * @return a new {@link ParseResult} which is a failure if the URL parameters
+     * can not be decoded or violate this specification; will never be null.
+     *
+     * @see #parse(URL)
+     */
+    public ParseResult tryParse(URL url) {
+        return tryParse(url.getQuery());
+    }
+
+    /**
+     * Try to parse the query parameters as a urlencoded command line arguments
+     * without throwing an exception if they are invalid.
+     *
+     * @param uri the {@link URI} to parse; can not e null.
+     * @return a new {@link ParseResult} which is a failure if the URI parameters
+     * can not be decoded or violate this specification; will never be null.
+     *
+     * @see #parse(URI)
+     */
+    public ParseResult tryParse(URI uri) {
+        return tryParse(uri.getRawQuery());
+    }
+
+    /**
+     * Try to parse a urlencoded query string as command line arguments
+     * without throwing an exception if they are invalid.
+     *
+     * @param query the raw query without the leading {@code ?};
+     *              if null, then the query is empty.
+     * @return a new {@link ParseResult} which is a failure if the query
+     * can not be decoded or violates this specification; will never be null.
+     *
+     * @see #parse(CharSequence)
+     */
+    public ParseResult tryParse(CharSequence query) {
+        ParseListener listener = sampleListener();
+        long start = listener == null ? 0 : System.nanoTime();
+        try {
+            //parameters are never argument files
+            Cli cli;
+            if(useCommonsCliParser){
+                cli = parseWithCommonsCli(new QueryStringDecoder(null).toArguments(query));
+            }else{
+                //the query is decoded straight into the built-in parser
+                cli = new QueryStringDecoder(newParser()).parse(query);
+            }
+            return ParseResult.success(validate(cli, true, listener, start));
+        }catch(CliValidationException e){
+            return failure(e, listener, start);
+        }
+    }
+
+    /**
+     * Parse a NUL separated command line, in the same layout as {@code /proc/<pid>/cmdline}.
+     * Option names are matched directly against the bytes and option values
+     * are only turned into Strings when a setter or {@link Cli#getOptionValue(String)} asks for them,
+     * so the returned {@link Cli} keeps a reference to the given bytes which must not be modified
+     * while the Cli is in use.  Argument files are not expanded.
+     *
+     * @param bytes the UTF-8 bytes from the buffer's position to its limit are parsed;
+     *              the buffer's position is not changed.
+     * @return a new {@link Cli} of the parsed options.
+     * @throws CliValidationException if the arguments violate this specification.
+     */
+    public Cli parse(ByteBuffer bytes) throws CliValidationException {
+        return tryParse(bytes).getOrThrow();
+    }
+
+    /**
+     * Parse a NUL separated command line, in the same layout as {@code /proc/<pid>/cmdline}.
+     *
+     * @param bytes the array that contains the UTF-8 bytes of the command line.
+     * @param offset the offset into the array where the command line starts.
+     * @param length the number of bytes in the command line.
+     * @return a new {@link Cli} of the parsed options.
+     * @throws CliValidationException if the arguments violate this specification.
+     * @throws IndexOutOfBoundsException if the offset and length are not in the array.
+     *
+     * @see #parse(ByteBuffer)
+     */
+    public Cli parse(byte[] bytes, int offset, int length) throws CliValidationException {
+        return parse(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    /**
+     * Try to parse a NUL separated command line without throwing an exception if it is invalid.
+     * @param bytes the UTF-8 bytes from the buffer's position to its limit are parsed;
+     *              the buffer's position is not changed.
+     * @return a new {@link ParseResult} will never be null.
+     *
+     * @see #parse(ByteBuffer)
+     */
+    public ParseResult tryParse(ByteBuffer bytes) {
+        ParseListener listener = sampleListener();
+        long start = listener == null ? 0 : System.nanoTime();
+        try {
+            Cli cli;
+            if(useCommonsCliParser){
+                List<String> args = new ArrayList<>();
+                ByteArgument.splitOnNul(bytes, arg -> args.add(arg.toString()));
+                cli = parseWithCommonsCli(args.toArray(new String[args.size()]));
+            }else{
+                ArgumentParser parser = newParser();
+                ByteArgument.splitOnNul(bytes, parser::accept);
+                cli = parser.finish();
+            }
+            return ParseResult.success(validate(cli, true, listener, start));
+        }catch(CliValidationException e){
+            return failure(e, listener, start);
+        }
+    }
+
+    /**
+     * Try to parse a NUL separated command line without throwing an exception if it is invalid.
+     * @param bytes the array that contains the UTF-8 bytes of the command line.
+     * @param offset the offset into the array where the command line starts.
+     * @param length the number of bytes in the command line.
+     * @return a new {@link ParseResult} will never be null.
+     * @throws IndexOutOfBoundsException if the offset and length are not in the array.
+     *
+     * @see #parse(ByteBuffer)
+     */
+    public ParseResult tryParse(byte[] bytes, int offset, int length) {
+        return tryParse(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    /**
+     * Is one of these passed in arguments -h, --h, -help or --help.
+     * @param args the command line arguments to parse.
+     * @return {@code true} if at least one of these arguments
+     * is "-h", "--h", "-help" or "--help"; {@code false} otherwise
+     */
+    public boolean helpRequested(String[] args){
+        for(int i=0; i< args.length; i++){
+            String v = args[i];
+            if("-h".equals(v) || "--help".equals(v) ||"--h".equals(v) || "-help".equals(v)){
+                return true;
+            }
+        }
+        return false;
+
+    }
+
+    /**
+     * Parse the command line options of the given String array, often the arguments from a Main method.
+     * @param args the arguments array to parse.
+     * @return a new {@link Cli} of the parsed options.
+     * @throws CliValidationException if the arguments violate this specification.
+     */
+    public Cli parse(String[] args) throws CliValidationException {
+        return tryParse(args).getOrThrow();
+    }
+
+    /**
+     * Try to parse the command line options of the given String array
+     * without throwing an exception if they are invalid.  Rejecting
+     * invalid arguments this way costs about the same as accepting valid ones
+     * since no stack traces are created.
+     * @param args the arguments array to parse.
+     * @return a new {@link ParseResult} will never be null.
+     */
+    public ParseResult tryParse(String[] args) {
+        return tryParse(args, true, true);
+    }
+
+    /**
+     * Parse each of the given command lines in parallel using the common {@link ForkJoinPool}.
+     * The setters of the options are invoked for each valid command line
+     * and may be called concurrently from several threads.
+     * @param argsList the arguments of each command line to parse; can not be null.
+     * @return a new unmodifiable List of the {@link ParseResult} of each command line
+     * in the same order as the given list.
+     *
+     * @see #parseAll(List, boolean)
+     */
+    public List<ParseResult> parseAll(List<String[]> argsList){
+        return parseAll(argsList, true);
+    }
+
+    /**
+     * Parse each of the given command lines in parallel using the common {@link ForkJoinPool}.
+     * @param argsList the arguments of each command line to parse; can not be null.
+     * @param invokeSetters {@code true} if the option and trailer setters
+     *                      should be called for each valid command line,
+     *                      in which case the setters may be called concurrently from several threads;
+     *                      {@code false} to only parse and validate.
+     * @return a new unmodifiable List of the {@link ParseResult} of each command line
+     * in the same order as the given list.
+     */
+    public List<ParseResult> parseAll(List<String[]> argsList, boolean invokeSetters){
+        List<String[]> list = argsList instanceof RandomAccess ? argsList : new ArrayList<>(argsList);
+        ParseResult[] results = new ParseResult[list.size()];
+        ForkJoinPool.commonPool().invoke(new ParseAllTask(list, results, 0, results.length, invokeSetters));
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    /**
+     * Parse each of the given command lines in parallel using the common {@link ForkJoinPool}.
+     * The setters of the options are invoked for each valid command line
+     * and may be called concurrently from several threads.
+     * @param args the arguments of each command line to parse; can not be null.
+     * @return a new unmodifiable List of the {@link ParseResult} of each command line
+     * in the encounter order of the stream.
+     *
+     * @see #parseAll(Stream, boolean)
+     */
+    public List<ParseResult> parseAll(Stream<String[]> args){
+        return parseAll(args, true);
+    }
+
+    /**
+     * Parse each of the given command lines in parallel using the common {@link ForkJoinPool}.
+     * @param args the arguments of each command line to parse; can not be null.
+     * @param invokeSetters {@code true} if the option and trailer setters
+     *                      should be called for each valid command line,
+     *                      in which case the setters may be called concurrently from several threads;
+     *                      {@code false} to only parse and validate.
+     * @return a new unmodifiable List of the {@link ParseResult} of each command line
+     * in the encounter order of the stream.
+     */
+    public List<ParseResult> parseAll(Stream<String[]> args, boolean invokeSetters){
+        return parseAll(args.collect(Collectors.toList()), invokeSetters);
+    }
+
+    /**
+     * Start a new {@link ParseSession} without any tokens, to re-check
+     * a command line every time it is edited, as an interactive shell does.
+     * @return a new {@link ParseSession} will never be null.
+     */
+    public ParseSession newSession(){
+        return new ParseSession(this, internalSpec, trailers.size(), variadicTrailer);
+    }
+
+    ParseResult tryParse(String[] args, boolean invokeSetters, boolean allowArgFiles) {
+        ParseListener listener = sampleListener();
+        long start = listener == null ? 0 : System.nanoTime();
+        try {
+            return ParseResult.success(validate(tokenize(args, allowArgFiles), invokeSetters, listener, start));
+        }catch(CliValidationException e){
+            return failure(e, listener, start);
+        }
+    }
+
+    /**
+     * Get the listener for a parse that is starting: the listener if this parse is one of the sampled parses
+     * and the Flight Recorder listener if the Flight Recorder is recording our events.
+     * @return the listener or null if nothing is listening to this parse.
+     */
+    private ParseListener sampleListener(){
+        ParseListener current = listener;
+        if(current != null && listenerSampleRate > 1 && ThreadLocalRandom.current().nextInt(listenerSampleRate) != 0){
+            current = null;
+        }
+        ParseListener recording = FlightRecorderSupport.recordingListener(programName);
+        if(recording == null){
+            return current;
+        }
+        return current == null ? recording : new CompositeParseListener(current, recording);
+    }
+
+    private static ParseResult failure(CliValidationException e, ParseListener listener, long start){
+        if(listener != null){
+            listener.parseCompleted(false, System.nanoTime() - start);
+        }
+        return ParseResult.failure(e);
+    }
+
+    /**
+     * Splits the list of command lines in half until each half
+     * is small enough to parse in a single task.  Tasks are
+     * never serialized.
+     */
+    @SuppressWarnings("serial")
+    private final class ParseAllTask extends RecursiveAction{
+        /**
+         * Parsing a single command line is cheap so
+         * give each task a batch of them.
+         */
+        private static final int BATCH_SIZE = 64;
+
+        private final List<String[]> argsList;
+        private final ParseResult[] results;
+        private final int start, end;
+        private final boolean invokeSetters;
+
+        ParseAllTask(List<String[]> argsList, ParseResult[] results, int start, int end, boolean invokeSetters) {
+            this.argsList = argsList;
+            this.results = results;
+            this.start = start;
+            this.end = end;
+            this.invokeSetters = invokeSetters;
+        }
+
+        @Override
+        protected void compute() {
+            if(end - start <= BATCH_SIZE){
+                for(int i= start; i< end; i++){
+                    results[i] = tryParse(argsList.get(i), invokeSetters, true);
+                }
+                return;
+            }
+            int mid = (start + end) >>> 1;
+            invokeAll(new ParseAllTask(argsList, results, start, mid, invokeSetters),
+                      new ParseAllTask(argsList, results, mid, end, invokeSetters));
+        }
+    }
+
+    private ArgumentParser newParser(){
+        return new ArgumentParser(internalSpec, trailers.size(), variadicTrailer != null);
+    }
+
+    private Cli tokenize(String[] args, boolean allowArgFiles) throws CliValidationException {
+        Cli cli;
+        if(useCommonsCliParser){
+            cli = parseWithCommonsCli(allowArgFiles && expandArgFiles ? expandArgFiles(args) : args);
+        }else{
+            ArgumentParser parser = newParser();
+            if(allowArgFiles && expandArgFiles){
+                forEachArgument(args, parser::accept);
+                cli = parser.finish();
+            }else{
+                //a variadic trailer can be a view of the args
+                cli = parser.parse(args);
+            }
+        }
+        return cli;
+    }
+
+    /**
+     * Validate the given parsed command line and then invoke the setters if requested.
+     * @param listener the listener to time each phase for; if null nothing is timed.
+     * @param start the {@link System#nanoTime()} the parse started if there is a listener.
+     * @return the given Cli.
+     */
+    private Cli validate(Cli cli, boolean invokeSetters, ParseListener listener, long start) throws CliValidationException {
+        long phaseStart = phaseCompleted(listener, ParsePhase.TOKENIZE, start);
+        if(variadicTrailer != null){
+            variadicTrailer.validate(cli.getVariadicTrailer().size());
+        }
+        internalSpec.getConstraints().validate(cli, internalCliOption);
+        phaseStart = phaseCompleted(listener, ParsePhase.CONSTRAINTS, phaseStart);
+        for(int i=0; i< validators.size(); i++){
+            if(listener == null){
+                validators.get(i).validate(cli);
+            }else{
+                validate(i, cli, listener);
+            }
+        }
+        phaseStart = phaseCompleted(listener, ParsePhase.VALIDATORS, phaseStart);
+        if(invokeSetters) {
+            internalSpec.getSetters().fire(cli, setterExecutor, listener);
+            phaseStart = phaseCompleted(listener, ParsePhase.SETTERS, phaseStart);
+
+            for (int i = 0; i < cli.getNumberOfTrailers(); i++) {
+                trailers.get(i).fireConsumerIfNeeded(cli.getTrailer(i));
+            }
+            if(variadicTrailer != null){
+                variadicTrailer.fireConsumerIfNeeded(cli.getVariadicTrailer());
+            }
+            phaseCompleted(listener, ParsePhase.TRAILER_SETTERS, phaseStart);
+        }
+        if(listener != null){
+            listener.parseCompleted(true, System.nanoTime() - start);
+        }
+        return cli;
+
+    }
+
+    private void validate(int index, Cli cli, ParseListener listener) throws CliValidationException {
+        long start = System.nanoTime();
+        boolean passed = false;
+        try {
+            validators.get(index).validate(cli);
+            passed = true;
+        }finally{
+            listener.validatorCompleted(index, passed, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Tell the listener, if there is one, that a phase finished.
+     * @return the time the next phase starts.
+     */
+    private static long phaseCompleted(ParseListener listener, ParsePhase phase, long phaseStart){
+        if(listener == null){
+            return 0;
+        }
+        long now = System.nanoTime();
+        listener.phaseCompleted(phase, now - phaseStart);
+        return now;
+    }
+
+    private Cli parseWithCommonsCli(String[] args) throws CliValidationException {
+        String[] argsToUse;
+        String[] actualTrailers;
+        if(trailers.isEmpty()) {
+            argsToUse = args;
+            actualTrailers = new String[0];
+        }else {
+            //assume trailers are the last fields
+            if(args.length < trailers.size()) {
+                throw CliValidationException.stackless("not enough arguments");
+            }
+            argsToUse = Arrays.copyOf(args, args.length - trailers.size());
+            actualTrailers = Arrays.copyOfRange(args, args.length-trailers.size(), args.length);
+        }
+        CommandLineParser parser = new DefaultParser();
+        try {
+            org.apache.commons.cli.CommandLine cmdline = parser.parse(internalSpec.getInternalOptions(), argsToUse);
+            return Cli.fromCommandLine(internalSpec, cmdline, actualTrailers, variadicTrailer != null);
+        } catch (ParseException e) {
+            throw CliValidationException.stackless(e);
+        }
+    }
+
+    /**
+     * Give each argument to the given consumer replacing any {@code @file}
+     * with the arguments in that file as they are read.
+     * An argument that starts with {@code @@} is not a file but the argument
+     * without the first {@code @}.  Argument files can not refer to other argument files.
+     */
+    private static void forEachArgument(String[] args, ThrowableConsumer<String, CliValidationException> consumer) throws CliValidationException {
+        ArgFileTokenizer tokenizer = null;
+        for(String arg : args){
+            if(arg.length() > 1 && arg.charAt(0) == '@'){
+                if(arg.charAt(1) == '@'){
+                    consumer.accept(arg.substring(1));
+                    continue;
+                }
+                if(tokenizer == null){
+                    tokenizer = new ArgFileTokenizer();
+                }
+                String file = arg.substring(1);
+                try {
+                    tokenizer.tokenize(Paths.get(file), consumer);
+                }catch(CliValidationException e){
+                    throw e;
+                }catch(IOException | InvalidPathException e){
+                    throw CliValidationException.stackless("error reading argument file " + file, e);
+                }
+            }else{
+                consumer.accept(arg);
+            }
+        }
+    }
+
+    /**
+     * The commons-cli parser needs all the arguments up front.
+     */
+    private static String[] expandArgFiles(String[] args) throws CliValidationException {
+        List<String> expanded = new ArrayList<>(args.length);
+        forEachArgument(args, expanded::add);
+        return expanded.toArray(new String[expanded.size()]);
+    }
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+/**
+ * Tells two listeners about the same parse.
+ */
+final class CompositeParseListener implements ParseListener {
+
+    private final ParseListener first;
+    private final ParseListener second;
+
+    CompositeParseListener(ParseListener first, ParseListener second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    @Override
+    public void phaseCompleted(ParsePhase phase, long nanos) {
+        first.phaseCompleted(phase, nanos);
+        second.phaseCompleted(phase, nanos);
+    }
+
+    @Override
+    public void validatorCompleted(int index, boolean passed, long nanos) {
+        first.validatorCompleted(index, passed, nanos);
+        second.validatorCompleted(index, passed, nanos);
+    }
+
+    @Override
+    public void setterInvoked(String optionName, boolean succeeded, long nanos) {
+        first.setterInvoked(optionName, succeeded, nanos);
+        second.setterInvoked(optionName, succeeded, nanos);
+    }
+
+    @Override
+    public void parseCompleted(boolean succeeded, long nanos) {
+        first.parseCompleted(succeeded, nanos);
+        second.parseCompleted(succeeded, nanos);
+    }
+}
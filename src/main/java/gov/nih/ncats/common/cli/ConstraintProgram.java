@@ -0,0 +1,519 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The radio, group and at-least-one-of constraints of an option tree
+ * compiled into a flat program over the option presence bits.
+ *
+ * Each node of the tree is one instruction and the instructions are
+ * in post-order so every child is evaluated before its parent and the whole
+ * tree is checked in one linear pass.  Each instruction computes 3 flags for its node
+ * that mirror what the tree would compute:
+ * <ul>
+ *     <li>{@link #PRESENT} - what {@code isPresent()} returns.</li>
+ *     <li>{@link #MISSING} - if {@code getMissing()} returns something.</li>
+ *     <li>{@link #SEEN} - if any option under the node was seen, which is what
+ *     radio and at-least-one-of options count.</li>
+ * </ul>
+ *
+ * The option tree is only walked when a constraint fails to create the error message.
+ *
+ * An {@link Incremental} keeps the flags of every node up to date as options
+ * are seen or removed one at a time, which is what a {@link ParseSession} needs.
+ */
+final class ConstraintProgram {
+
+    static final byte LEAF = 0;
+    static final byte GROUP = 1;
+    static final byte RADIO = 2;
+    static final byte AT_LEAST_ONE_OF = 3;
+
+    private static final byte PRESENT = 1;
+    private static final byte MISSING = 2;
+    private static final byte SEEN = 4;
+
+    private final byte[] opcodes;
+    private final boolean[] required;
+    /**
+     * For leaves the option id; for everything else
+     * the offset into {@link #children} of the first child.
+     */
+    private final int[] operands;
+    private final int[] childCounts;
+    /**
+     * Number of children of a group that are required,
+     * the required children are always listed first.
+     */
+    private final int[] requiredChildCounts;
+    private final int[] children;
+    /**
+     * The option (or group) in the tree each node was compiled from.
+     */
+    private final InternalCliOption[] sources;
+
+    private final CliValidator[] validators;
+    /**
+     * The node that must be present for the validator at the same index to run;
+     * or -1 if it always runs.
+     */
+    private final int[] validatorGuards;
+
+    private ConstraintProgram(Builder builder){
+        int size = builder.opcodes.size();
+        opcodes = new byte[size];
+        required = new boolean[size];
+        operands = new int[size];
+        childCounts = new int[size];
+        requiredChildCounts = new int[size];
+        for(int i=0; i< size; i++){
+            opcodes[i] = builder.opcodes.get(i);
+            required[i] = builder.required.get(i);
+            operands[i] = builder.operands.get(i);
+            childCounts[i] = builder.childCounts.get(i);
+            requiredChildCounts[i] = builder.requiredChildCounts.get(i);
+        }
+        children = toArray(builder.children);
+        sources = builder.sources.toArray(new InternalCliOption[size]);
+        validators = builder.validators.toArray(new CliValidator[builder.validators.size()]);
+        validatorGuards = toArray(builder.validatorGuards);
+    }
+
+    private static int[] toArray(List<Integer> list){
+        int[] array = new int[list.size()];
+        for(int i=0; i< array.length; i++){
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Compile the given option tree.
+     * @param root the root of the option tree which must already be added to the spec.
+     * @param spec the specification the tree was added to.
+     * @return a new ConstraintProgram.
+     */
+    static ConstraintProgram compile(InternalCliOption root, InternalCliSpecification spec){
+        Builder builder = new Builder(spec);
+        root.compileTo(builder);
+        return new ConstraintProgram(builder);
+    }
+
+    /**
+     * Validate the given command line against this program and then run all the
+     * option validators the same way walking the option tree would.
+     * Nothing is allocated unless validation fails.
+     * @param cli the parsed command line.
+     * @param root the option tree this program was compiled from, only used to create the error message.
+     * @throws CliValidationException if the command line violates the specification.
+     */
+    void validate(Cli cli, InternalCliOption root) throws CliValidationException {
+        byte[] state = cli.getConstraintState();
+        if(!evaluate(cli, state)){
+            //the tree reports the same failure it always has
+            root.validate(cli);
+            throw CliValidationException.stackless("command line does not match the specification");
+        }
+        for(int i=0; i< validators.length; i++){
+            int guard = validatorGuards[i];
+            if(guard < 0 || (state[guard] & PRESENT) !=0){
+                validators[i].validate(cli);
+            }
+        }
+    }
+
+    /**
+     * Run the program.
+     * @param cli the parsed command line.
+     * @param state the flags of each node to fill in.
+     * @return {@code true} if every constraint holds; {@code false} otherwise.
+     */
+    boolean evaluate(Cli cli, byte[] state){
+        for(int node=0; node< opcodes.length; node++){
+            byte flags;
+            boolean failed;
+            if(opcodes[node] == LEAF){
+                if(cli.isPresent(operands[node])){
+                    flags = PRESENT | SEEN;
+                    failed = false;
+                }else{
+                    flags = MISSING;
+                    failed = required[node];
+                }
+            }else{
+                int start = operands[node];
+                int end = start + childCounts[node];
+                int seenChildren=0;
+                int presentChildren=0;
+                for(int i= start; i< end; i++){
+                    byte childFlags = state[children[i]];
+                    if((childFlags & SEEN) !=0){
+                        seenChildren++;
+                    }
+                    if((childFlags & PRESENT) !=0){
+                        presentChildren++;
+                    }
+                }
+                flags = seenChildren > 0 ? SEEN : 0;
+                if(opcodes[node] == GROUP){
+                    int requiredEnd = start + requiredChildCounts[node];
+                    int presentRequired=0;
+                    boolean missing = false;
+                    for(int i= start; i< requiredEnd; i++){
+                        byte childFlags = state[children[i]];
+                        if((childFlags & PRESENT) !=0){
+                            presentRequired++;
+                        }
+                        if((childFlags & MISSING) !=0){
+                            missing = true;
+                        }
+                    }
+                    boolean present = requiredChildCounts[node] > 0 ? presentRequired == requiredChildCounts[node]
+                                                                    : presentChildren > 0;
+                    if(present){
+                        flags |= PRESENT;
+                    }
+                    if(missing){
+                        flags |= MISSING;
+                    }
+                    failed = missing && required[node];
+                }else{
+                    flags |= presentChildren > 0 ? PRESENT : MISSING;
+                    if(opcodes[node] == RADIO){
+                        failed = seenChildren > 1 || (required[node] && seenChildren ==0);
+                    }else{
+                        failed = required[node] && seenChildren ==0;
+                    }
+                }
+            }
+            if(failed){
+                return false;
+            }
+            state[node] = flags;
+        }
+        return true;
+    }
+
+    int size(){
+        return opcodes.length;
+    }
+
+    /**
+     * The flags of every node of a program kept up to date as the presence
+     * of one option at a time changes, so a change only re-evaluates
+     * the node of that option and its ancestors.
+     * Instead of looking at every child, each node keeps counts of how many
+     * of its children have each flag and those counts are adjusted
+     * as the flags of a child change.
+     *
+     * Unlike {@link #evaluate(Cli, byte[])}, every node is evaluated even if
+     * another one failed, so all the failures are known.
+     */
+    static final class Incremental{
+        private final ConstraintProgram program;
+        private final Cli cli;
+
+        private final int[] parents;
+        /**
+         * Is each node one of the required children of its parent group.
+         */
+        private final boolean[] requiredChild;
+        /**
+         * The leaf node of each option id.
+         */
+        private final int[] leaves;
+
+        private final byte[] state;
+        private final boolean[] failed;
+        /**
+         * The number of failed nodes in the subtree of each node including itself.
+         */
+        private final int[] failuresBelow;
+
+        private final int[] seenChildren;
+        private final int[] presentChildren;
+        private final int[] presentRequiredChildren;
+        private final int[] missingRequiredChildren;
+
+        /**
+         * Evaluate the whole program against the given command line.
+         * @param program the program to evaluate.
+         * @param cli the command line whose option presence is tracked;
+         *            {@link #optionChanged(int)} must be called every time
+         *            the presence of one of its options changes.
+         */
+        Incremental(ConstraintProgram program, Cli cli){
+            this.program = program;
+            this.cli = cli;
+            int size = program.opcodes.length;
+            parents = new int[size];
+            Arrays.fill(parents, -1);
+            requiredChild = new boolean[size];
+            leaves = new int[cli.getInternalSpecification().getOptionCount()];
+            for(int node=0; node< size; node++){
+                if(program.opcodes[node] == LEAF){
+                    leaves[program.operands[node]] = node;
+                    continue;
+                }
+                int start = program.operands[node];
+                int end = start + program.childCounts[node];
+                int requiredEnd = program.opcodes[node] == GROUP ? start + program.requiredChildCounts[node] : start;
+                for(int i= start; i< end; i++){
+                    parents[program.children[i]] = node;
+                    requiredChild[program.children[i]] = i < requiredEnd;
+                }
+            }
+            state = new byte[size];
+            failed = new boolean[size];
+            failuresBelow = new int[size];
+            seenChildren = new int[size];
+            presentChildren = new int[size];
+            presentRequiredChildren = new int[size];
+            missingRequiredChildren = new int[size];
+            //post-order so every child is done before its parent
+            for(int node=0; node< size; node++){
+                evaluate(node);
+                if(failed[node]){
+                    failuresBelow[node]++;
+                }
+                int parent = parents[node];
+                if(parent >= 0){
+                    countChild(parent, node, state[node], 1);
+                    failuresBelow[parent] += failuresBelow[node];
+                }
+            }
+        }
+
+        /**
+         * Re-evaluate the constraints the given option takes part in
+         * after it was either seen for the first time or is no longer seen.
+         * @param id the id of the option.
+         */
+        void optionChanged(int id){
+            int node = leaves[id];
+            while(node >= 0){
+                byte oldFlags = state[node];
+                boolean oldFailed = failed[node];
+                evaluate(node);
+                if(oldFailed != failed[node]){
+                    int delta = oldFailed ? -1 : 1;
+                    for(int n = node; n >= 0; n = parents[n]){
+                        failuresBelow[n] += delta;
+                    }
+                }
+                int parent = parents[node];
+                if(oldFlags == state[node] || parent < 0){
+                    return;
+                }
+                countChild(parent, node, oldFlags, -1);
+                countChild(parent, node, state[node], 1);
+                node = parent;
+            }
+        }
+
+        private void countChild(int parent, int child, byte flags, int delta){
+            if((flags & SEEN) !=0){
+                seenChildren[parent] += delta;
+            }
+            if((flags & PRESENT) !=0){
+                presentChildren[parent] += delta;
+                if(requiredChild[child]){
+                    presentRequiredChildren[parent] += delta;
+                }
+            }
+            if((flags & MISSING) !=0 && requiredChild[child]){
+                missingRequiredChildren[parent] += delta;
+            }
+        }
+
+        /**
+         * Compute the flags of the given node from the counts of its children
+         * the same way {@link ConstraintProgram#evaluate(Cli, byte[])} does.
+         */
+        private void evaluate(int node){
+            byte flags;
+            boolean nodeFailed;
+            byte opcode = program.opcodes[node];
+            boolean isRequired = program.required[node];
+            if(opcode == LEAF){
+                if(cli.isPresent(program.operands[node])){
+                    flags = PRESENT | SEEN;
+                    nodeFailed = false;
+                }else{
+                    flags = MISSING;
+                    nodeFailed = isRequired;
+                }
+            }else{
+                int seen = seenChildren[node];
+                flags = seen > 0 ? SEEN : 0;
+                if(opcode == GROUP){
+                    int requiredCount = program.requiredChildCounts[node];
+                    boolean present = requiredCount > 0 ? presentRequiredChildren[node] == requiredCount
+                                                        : presentChildren[node] > 0;
+                    boolean missing = missingRequiredChildren[node] > 0;
+                    if(present){
+                        flags |= PRESENT;
+                    }
+                    if(missing){
+                        flags |= MISSING;
+                    }
+                    nodeFailed = missing && isRequired;
+                }else{
+                    flags |= presentChildren[node] > 0 ? PRESENT : MISSING;
+                    if(opcode == RADIO){
+                        nodeFailed = seen > 1 || (isRequired && seen ==0);
+                    }else{
+                        nodeFailed = isRequired && seen ==0;
+                    }
+                }
+            }
+            state[node] = flags;
+            failed[node] = nodeFailed;
+        }
+
+        /**
+         * Does every constraint hold.
+         */
+        boolean isValid(){
+            return failuresBelow[program.opcodes.length -1] == 0;
+        }
+
+        /**
+         * Get the error message of every failed node that doesn't have a failed ancestor,
+         * in the order walking the option tree would find them; so the first one
+         * is what a full parse reports if none of the validators fail first.
+         * @param messages the list to add the messages to.
+         */
+        void collectFailures(List<String> messages){
+            collectFailures(program.opcodes.length -1, messages);
+        }
+
+        private void collectFailures(int node, List<String> messages){
+            if(failuresBelow[node] == 0){
+                return;
+            }
+            if(failed[node]){
+                try{
+                    program.sources[node].checkConstraint(cli);
+                }catch(CliValidationException e){
+                    messages.add(e.getMessage());
+                }
+                return;
+            }
+            int start = program.operands[node];
+            int end = start + program.childCounts[node];
+            for(int i= start; i< end; i++){
+                collectFailures(program.children[i], messages);
+            }
+        }
+    }
+
+    /**
+     * Collects the instructions as the option tree is compiled.
+     */
+    static final class Builder{
+        private final InternalCliSpecification spec;
+
+        private final List<Byte> opcodes = new ArrayList<>();
+        private final List<Boolean> required = new ArrayList<>();
+        private final List<Integer> operands = new ArrayList<>();
+        private final List<Integer> childCounts = new ArrayList<>();
+        private final List<Integer> requiredChildCounts = new ArrayList<>();
+        private final List<Integer> children = new ArrayList<>();
+        private final List<InternalCliOption> sources = new ArrayList<>();
+
+        private final List<CliValidator> validators = new ArrayList<>();
+        private final List<Integer> validatorGuards = new ArrayList<>();
+
+        private Builder(InternalCliSpecification spec){
+            this.spec = spec;
+        }
+
+        /**
+         * Add a single option.
+         * @param source the option being compiled.
+         * @param optionId the id of the option.
+         * @param validators the validators to run only if the option is present.
+         * @return the node of this option.
+         */
+        int leaf(InternalCliOption source, int optionId, List<CliValidator> validators){
+            int node = add(source, LEAF, spec.isRequired(optionId), optionId, 0, 0);
+            addValidators(validators, node);
+            return node;
+        }
+
+        /**
+         * Add a group whose children must already be compiled.
+         * @param source the group being compiled.
+         * @param requiredChildren the nodes of the required children.
+         * @param optionalChildren the nodes of the optional children.
+         * @return the node of this group.
+         */
+        int group(InternalCliOption source, boolean isRequired, int[] requiredChildren, int[] optionalChildren, List<CliValidator> validators){
+            int start = children.size();
+            for(int child : requiredChildren){
+                children.add(child);
+            }
+            for(int child : optionalChildren){
+                children.add(child);
+            }
+            int node = add(source, GROUP, isRequired, start, requiredChildren.length + optionalChildren.length, requiredChildren.length);
+            addValidators(validators, -1);
+            return node;
+        }
+
+        /**
+         * Add a radio or at least one of option whose choices must already be compiled.
+         * @param source the option being compiled.
+         * @param opcode either {@link #RADIO} or {@link #AT_LEAST_ONE_OF}.
+         * @param choices the nodes of the choices.
+         * @return the node of this option.
+         */
+        int choice(InternalCliOption source, byte opcode, boolean isRequired, int[] choices, List<CliValidator> validators){
+            int start = children.size();
+            for(int child : choices){
+                children.add(child);
+            }
+            int node = add(source, opcode, isRequired, start, choices.length, 0);
+            addValidators(validators, -1);
+            return node;
+        }
+
+        private int add(InternalCliOption source, byte opcode, boolean isRequired, int operand, int childCount, int requiredChildCount){
+            sources.add(source);
+            opcodes.add(opcode);
+            required.add(isRequired);
+            operands.add(operand);
+            childCounts.add(childCount);
+            requiredChildCounts.add(requiredChildCount);
+            return opcodes.size() -1;
+        }
+
+        private void addValidators(List<CliValidator> list, int guard){
+            for(CliValidator v : list){
+                validators.add(v);
+                validatorGuards.add(guard);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+/**
+ * Where parses get a {@link ParseListener} that records JDK Flight Recorder events.
+ * Java 8 doesn't have the {@code jdk.jfr} API so this version never records anything;
+ * the multi-release jar has a Java 11 version of this class that does.
+ */
+final class FlightRecorderSupport {
+
+    private FlightRecorderSupport(){
+        //can not instantiate
+    }
+
+    /**
+     * Get a listener that records a parse that is starting as Flight Recorder events.
+     * @param programName the program name to put in the events; may be null.
+     * @return a new listener, or null if the events aren't being recorded.
+     */
+    static ParseListener recordingListener(String programName){
+        return null;
+    }
+}
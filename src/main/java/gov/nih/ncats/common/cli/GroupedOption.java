@@ -19,7 +19,6 @@
 package gov.nih.ncats.common.cli;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
@@ -62,15 +61,15 @@ class GroupedOption implements InternalCliOptionBuilder{
     @Override
     public InternalCliOption build() {
         return new GroupedOptionCliOption(isRequired,
-                Arrays.stream(choices).map(InternalCliOptionBuilder::build).toArray(i-> new InternalCliOption[i]),
-                validators);
+                InternalCliOptionBuilder.buildAll(choices),
+                CliValidator.copyOf(validators));
     }
 
     @Override
     public InternalCliOption build(boolean isRequired) {
         return new GroupedOptionCliOption(isRequired,
-                Arrays.stream(choices).map(InternalCliOptionBuilder::build).toArray(i-> new InternalCliOption[i]),
-                validators);
+                InternalCliOptionBuilder.buildAll(choices),
+                CliValidator.copyOf(validators));
 
     }
 
@@ -104,11 +103,6 @@ class GroupedOption implements InternalCliOptionBuilder{
             }
         }
 
-        @Override
-        public void addValidator(CliValidator validator) {
-            validators.add(validator);
-        }
-
         @Override
         public Optional<String> getMissing(Cli cli) {
             List<String> missingOps = new ArrayList<>();
@@ -134,6 +128,19 @@ class GroupedOption implements InternalCliOptionBuilder{
             }
         }
 
+        @Override
+        public int compileTo(ConstraintProgram.Builder program) {
+            int[] required = new int[requiredOptions.size()];
+            for(int i=0; i< required.length; i++){
+                required[i] = requiredOptions.get(i).compileTo(program);
+            }
+            int[] optional = new int[optionalOptions.size()];
+            for(int i=0; i< optional.length; i++){
+                optional[i] = optionalOptions.get(i).compileTo(program);
+            }
+            return program.group(this, isRequired, required, optional, validators);
+        }
+
         @Override
         public boolean isPresent(Cli cli) {
             int seen=0;
@@ -194,17 +201,7 @@ class GroupedOption implements InternalCliOptionBuilder{
 
         @Override
         public void validate(Cli cli) throws CliValidationException {
-            List<String> missing = new ArrayList<>();
-            for(InternalCliOption choice : requiredOptions){
-
-                choice.getMissing(cli).ifPresent( missing::add);
-
-            }
-            if(!missing.isEmpty() && isRequired){
-                throw new CliValidationException("required group was not found require " +
-                        missing.stream().collect(Collectors.joining(",", "( ", " )")));
-            }
-
+            checkConstraint(cli);
             for(InternalCliOption choice : requiredOptions){
                 choice.validate(cli);
             }
@@ -216,6 +213,21 @@ class GroupedOption implements InternalCliOptionBuilder{
             }
         }
 
+        @Override
+        public void checkConstraint(Cli cli) throws CliValidationException {
+            if(isRequired){
+                //only build the list of what's missing if it matters
+                List<String> missing = new ArrayList<>();
+                for(InternalCliOption choice : requiredOptions){
+                    choice.getMissing(cli).ifPresent( missing::add);
+                }
+                if(!missing.isEmpty()){
+                    throw CliValidationException.stackless("required group was not found require " +
+                            missing.stream().collect(Collectors.joining(",", "( ", " )")));
+                }
+            }
+        }
+
 
         @Override
         public List<String> getSeenList(Cli cli) {
@@ -228,6 +240,13 @@ class GroupedOption implements InternalCliOptionBuilder{
             }
             return list;
         }
+        @Override
+        public void addSettersTo(SetterSchedule.Builder schedule) {
+            for(InternalCliOption choice : choices){
+                choice.addSettersTo(schedule);
+            }
+        }
+
         @Override
         public void fireConsumerIfNeeded(Cli cli) throws CliValidationException {
             for(InternalCliOption choice : choices){
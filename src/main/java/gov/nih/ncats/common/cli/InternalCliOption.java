@@ -29,12 +29,31 @@ interface InternalCliOption extends CliOption{
 
     void addTo(InternalCliSpecification spec, Boolean forceIsRequired);
 
+    /**
+     * Add the instructions to check this option (and its children)
+     * to the given program.  Only valid after {@link #addTo(InternalCliSpecification, Boolean)}.
+     * @return the node of this option in the program.
+     */
+    int compileTo(ConstraintProgram.Builder program);
+
+    /**
+     * Add the setters of this option (and its children) in depth first order
+     * to the given schedule.  Only valid after {@link #addTo(InternalCliSpecification, Boolean)}.
+     */
+    void addSettersTo(SetterSchedule.Builder schedule);
 
 
-    void addValidator(CliValidator validator);
 
     void validate(Cli cli) throws CliValidationException;
 
+    /**
+     * Check only the constraint of this option (or group) itself,
+     * which is the first thing {@link #validate(Cli)} does before it
+     * checks the children and runs the validators.
+     * @throws CliValidationException if this option's own constraint doesn't hold.
+     */
+    void checkConstraint(Cli cli) throws CliValidationException;
+
     void fireConsumerIfNeeded(Cli cli) throws CliValidationException;
 
     List<String> getSeenList(Cli cli);
@@ -25,4 +25,17 @@ interface InternalCliOptionBuilder extends CliOptionBuilder{
     InternalCliOptionBuilder setRequired(boolean isRequired);
     InternalCliOption build();
     InternalCliOption build(boolean isRequired);
+
+    /**
+     * Build each of the given builders with their own required setting.
+     * @param builders the builders to build; can not be null.
+     * @return a new array of the built options in the same order.
+     */
+    static InternalCliOption[] buildAll(InternalCliOptionBuilder[] builders){
+        InternalCliOption[] built = new InternalCliOption[builders.length];
+        for(int i=0; i< builders.length; i++){
+            built[i] = builders[i].build();
+        }
+        return built;
+    }
 }
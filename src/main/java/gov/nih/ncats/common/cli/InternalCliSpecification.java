@@ -18,17 +18,218 @@
 
 package gov.nih.ncats.common.cli;
 
+import gov.nih.ncats.common.functions.ThrowableFunction;
+import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 
+import java.util.*;
+
 /**
  * Created by katzelda on 5/28/19.
  */
 class InternalCliSpecification {
 
-    private final Options options = new Options();
+    /**
+     * Only the commons-cli parser needs an {@link Options},
+     * so it is built the first time it is asked for.
+     */
+    private volatile Options options;
+    /**
+     * Each registered option in id order.
+     */
+    private final List<Option> optionsById = new ArrayList<>();
+
+    private final Map<String, Integer> idsByShortName = new HashMap<>();
+    private final Map<String, Integer> idsByLongName = new HashMap<>();
+    /**
+     * The converter of the setter of each option in id order,
+     * null if the option's value is only a String.
+     */
+    private final List<ThrowableFunction<String, ?, CliValidationException>> convertersById = new ArrayList<>();
+
+    private final BitSet requiredIds = new BitSet();
+    private final BitSet hasArgIds = new BitSet();
+
+    private OptionNameIndex index;
+
+    private ConstraintProgram constraints;
+
+    private SetterSchedule setters;
 
 
+    /**
+     * Get the commons-cli {@link Options} of all the registered options.
+     * Only valid after all the options are added.
+     */
     Options getInternalOptions(){
-        return options;
+        Options result = options;
+        if(result == null){
+            synchronized (this){
+                result = options;
+                if(result == null){
+                    result = new Options();
+                    for(Option option : optionsById){
+                        result.addOption(option);
+                    }
+                    options = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get all the registered options in id order.
+     * @return an unmodifiable list.
+     */
+    List<Option> getOptions(){
+        return Collections.unmodifiableList(optionsById);
+    }
+
+    /**
+     * Register the given option.  All options have to be registered
+     * before {@link #buildIndex()} is called.
+     * @param option the option to add; this Option is not modified.
+     * @param isRequired whether the option is required given where it is
+     *                   in the option tree, which may be different than what the Option says.
+     * @param converter the function that turns the option's value into the type
+     *                  its setter takes; may be null.
+     * @return the id of this option which is the number of options added before it.
+     * @throws IllegalArgumentException if another option already has the same
+     * short name or the same long name.
+     */
+    int addOption(Option option, boolean isRequired, ThrowableFunction<String, ?, CliValidationException> converter){
+        int id = optionsById.size();
+        Integer existingId = idsByShortName.putIfAbsent(option.getOpt(), id);
+        if(existingId != null){
+            throw new IllegalArgumentException("more than one option is named -" + option.getOpt());
+        }
+        if(option.hasLongOpt()){
+            existingId = idsByLongName.putIfAbsent(option.getLongOpt(), id);
+            if(existingId != null){
+                throw new IllegalArgumentException("options -" + optionsById.get(existingId).getOpt()
+                        + " and -" + option.getOpt() + " both have the long name --" + option.getLongOpt());
+            }
+        }
+        if(option.isRequired() != isRequired){
+            //commons-cli only looks at the Option to tell if it's required
+            option = (Option) option.clone();
+            option.setRequired(isRequired);
+        }
+        optionsById.add(option);
+        convertersById.add(converter);
+        requiredIds.set(id, isRequired);
+        hasArgIds.set(id, option.hasArg());
+        return id;
+    }
+
+    /**
+     * Build the immutable name index over all the registered options,
+     * this must be called once after all the options are added
+     * and before any lookups.
+     */
+    void buildIndex(){
+        index = new OptionNameIndex(optionsById);
+    }
+
+    /**
+     * Compile the constraints of the given option tree,
+     * which must already be added to this specification.
+     */
+    void compileConstraints(InternalCliOption root){
+        constraints = ConstraintProgram.compile(root, this);
+    }
+
+    ConstraintProgram getConstraints(){
+        return constraints;
+    }
+
+    /**
+     * Work out the order to call the setters of the given option tree,
+     * which must already be added to this specification.
+     * @throws IllegalArgumentException if a setter depends on an unknown option
+     * or the setter dependencies have a cycle.
+     */
+    void compileSetters(InternalCliOption root){
+        setters = SetterSchedule.compile(root, this);
+    }
+
+    SetterSchedule getSetters(){
+        return setters;
+    }
+
+    int getOptionCount(){
+        return optionsById.size();
+    }
+
+    Option getOption(int id){
+        return optionsById.get(id);
+    }
+
+    ThrowableFunction<String, ?, CliValidationException> getConverter(int id){
+        return convertersById.get(id);
+    }
+
+    boolean isRequired(int id){
+        return requiredIds.get(id);
+    }
+
+    boolean hasArg(int id){
+        return hasArgIds.get(id);
+    }
+
+    int getShortOption(CharSequence name, int start, int end){
+        return index.getShortOption(name, start, end);
+    }
+
+    /**
+     * Find the id of the option with the given short name, or if there isn't one
+     * the given long name, the same way commons-cli resolves an option name.
+     * @param name the option name, leading hyphens are ignored.
+     * @return the matching option id or {@link OptionNameIndex#NONE} if there is no match.
+     */
+    int resolve(String name){
+        return index.resolve(name, leadingHyphens(name), name.length());
+    }
+
+    int resolve(CharSequence name, int start, int end){
+        return index.resolve(name, start, end);
+    }
+
+    /**
+     * Find the long option the given name in the given range refers to.
+     * @see OptionNameIndex#findLongOption(CharSequence, int, int)
+     */
+    int findLongOption(CharSequence name, int start, int end){
+        return index.findLongOption(name, start, end);
+    }
+
+    /**
+     * Get all the long options that the given name could refer to,
+     * which is only needed to report an ambiguous option.
+     */
+    List<Option> getMatchingLongOptions(CharSequence name, int start, int end){
+        return index.getMatchingLongOptions(name, start, end);
+    }
+
+    /**
+     * Get the longest long option that the given name starts with
+     * (for the {@code -Lvalue} form).
+     * @see OptionNameIndex#getLongPrefix(CharSequence, int, int)
+     */
+    int getLongPrefix(CharSequence name, int start, int end){
+        return index.getLongPrefix(name, start, end);
+    }
+
+    /**
+     * Count the number of leading hyphens (at most 2) the given name has,
+     * which is where the option name actually starts.
+     */
+    static int leadingHyphens(CharSequence name){
+        int length = name.length();
+        if(length > 0 && name.charAt(0) == '-'){
+            return length > 1 && name.charAt(1) == '-' ? 2 : 1;
+        }
+        return 0;
     }
 }
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+/**
+ * Helper methods for using a {@code long[]} as a bitset
+ * of option ids.
+ */
+final class OptionBits {
+
+    private OptionBits(){
+        //can not instantiate
+    }
+
+    /**
+     * Create a new empty bitset big enough to hold the given number of option ids.
+     */
+    static long[] newBits(int numberOfOptions){
+        return new long[(numberOfOptions + 63) >>> 6];
+    }
+
+    static void set(long[] bits, int id){
+        bits[id >>> 6] |= 1L << id;
+    }
+
+    static void clear(long[] bits, int id){
+        bits[id >>> 6] &= ~(1L << id);
+    }
+
+    static boolean get(long[] bits, int id){
+        return (bits[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Is any bit in the given range set.
+     * @param from the first id, inclusive.
+     * @param to the last id, exclusive.
+     */
+    static boolean anySet(long[] bits, int from, int to){
+        if(from >= to){
+            return false;
+        }
+        int first = from >>> 6;
+        int last = (to -1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if(first == last){
+            return (bits[first] & firstMask & lastMask) != 0;
+        }
+        if((bits[first] & firstMask) != 0){
+            return true;
+        }
+        for(int i= first +1; i< last; i++){
+            if(bits[i] != 0){
+                return true;
+            }
+        }
+        return (bits[last] & lastMask) != 0;
+    }
+}
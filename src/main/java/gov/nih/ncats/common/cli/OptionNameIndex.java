@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.apache.commons.cli.Option;
+
+import java.util.*;
+
+/**
+ * Immutable character trie over all the short and long option names
+ * of a specification.  Every node knows which option (if any) has that exact short name,
+ * that exact long name, and which long option is the only one that starts
+ * with that prefix, so exact lookups and unambiguous prefix lookups
+ * only have to walk the characters of the name.
+ *
+ * The trie is stored as flat arrays: the edges out of node {@code n}
+ * are {@code edgeChars[edgeStart[n]] .. edgeChars[edgeStart[n+1] -1]} sorted by character.
+ * Node 0 is the root (the empty name).
+ *
+ * Lookups return the option id, which is the option's index in the list
+ * the index was built from.
+ */
+final class OptionNameIndex {
+
+    /**
+     * Returned by lookups when no option matches.
+     */
+    static final int NONE = -1;
+    /**
+     * Returned by {@link #findLongOption(CharSequence, int, int)}
+     * when more than one long option starts with the given prefix.
+     */
+    static final int AMBIGUOUS = -2;
+
+    private final Option[] options;
+
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+
+    private final int[] shortMatch;
+    private final int[] longMatch;
+    private final int[] longPrefixMatch;
+
+    /**
+     * Create a new index.
+     * @param optionsById the options to index where each option's id is its index
+     *                    in the list; no two options may have the same short name
+     *                    or the same long name.
+     */
+    OptionNameIndex(List<Option> optionsById){
+        options = optionsById.toArray(new Option[optionsById.size()]);
+
+        BuildNode root = new BuildNode();
+        for(int id=0; id< options.length; id++){
+            String name = options[id].getOpt();
+            BuildNode node = root;
+            for(int i=0; i< name.length(); i++){
+                node = node.child(name.charAt(i));
+            }
+            node.shortMatch = id;
+        }
+        for(int optionIndex=0; optionIndex< options.length; optionIndex++){
+            if(!options[optionIndex].hasLongOpt()){
+                continue;
+            }
+            String name = options[optionIndex].getLongOpt();
+            BuildNode node = root;
+            node.addPrefixMatch(optionIndex);
+            for(int i=0; i< name.length(); i++){
+                node = node.child(name.charAt(i));
+                node.addPrefixMatch(optionIndex);
+            }
+            node.longMatch = optionIndex;
+        }
+
+        //number the nodes breadth first so each node's children get consecutive ids
+        List<BuildNode> nodes = new ArrayList<>();
+        nodes.add(root);
+        for(int i=0; i< nodes.size(); i++){
+            nodes.addAll(nodes.get(i).children.values());
+        }
+        int nodeCount = nodes.size();
+        edgeStart = new int[nodeCount +1];
+        edgeChars = new char[nodeCount -1];
+        edgeTargets = new int[nodeCount -1];
+        shortMatch = new int[nodeCount];
+        longMatch = new int[nodeCount];
+        longPrefixMatch = new int[nodeCount];
+
+        int edge=0;
+        for(int i=0; i< nodeCount; i++){
+            BuildNode node = nodes.get(i);
+            shortMatch[i] = node.shortMatch;
+            longMatch[i] = node.longMatch;
+            longPrefixMatch[i] = node.prefixMatch;
+            edgeStart[i] = edge;
+            for(Character c : node.children.keySet()){
+                edgeChars[edge] = c;
+                //breadth first order means the children are numbered in edge order
+                edgeTargets[edge] = edge +1;
+                edge++;
+            }
+        }
+        edgeStart[nodeCount] = edge;
+    }
+
+    /**
+     * Follow the characters in the given range from the root.
+     * @return the node for that name, or {@code -1} if no option name starts with it.
+     */
+    private int walk(CharSequence name, int start, int end){
+        int node = 0;
+        for(int i= start; i< end && node >=0; i++){
+            node = child(node, name.charAt(i));
+        }
+        return node;
+    }
+
+    private int child(int node, char c){
+        int low = edgeStart[node];
+        int high = edgeStart[node+1] -1;
+        while(low <= high){
+            int mid = (low + high) >>> 1;
+            char midChar = edgeChars[mid];
+            if(midChar < c){
+                low = mid +1;
+            }else if(midChar > c){
+                high = mid -1;
+            }else{
+                return edgeTargets[mid];
+            }
+        }
+        return NONE;
+    }
+
+    int getShortOption(CharSequence name, int start, int end){
+        int node = walk(name, start, end);
+        return node < 0 ? NONE : shortMatch[node];
+    }
+
+    int getLongOption(CharSequence name, int start, int end){
+        int node = walk(name, start, end);
+        return node < 0 ? NONE : longMatch[node];
+    }
+
+    /**
+     * Get the short option with the given name, or if there isn't one,
+     * the long option with that name.
+     */
+    int resolve(CharSequence name, int start, int end){
+        int node = walk(name, start, end);
+        if(node < 0){
+            return NONE;
+        }
+        int match = shortMatch[node];
+        return match >=0 ? match : longMatch[node];
+    }
+
+    /**
+     * Find the long option the given name refers to, either because
+     * it is the exact long name, or it is a prefix of only one long name.
+     * @return the option id, {@link #NONE} if there is no match
+     * or {@link #AMBIGUOUS} if the name is a prefix of more than one long option.
+     */
+    int findLongOption(CharSequence name, int start, int end){
+        int node = walk(name, start, end);
+        if(node < 0){
+            return NONE;
+        }
+        int exact = longMatch[node];
+        return exact >=0 ? exact : longPrefixMatch[node];
+    }
+
+    /**
+     * Get all the long options the given name could refer to.
+     * An exact match always wins, otherwise every long option
+     * that starts with the given name is returned.
+     */
+    List<Option> getMatchingLongOptions(CharSequence name, int start, int end){
+        int node = walk(name, start, end);
+        if(node < 0 || longPrefixMatch[node] == NONE){
+            return Collections.emptyList();
+        }
+        if(longMatch[node] >= 0){
+            return Collections.singletonList(options[longMatch[node]]);
+        }
+        if(longPrefixMatch[node] != AMBIGUOUS){
+            return Collections.singletonList(options[longPrefixMatch[node]]);
+        }
+        List<Integer> matches = new ArrayList<>();
+        collectLongMatches(node, matches);
+        //commons-cli reports them in the order they were added which is id order
+        Collections.sort(matches);
+        List<Option> list = new ArrayList<>(matches.size());
+        for(Integer i : matches){
+            list.add(options[i]);
+        }
+        return list;
+    }
+
+    private void collectLongMatches(int node, List<Integer> matches){
+        if(longMatch[node] >= 0){
+            matches.add(longMatch[node]);
+        }
+        for(int edge = edgeStart[node]; edge < edgeStart[node+1]; edge++){
+            collectLongMatches(edgeTargets[edge], matches);
+        }
+    }
+
+    /**
+     * Find the longest long option name that is a prefix of the given name,
+     * considering only prefixes that are at least 2 characters long and
+     * leave at least 2 characters of the name after it; this is how
+     * commons-cli detects the {@code -Lvalue} form.
+     * @return the matching option id or {@link #NONE} if there isn't one.
+     */
+    int getLongPrefix(CharSequence name, int start, int end){
+        int node = 0;
+        int found = NONE;
+        for(int i= start; i < end -2; i++){
+            node = child(node, name.charAt(i));
+            if(node < 0){
+                break;
+            }
+            if(i - start >= 1 && longMatch[node] >= 0){
+                found = longMatch[node];
+            }
+        }
+        return found;
+    }
+
+    private static final class BuildNode{
+        private final TreeMap<Character, BuildNode> children = new TreeMap<>();
+        private int shortMatch = NONE;
+        private int longMatch = NONE;
+        private int prefixMatch = NONE;
+
+        BuildNode child(char c){
+            BuildNode child = children.get(c);
+            if(child == null){
+                child = new BuildNode();
+                children.put(c, child);
+            }
+            return child;
+        }
+
+        void addPrefixMatch(int optionIndex){
+            if(prefixMatch == NONE){
+                prefixMatch = optionIndex;
+            }else if(prefixMatch != optionIndex){
+                prefixMatch = AMBIGUOUS;
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Every value of every option of a parse in one array, grouped by option id
+ * in the order they were given.  The values of option {@code id} are the
+ * elements from {@code offsets[id]} (inclusive) to {@code offsets[id+1]} (exclusive).
+ *
+ * Values may still be undecoded bytes, a value is replaced by its String the
+ * first time it's asked for.
+ */
+final class OptionValues {
+
+    private final CharSequence[] values;
+    private final int[] offsets;
+
+    private OptionValues(CharSequence[] values, int[] offsets) {
+        this.values = values;
+        this.offsets = offsets;
+    }
+
+    /**
+     * The number of values the given option has.
+     */
+    int count(int id){
+        return offsets[id +1] - offsets[id];
+    }
+
+    /**
+     * Get the ith value of the given option.
+     * @return the value or {@code null} if the option has fewer values.
+     */
+    String get(int id, int i){
+        int index = offsets[id] + i;
+        if(i < 0 || index >= offsets[id +1]){
+            return null;
+        }
+        CharSequence value = values[index];
+        if(value instanceof String){
+            return (String) value;
+        }
+        String s = value.toString();
+        values[index] = s;
+        return s;
+    }
+
+    /**
+     * Get an unmodifiable view of all the values of the given option.
+     */
+    List<String> asList(int id){
+        if(count(id) == 0){
+            return Collections.emptyList();
+        }
+        return new ValueList(id);
+    }
+
+    private final class ValueList extends AbstractList<String> implements RandomAccess {
+        private final int id;
+
+        ValueList(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public String get(int index) {
+            if(index < 0 || index >= size()){
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+            }
+            return OptionValues.this.get(id, index);
+        }
+
+        @Override
+        public int size() {
+            return count(id);
+        }
+    }
+
+    /**
+     * Collects values as they are parsed, in any option order.
+     */
+    static final class Builder {
+        private final int[] counts;
+        private CharSequence[] values;
+        private int[] ids;
+        private int size;
+
+        Builder(int numberOfOptions) {
+            counts = new int[numberOfOptions];
+        }
+
+        void add(int id, CharSequence value){
+            if(values == null){
+                values = new CharSequence[8];
+                ids = new int[8];
+            }else if(size == values.length){
+                values = Arrays.copyOf(values, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            values[size] = value;
+            ids[size] = id;
+            size++;
+            counts[id]++;
+        }
+
+        /**
+         * Group the values by option id, which is a counting sort
+         * so it's linear in the number of values.
+         */
+        OptionValues build(){
+            int[] offsets = new int[counts.length +1];
+            for(int id=0; id< counts.length; id++){
+                offsets[id +1] = offsets[id] + counts[id];
+            }
+            CharSequence[] grouped = new CharSequence[size];
+            //counts is reused as the next free slot of each option
+            for(int i=0; i< size; i++){
+                int id = ids[i];
+                grouped[offsets[id +1] - counts[id]] = values[i];
+                counts[id]--;
+            }
+            return new OptionValues(grouped, offsets);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import java.util.Objects;
+
+/**
+ * One problem with the command line of a {@link ParseSession}:
+ * the error message a full parse would report for it and which token
+ * it was found at, if any.
+ */
+public final class ParseDiagnostic {
+
+    private final int tokenIndex;
+    private final String message;
+
+    ParseDiagnostic(int tokenIndex, String message) {
+        this.tokenIndex = tokenIndex;
+        this.message = Objects.requireNonNull(message);
+    }
+
+    /**
+     * Get the index of the token the problem was found at.
+     * @return the token index or {@code -1} if the problem is with
+     * the command line as a whole, such as a missing required option.
+     */
+    public int getTokenIndex() {
+        return tokenIndex;
+    }
+
+    /**
+     * Get the error message.
+     * @return the error message will never be null.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ParseDiagnostic)) return false;
+        ParseDiagnostic that = (ParseDiagnostic) o;
+        return tokenIndex == that.tokenIndex &&
+                message.equals(that.message);
+    }
+
+    @Override
+    public int hashCode() {
+        return tokenIndex * 31 + message.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "ParseDiagnostic{" +
+                "tokenIndex=" + tokenIndex +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+/**
+ * Gets told how long each part of a parse took so it can be
+ * logged or turned into metrics.  All the methods do nothing by default.
+ *
+ * A listener is called by whichever thread is parsing, and setters run on a
+ * {@link CliSpecification#setterExecutor(java.util.concurrent.Executor) setter executor}
+ * are reported from the executor's threads, so listeners have to be thread-safe.
+ * Parses that fail only report the phases that finished before the failure
+ * and then {@link #parseCompleted(boolean, long)}.
+ *
+ * @see CliSpecification#parseListener(ParseListener, int)
+ */
+public interface ParseListener {
+
+    /**
+     * A phase of the parse finished.
+     * @param phase the phase.
+     * @param nanos how long the phase took in nanoseconds.
+     */
+    default void phaseCompleted(ParsePhase phase, long nanos){
+    }
+
+    /**
+     * A validation added to the specification was checked.
+     * @param index the index of the validation in the order they were added.
+     * @param passed {@code true} if the command line passed the validation;
+     *               {@code false} if the parse fails because of it.
+     * @param nanos how long the validation took in nanoseconds.
+     */
+    default void validatorCompleted(int index, boolean passed, long nanos){
+    }
+
+    /**
+     * The setter of an option that was on the command line was called.
+     * @param optionName the name of the option.
+     * @param succeeded {@code false} if the setter threw an exception.
+     * @param nanos how long the setter took in nanoseconds.
+     */
+    default void setterInvoked(String optionName, boolean succeeded, long nanos){
+    }
+
+    /**
+     * The parse finished.
+     * @param succeeded {@code true} if the command line was valid and all the setters were called.
+     * @param nanos how long the whole parse took in nanoseconds.
+     */
+    default void parseCompleted(boolean succeeded, long nanos){
+    }
+}
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+/**
+ * The phases of a parse, in the order they happen,
+ * that are timed for a {@link ParseListener}.
+ */
+public enum ParsePhase {
+    /**
+     * Splitting the arguments into options, their values and trailers.
+     */
+    TOKENIZE,
+    /**
+     * Checking the number of trailers, the required, radio, group and at least one of
+     * constraints and the validations added to the options.
+     */
+    CONSTRAINTS,
+    /**
+     * The validations added to the specification.
+     */
+    VALIDATORS,
+    /**
+     * Calling the setters of the options.
+     */
+    SETTERS,
+    /**
+     * Calling the setters of the trailers.
+     */
+    TRAILER_SETTERS
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import java.util.Objects;
+
+/**
+ * The result of trying to parse a command line which is either
+ * the parsed {@link Cli} or the reason the command line was rejected.
+ *
+ * @see CliSpecification#tryParse(String[])
+ */
+public final class ParseResult {
+
+    private final Cli cli;
+    private final CliValidationException failure;
+
+    private ParseResult(Cli cli, CliValidationException failure) {
+        this.cli = cli;
+        this.failure = failure;
+    }
+
+    static ParseResult success(Cli cli){
+        return new ParseResult(Objects.requireNonNull(cli), null);
+    }
+
+    static ParseResult failure(CliValidationException failure){
+        return new ParseResult(null, Objects.requireNonNull(failure));
+    }
+
+    /**
+     * Did the command line pass.
+     * @return {@code true} if the command line was parsed and passed validation;
+     * {@code false} otherwise.
+     */
+    public boolean isSuccess(){
+        return cli != null;
+    }
+
+    /**
+     * Get the parsed command line.
+     * @return the {@link Cli} will never be null.
+     * @throws IllegalStateException if the parse failed.
+     */
+    public Cli getCli(){
+        if(cli == null){
+            throw new IllegalStateException("parse failed: " + failure.getMessage());
+        }
+        return cli;
+    }
+
+    /**
+     * Get the error message of why the command line was rejected.
+     * @return the error message or {@code null} if the parse was successful.
+     */
+    public String getErrorMessage(){
+        return failure == null ? null : failure.getMessage();
+    }
+
+    /**
+     * Get the exception that describes why the command line was rejected.
+     * To keep rejecting bad input cheap, this exception may not have a stack trace.
+     * @return the {@link CliValidationException} or {@code null} if the parse was successful.
+     */
+    public CliValidationException getFailure(){
+        return failure;
+    }
+
+    /**
+     * Get the parsed command line or throw the failure.
+     * @return the {@link Cli} will never be null.
+     * @throws CliValidationException if the parse failed.
+     */
+    public Cli getOrThrow() throws CliValidationException{
+        if(failure != null){
+            throw failure.withStackTrace();
+        }
+        return cli;
+    }
+
+    @Override
+    public String toString() {
+        return cli != null ? "ParseResult{success}" : "ParseResult{failure=" + failure.getMessage() + "}";
+    }
+}
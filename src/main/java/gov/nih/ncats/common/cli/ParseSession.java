@@ -0,0 +1,406 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import gov.nih.ncats.common.cli.ArgumentParser.TokenRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A command line that is edited a token at a time, for an interactive shell
+ * that shows what is wrong with the command line as it is typed.
+ *
+ * Each token remembers the parser state it started in, which options it set and any error.
+ * After an edit, only the tokens from the edit on are parsed again, and only until
+ * a token starts in the same state as it did before, since the rest of the tokens
+ * can't mean anything different.  The options a token set are counted,
+ * and only when an option is seen for the first time or not at all anymore are the
+ * constraints that option takes part in re-evaluated (see {@link ConstraintProgram.Incremental}).
+ * So checking a command line after an edit doesn't depend on how many options the specification has.
+ *
+ * The tokens are interpreted the same way {@link CompiledCliSpecification#parse(String[])} does
+ * including the trailers at the end, but nothing throws, every problem is reported
+ * instead of only the first one, the option validators are not run, arg files are not expanded
+ * and no setters are ever invoked.  {@link #toParseResult()} does the full parse
+ * of the current tokens, still without invoking the setters.
+ *
+ * A ParseSession is not thread safe.
+ *
+ * @see CompiledCliSpecification#newSession()
+ */
+public final class ParseSession {
+
+    private final CompiledCliSpecification compiled;
+    private final InternalCliSpecification spec;
+    private final int numberOfTrailers;
+    private final VariadicTrailer variadicTrailer;
+
+    private final ArgumentParser parser;
+
+    private final List<String> tokens = new ArrayList<>();
+    /**
+     * What each token did, in the same order as the tokens;
+     * null if the token is a trailer or still has to be parsed.
+     */
+    private final List<TokenRecord> records = new ArrayList<>();
+    /**
+     * The number of tokens at the start that are parsed, the rest are the trailers.
+     */
+    private int parsedTokens;
+    private int tokensWithErrors;
+
+    /**
+     * How many times each option is set by the parsed tokens.
+     */
+    private final int[] occurrences;
+    /**
+     * Bitset of the options that are set at least once, which is
+     * what {@link #cli} uses to tell if an option is present.
+     */
+    private final long[] present;
+    /**
+     * Only tells which options are present, which is all the constraints look at.
+     */
+    private final Cli cli;
+    private final ConstraintProgram.Incremental constraints;
+
+    ParseSession(CompiledCliSpecification compiled, InternalCliSpecification spec,
+                 int numberOfTrailers, VariadicTrailer variadicTrailer) {
+        this.compiled = compiled;
+        this.spec = spec;
+        this.numberOfTrailers = numberOfTrailers;
+        this.variadicTrailer = variadicTrailer;
+        int numberOfOptions = spec.getOptionCount();
+        parser = new ArgumentParser(spec);
+        occurrences = new int[numberOfOptions];
+        present = OptionBits.newBits(numberOfOptions);
+        cli = new Cli(spec, present, new OptionValues.Builder(numberOfOptions).build(), new String[0]);
+        constraints = new ConstraintProgram.Incremental(spec.getConstraints(), cli);
+    }
+
+    /**
+     * Get the number of tokens.
+     * @return the number of tokens including the trailers.
+     */
+    public int size(){
+        return tokens.size();
+    }
+
+    /**
+     * Get the token at the given index.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public String getToken(int index){
+        return tokens.get(index);
+    }
+
+    /**
+     * Get all the tokens.
+     * @return an unmodifiable view of the tokens that changes as this session is edited.
+     */
+    public List<String> getTokens(){
+        return Collections.unmodifiableList(tokens);
+    }
+
+    /**
+     * Replace the token at the given index.
+     * @param index the index of the token to replace.
+     * @param token the new token; can not be null.
+     * @return this.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     * @throws NullPointerException if token is null.
+     */
+    public ParseSession set(int index, String token){
+        Objects.requireNonNull(token);
+        tokens.set(index, token);
+        discard(index);
+        update(index);
+        return this;
+    }
+
+    /**
+     * Insert a token at the given index; the token at that index,
+     * if any, and all the tokens after it are moved over by one.
+     * @param index the index to insert the token at, from 0 to {@link #size()} inclusive.
+     * @param token the token to insert; can not be null.
+     * @return this.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     * @throws NullPointerException if token is null.
+     */
+    public ParseSession insert(int index, String token){
+        Objects.requireNonNull(token);
+        tokens.add(index, token);
+        records.add(index, null);
+        if(index < parsedTokens){
+            parsedTokens++;
+        }
+        update(index);
+        return this;
+    }
+
+    /**
+     * Add a token to the end.
+     * @param token the token to add; can not be null.
+     * @return this.
+     * @throws NullPointerException if token is null.
+     */
+    public ParseSession add(String token){
+        return insert(tokens.size(), token);
+    }
+
+    /**
+     * Remove the token at the given index.
+     * @param index the index of the token to remove.
+     * @return this.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public ParseSession remove(int index){
+        tokens.remove(index);
+        removeRecord(index);
+        update(index);
+        return this;
+    }
+
+    /**
+     * Replace all the tokens.  Only the tokens between the start and the end
+     * that are the same as before are changed, so this is just as quick as
+     * editing those tokens, which makes it easy to re-tokenize the whole line
+     * after every key press.
+     * @param newTokens the new tokens; can not be null or contain null.
+     * @return this.
+     * @throws NullPointerException if newTokens is or has null.
+     */
+    public ParseSession setTokens(String... newTokens){
+        return setTokens(Arrays.asList(newTokens));
+    }
+
+    /**
+     * Replace all the tokens.
+     * @param newTokens the new tokens; can not be null or contain null.
+     * @return this.
+     * @throws NullPointerException if newTokens is or has null.
+     *
+     * @see #setTokens(String...)
+     */
+    public ParseSession setTokens(List<String> newTokens){
+        for(String token : newTokens){
+            Objects.requireNonNull(token);
+        }
+        int oldSize = tokens.size();
+        int newSize = newTokens.size();
+        int prefix = 0;
+        while(prefix < oldSize && prefix < newSize && tokens.get(prefix).equals(newTokens.get(prefix))){
+            prefix++;
+        }
+        int suffix = 0;
+        while(suffix < oldSize - prefix && suffix < newSize - prefix
+                && tokens.get(oldSize - suffix -1).equals(newTokens.get(newSize - suffix -1))){
+            suffix++;
+        }
+        for(int i= oldSize - suffix -1; i >= prefix; i--){
+            tokens.remove(i);
+            removeRecord(i);
+        }
+        for(int i= prefix; i< newSize - suffix; i++){
+            tokens.add(i, newTokens.get(i));
+            records.add(i, null);
+            if(i < parsedTokens){
+                parsedTokens++;
+            }
+        }
+        update(prefix);
+        return this;
+    }
+
+    /**
+     * Is the command line valid as far as this session checks it:
+     * every token can be parsed, the last option isn't missing its value,
+     * there are enough trailers and all the constraints hold.
+     * This doesn't create any diagnostics.
+     * @return {@code true} if {@link #getDiagnostics()} is empty; {@code false} otherwise.
+     */
+    public boolean isValid(){
+        return tokensWithErrors == 0
+                && !isMissingLastValue()
+                && tokens.size() >= numberOfTrailers
+                && checkVariadicTrailer() == null
+                && constraints.isValid();
+    }
+
+    /**
+     * Get everything that is wrong with the current command line.
+     * Problems with a token come first in token order, then problems with the end
+     * of the command line and then the constraints that don't hold in the order
+     * walking the option tree finds them.
+     * @return a new list of the {@link ParseDiagnostic}s which is empty if the command line is valid.
+     */
+    public List<ParseDiagnostic> getDiagnostics(){
+        List<ParseDiagnostic> diagnostics = new ArrayList<>();
+        if(tokensWithErrors > 0){
+            for(int i=0; i< parsedTokens; i++){
+                String error = records.get(i).error;
+                if(error != null){
+                    diagnostics.add(new ParseDiagnostic(i, error));
+                }
+            }
+        }
+        if(isMissingLastValue()){
+            diagnostics.add(new ParseDiagnostic(parsedTokens -1,
+                    ArgumentParser.missingArgument(spec, records.get(parsedTokens -1).exitState)));
+        }
+        if(tokens.size() < numberOfTrailers){
+            diagnostics.add(new ParseDiagnostic(-1, "not enough arguments"));
+        }
+        String variadicError = checkVariadicTrailer();
+        if(variadicError != null){
+            diagnostics.add(new ParseDiagnostic(-1, variadicError));
+        }
+        if(!constraints.isValid()){
+            List<String> messages = new ArrayList<>();
+            constraints.collectFailures(messages);
+            for(String message : messages){
+                diagnostics.add(new ParseDiagnostic(-1, message));
+            }
+        }
+        return diagnostics;
+    }
+
+    /**
+     * Fully parse and validate the current tokens, including the option validators,
+     * without invoking any setters.  This is a normal parse that doesn't reuse anything.
+     * @return a new {@link ParseResult}.
+     */
+    public ParseResult toParseResult(){
+        return compiled.tryParse(tokens.toArray(new String[tokens.size()]), false, false);
+    }
+
+    @Override
+    public String toString() {
+        return "ParseSession{tokens=" + tokens + '}';
+    }
+
+    private boolean isMissingLastValue(){
+        return parsedTokens > 0 && records.get(parsedTokens -1).exitState >= 0;
+    }
+
+    /**
+     * Check the number of positional arguments in the parsed tokens.
+     * @return the error message or null if there is no variadic trailer or it has a valid number of arguments.
+     */
+    private String checkVariadicTrailer(){
+        if(variadicTrailer == null){
+            return null;
+        }
+        int count =0;
+        for(int i=0; i< parsedTokens; i++){
+            if(records.get(i).positional){
+                count++;
+            }
+        }
+        try{
+            variadicTrailer.validate(count);
+            return null;
+        }catch(CliValidationException e){
+            return e.getMessage();
+        }
+    }
+
+    private void removeRecord(int index){
+        discard(index);
+        records.remove(index);
+        if(index < parsedTokens){
+            parsedTokens--;
+        }
+    }
+
+    /**
+     * Parse the tokens that have to be parsed after an edit.
+     * @param from the index of the first token that was changed, inserted or moved.
+     */
+    private void update(int from){
+        int end = Math.max(0, tokens.size() - numberOfTrailers);
+        //the end of the command line moved back so these are now trailers
+        for(int i= end; i< parsedTokens; i++){
+            discard(i);
+        }
+        int validEnd = Math.min(parsedTokens, end);
+        int i = Math.min(from, validEnd);
+        int state = i == 0 ? ArgumentParser.READY : records.get(i -1).exitState;
+        while(i < end){
+            TokenRecord record = records.get(i);
+            if(record != null && i < validEnd && record.entryState == state){
+                //this token and all the ones after it up to the old end mean what they did before
+                i = validEnd;
+                state = records.get(i -1).exitState;
+                continue;
+            }
+            if(record == null){
+                record = new TokenRecord();
+                records.set(i, record);
+            }else{
+                unapply(record);
+            }
+            state = parser.parseToken(tokens.get(i), state, record);
+            apply(record);
+            i++;
+        }
+        parsedTokens = end;
+    }
+
+    /**
+     * Undo what the token at the given index did, if anything, and forget it.
+     */
+    private void discard(int index){
+        TokenRecord record = records.get(index);
+        if(record != null){
+            unapply(record);
+            records.set(index, null);
+        }
+    }
+
+    private void apply(TokenRecord record){
+        for(int i=0; i< record.getNumberOfOptions(); i++){
+            int id = record.getOption(i);
+            if(occurrences[id]++ == 0){
+                OptionBits.set(present, id);
+                constraints.optionChanged(id);
+            }
+        }
+        if(record.error != null){
+            tokensWithErrors++;
+        }
+    }
+
+    private void unapply(TokenRecord record){
+        for(int i=0; i< record.getNumberOfOptions(); i++){
+            int id = record.getOption(i);
+            if(--occurrences[id] == 0){
+                OptionBits.clear(present, id);
+                constraints.optionChanged(id);
+            }
+        }
+        if(record.error != null){
+            tokensWithErrors--;
+        }
+    }
+}
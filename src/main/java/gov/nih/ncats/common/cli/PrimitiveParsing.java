@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+package gov.nih.ncats.common.cli;
+
+/**
+ * Parses option values into primitives without allocating anything
+ * in the common cases.
+ */
+final class PrimitiveParsing {
+
+    /**
+     * Powers of ten that are exactly representable as doubles.
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private PrimitiveParsing(){
+        //can not instantiate
+    }
+
+    /**
+     * Parse a double the same way as {@link Double#parseDouble(String)}.
+     * Plain decimals with at most 15 significant digits and a small exponent,
+     * which is almost everything given on a command line, are parsed directly since
+     * both the digits and the power of ten are exact doubles so one multiply or divide
+     * is correctly rounded.  Anything else is handed to {@link Double#parseDouble(String)}.
+     * @throws NumberFormatException if the value is not a double.
+     */
+    static double parseDouble(String value){
+        if(value == null){
+            throw new NumberFormatException("null");
+        }
+        int length = value.length();
+        int i = 0;
+        boolean negative = false;
+        if(i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')){
+            negative = value.charAt(i) == '-';
+            i++;
+        }
+        long digits = 0;
+        int numberOfDigits = 0;
+        int exponent = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        for(; i< length; i++){
+            char c = value.charAt(i);
+            if(c >= '0' && c <= '9'){
+                seenDigit = true;
+                if(digits != 0 || c != '0'){
+                    if(++numberOfDigits > 15){
+                        return Double.parseDouble(value);
+                    }
+                    digits = digits * 10 + (c - '0');
+                }
+                if(seenPoint){
+                    exponent--;
+                }
+            }else if(c == '.' && !seenPoint){
+                seenPoint = true;
+            }else{
+                break;
+            }
+        }
+        if(!seenDigit){
+            return Double.parseDouble(value);
+        }
+        if(i < length && (value.charAt(i) == 'e' || value.charAt(i) == 'E')){
+            i++;
+            boolean negativeExponent = false;
+            if(i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')){
+                negativeExponent = value.charAt(i) == '-';
+                i++;
+            }
+            int exponentStart = i;
+            int explicitExponent = 0;
+            for(; i< length && i - exponentStart < 4; i++){
+                char c = value.charAt(i);
+                if(c < '0' || c > '9'){
+                    break;
+                }
+                explicitExponent = explicitExponent * 10 + (c - '0');
+            }
+            if(i == exponentStart){
+                return Double.parseDouble(value);
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if(i != length){
+            //suffixes, whitespace, NaN, hex or too long an exponent
+            return Double.parseDouble(value);
+        }
+        double result;
+        if(digits == 0){
+            result = 0;
+        }else if(exponent >= 0 && exponent < POWERS_OF_TEN.length){
+            result = digits * POWERS_OF_TEN[exponent];
+        }else if(exponent < 0 && -exponent < POWERS_OF_TEN.length){
+            result = digits / POWERS_OF_TEN[-exponent];
+        }else{
+            return Double.parseDouble(value);
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Parse a boolean which must be {@code true} or {@code false} ignoring case;
+     * a flag, which has no value, is {@code true}.
+     * @throws IllegalArgumentException if the value is not a boolean.
+     */
+    static boolean parseBoolean(String value){
+        if(value == null || "true".equalsIgnoreCase(value)){
+            return true;
+        }
+        if("false".equalsIgnoreCase(value)){
+            return false;
+        }
+        throw new IllegalArgumentException("not a boolean value: " + value);
+    }
+}
@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes a urlencoded query string ({@code key=value&key2=value2})
+ * directly into an {@link ArgumentParser} in one pass over the characters.
+ * Each key is the name of an option, and is looked up in the option index straight from the query
+ * (or from a reused buffer if it has to be percent decoded) so there is no intermediate
+ * argument array.  Values are percent decoded the same way as {@link java.net.URLDecoder}
+ * using UTF-8.
+ *
+ * A key without a value is a flag.  Since keys and values are already split,
+ * a value that looks like an option is still a value.
+ *
+ * The query can instead be decoded into an argument array with {@link #toArguments(CharSequence)}
+ * for the commons-cli parser, which needs one.
+ *
+ * A new decoder must be created for each parse.
+ */
+final class QueryStringDecoder {
+
+    private final ArgumentParser parser;
+    /**
+     * Reused to percent decode keys and values.
+     */
+    private final StringBuilder decoded = new StringBuilder();
+    /**
+     * Holds the bytes of a run of percent encoded non-ASCII characters.
+     */
+    private byte[] encodedBytes;
+
+    /**
+     * Create a new decoder.
+     * @param parser the parser to decode into; may be null if only
+     *               {@link #toArguments(CharSequence)} is used.
+     */
+    QueryStringDecoder(ArgumentParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Decode the given query into the command line it stands for,
+     * {@code -key value} for each parameter with a value and {@code -key} for each without.
+     * @param query the raw query string, without the leading {@code ?};
+     *              may be null which is the same as an empty query.
+     * @return a new array of the arguments.
+     * @throws CliValidationException if the query can not be decoded.
+     */
+    String[] toArguments(CharSequence query) throws CliValidationException {
+        List<String> args = new ArrayList<>();
+        int length = query == null ? 0 : query.length();
+        int start = 0;
+        while(start < length){
+            int end = indexOf(query, '&', start, length);
+            if(end > start){
+                int equals = indexOf(query, '=', start, end);
+                args.add("-" + decodeToString(query, start, equals));
+                if(equals < end){
+                    args.add(decodeToString(query, equals + 1, end));
+                }
+            }
+            start = end + 1;
+        }
+        return args.toArray(new String[args.size()]);
+    }
+
+    /**
+     * Parse the given query.
+     * @param query the raw query string, without the leading {@code ?};
+     *              may be null which is the same as an empty query.
+     * @return a new {@link Cli}.
+     * @throws CliValidationException if the query can not be decoded or parsed.
+     */
+    Cli parse(CharSequence query) throws CliValidationException {
+        int length = query == null ? 0 : query.length();
+        int start = 0;
+        while(start < length){
+            int end = indexOf(query, '&', start, length);
+            if(end > start){
+                handleParameter(query, start, end);
+            }
+            start = end + 1;
+        }
+        return parser.finish();
+    }
+
+    private void handleParameter(CharSequence query, int start, int end) throws CliValidationException {
+        int equals = indexOf(query, '=', start, end);
+        if(needsDecoding(query, start, equals)){
+            decode(query, start, equals);
+            acceptOption(decoded, 0, decoded.length(), query, start, end);
+        }else{
+            acceptOption(query, start, equals, query, start, end);
+        }
+        if(equals < end && parser.isExpectingValue()){
+            int valueStart = equals + 1;
+            if(needsDecoding(query, valueStart, end)){
+                decode(query, valueStart, end);
+                parser.acceptValue(decoded.toString());
+            }else{
+                parser.acceptValue(query.subSequence(valueStart, end).toString());
+            }
+        }
+    }
+
+    private void acceptOption(CharSequence name, int start, int end,
+                              CharSequence query, int parameterStart, int parameterEnd) throws CliValidationException {
+        //hyphens in front of the key are allowed but not needed
+        int nameStart = start;
+        while(nameStart < end && nameStart < start + 2 && name.charAt(nameStart) == '-'){
+            nameStart++;
+        }
+        if(nameStart == end){
+            throw CliValidationException.stackless("Unrecognized option: -" + query.subSequence(parameterStart, parameterEnd));
+        }
+        parser.acceptOption(name, nameStart, end);
+    }
+
+    private static int indexOf(CharSequence s, char c, int start, int end){
+        for(int i= start; i< end; i++){
+            if(s.charAt(i) == c){
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private String decodeToString(CharSequence s, int start, int end) throws CliValidationException {
+        if(!needsDecoding(s, start, end)){
+            return s.subSequence(start, end).toString();
+        }
+        decode(s, start, end);
+        return decoded.toString();
+    }
+
+    private static boolean needsDecoding(CharSequence s, int start, int end){
+        for(int i= start; i< end; i++){
+            char c = s.charAt(i);
+            if(c == '%' || c == '+'){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Percent decode the given range into {@link #decoded}.
+     */
+    private void decode(CharSequence s, int start, int end) throws CliValidationException {
+        decoded.setLength(0);
+        int i = start;
+        while(i < end){
+            char c = s.charAt(i);
+            if(c == '+'){
+                decoded.append(' ');
+                i++;
+            }else if(c != '%'){
+                decoded.append(c);
+                i++;
+            }else{
+                //a run of %XX is the UTF-8 bytes of one or more characters
+                int numberOfBytes = 0;
+                while(i < end && s.charAt(i) == '%'){
+                    if(i + 2 >= end){
+                        throw CliValidationException.stackless("Incomplete trailing escape (%) pattern");
+                    }
+                    int value = (hexValue(s.charAt(i +1)) << 4) | hexValue(s.charAt(i +2));
+                    if(encodedBytes == null || numberOfBytes == encodedBytes.length){
+                        byte[] bigger = new byte[numberOfBytes == 0 ? 16 : numberOfBytes * 2];
+                        if(encodedBytes != null){
+                            System.arraycopy(encodedBytes, 0, bigger, 0, numberOfBytes);
+                        }
+                        encodedBytes = bigger;
+                    }
+                    encodedBytes[numberOfBytes++] = (byte) value;
+                    i += 3;
+                }
+                appendUtf8(numberOfBytes);
+            }
+        }
+    }
+
+    private void appendUtf8(int numberOfBytes){
+        for(int i=0; i< numberOfBytes; i++){
+            if(encodedBytes[i] < 0){
+                decoded.append(StandardCharsets.UTF_8.decode(ByteBuffer.wrap(encodedBytes, 0, numberOfBytes)));
+                return;
+            }
+        }
+        //all ASCII
+        for(int i=0; i< numberOfBytes; i++){
+            decoded.append((char) encodedBytes[i]);
+        }
+    }
+
+    private static int hexValue(char c) throws CliValidationException {
+        int value = Character.digit(c, 16);
+        if(value < 0){
+            throw CliValidationException.stackless("Illegal hex characters in escape (%) pattern");
+        }
+        return value;
+    }
+}
@@ -65,15 +65,15 @@ class RadioCliOption implements InternalCliOptionBuilder{
     @Override
     public InternalCliOption build() {
         return new RadioInternalCliOption(isRequired,
-                Arrays.stream(choices).map(InternalCliOptionBuilder::build).toArray(i-> new InternalCliOption[i]),
-                validators);
+                InternalCliOptionBuilder.buildAll(choices),
+                CliValidator.copyOf(validators));
     }
 
     @Override
     public InternalCliOption build(boolean isRequired) {
         return new RadioInternalCliOption(isRequired,
-                Arrays.stream(choices).map(InternalCliOptionBuilder::build).toArray(i-> new InternalCliOption[i]),
-                validators);
+                InternalCliOptionBuilder.buildAll(choices),
+                CliValidator.copyOf(validators));
 
     }
 
@@ -83,6 +83,12 @@ class RadioCliOption implements InternalCliOptionBuilder{
         private final boolean isRequired;
 
         private final List<CliValidator> validators;
+        /**
+         * Option ids are handed out in tree order so the options under choice {@code i}
+         * have the ids {@code choiceStart[i] .. choiceStart[i+1] -1};
+         * set when this option is added to the specification.
+         */
+        private int[] choiceStart;
 
         public RadioInternalCliOption(boolean isRequired, InternalCliOption[] choices,
                                       List<CliValidator> validators) {
@@ -92,10 +98,6 @@ class RadioCliOption implements InternalCliOptionBuilder{
 
         }
 
-        @Override
-        public void addValidator(CliValidator validator) {
-            validators.add(validator);
-        }
         @Override
         public Optional<String> generateUsage(boolean force) {
             if(!force && !isRequired){
@@ -113,9 +115,34 @@ class RadioCliOption implements InternalCliOptionBuilder{
 
         @Override
         public void addTo(InternalCliSpecification spec, Boolean forceIsRequired) {
-            for(InternalCliOption choice : choices){
-                choice.addTo(spec, false);
+            choiceStart = new int[choices.length +1];
+            for(int i=0; i< choices.length; i++){
+                choiceStart[i] = spec.getOptionCount();
+                choices[i].addTo(spec, false);
+            }
+            choiceStart[choices.length] = spec.getOptionCount();
+        }
+
+        @Override
+        public int compileTo(ConstraintProgram.Builder program) {
+            int[] nodes = new int[choices.length];
+            for(int i=0; i< choices.length; i++){
+                nodes[i] = choices[i].compileTo(program);
+            }
+            return program.choice(this, ConstraintProgram.RADIO, isRequired, nodes, validators);
+        }
+
+        /**
+         * Count how many of our choices have at least one option seen.
+         */
+        private int countSeenChoices(Cli cli){
+            int seen=0;
+            for(int i=0; i< choices.length; i++){
+                if(cli.isAnyPresent(choiceStart[i], choiceStart[i+1])){
+                    seen++;
+                }
             }
+            return seen;
         }
 
         @Override
@@ -147,13 +174,7 @@ class RadioCliOption implements InternalCliOptionBuilder{
 
         @Override
         public void validate(Cli cli) throws CliValidationException {
-            List<String> seen = getSeenList(cli);
-            if(seen.size() > 1){
-                throw new CliValidationException("Radio option must only select at most 1 choice but found " + seen);
-            }
-            if(isRequired && seen.size() ==0){
-                throw new CliValidationException("Radio option was required but did not find selected option choice");
-            }
+            checkConstraint(cli);
             for(InternalCliOption choice : choices){
                 choice.validate(cli);
             }
@@ -161,6 +182,17 @@ class RadioCliOption implements InternalCliOptionBuilder{
                 v.validate(cli);
             }
         }
+
+        @Override
+        public void checkConstraint(Cli cli) throws CliValidationException {
+            int seen = countSeenChoices(cli);
+            if(seen > 1){
+                throw CliValidationException.stackless("Radio option must only select at most 1 choice but found " + getSeenList(cli));
+            }
+            if(isRequired && seen ==0){
+                throw CliValidationException.stackless("Radio option was required but did not find selected option choice");
+            }
+        }
         @Override
         public List<String> getSeenList(Cli cli) {
             List<String> list = new ArrayList<>();
@@ -173,6 +205,13 @@ class RadioCliOption implements InternalCliOptionBuilder{
             }
             return list;
         }
+        @Override
+        public void addSettersTo(SetterSchedule.Builder schedule) {
+            for(InternalCliOption choice : choices){
+                choice.addSettersTo(schedule);
+            }
+        }
+
         @Override
         public void fireConsumerIfNeeded(Cli cli) throws CliValidationException {
             for(InternalCliOption choice : choices){
@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+package gov.nih.ncats.common.cli;
+
+import gov.nih.ncats.common.functions.ThrowableConsumer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * The order to call the option setters in, compiled once from the option tree.
+ *
+ * Each option with a setter is a node in a dependency graph.  Options that declared
+ * setter dependencies wait on the setters of those options, and options that didn't
+ * declare anything (and aren't independent) wait on the previous such option so those keep
+ * the depth first order they have always been called in.
+ *
+ * Without an executor the setters are called one at a time on the parsing thread
+ * in a topological order that is as close to depth first order as the dependencies allow.
+ * With an executor, each setter is run on it as soon as its dependencies are done so the
+ * time it takes is the longest chain of dependent setters instead of the sum of all of them.
+ */
+final class SetterSchedule {
+
+    private final List<ThrowableConsumer<Cli, CliValidationException>> setters;
+    /**
+     * The option id of each node.
+     */
+    private final int[] ids;
+    /**
+     * The option name of each node to report to listeners.
+     */
+    private final String[] names;
+    /**
+     * The nodes each node waits on.
+     */
+    private final int[][] dependencies;
+    /**
+     * The nodes in topological order.
+     */
+    private final int[] order;
+
+    private SetterSchedule(Builder builder){
+        InternalCliSpecification spec = builder.spec;
+        int n = builder.setters.size();
+        setters = builder.setters;
+        ids = new int[n];
+        names = new String[n];
+        //option id -> node
+        int[] nodesById = new int[spec.getOptionCount()];
+        Arrays.fill(nodesById, -1);
+        for(int node=0; node< n; node++){
+            int id = builder.ids.get(node);
+            ids[node] = id;
+            names[node] = spec.getOption(id).getOpt();
+            nodesById[id] = node;
+        }
+        dependencies = new int[n][];
+        List<List<Integer>> dependents = new ArrayList<>(n);
+        int[] numberOfDependencies = new int[n];
+        for(int node=0; node< n; node++){
+            dependents.add(new ArrayList<>());
+        }
+        int previousOrdered = -1;
+        for(int node=0; node< n; node++){
+            String[] names = builder.dependencyNames.get(node);
+            List<Integer> deps = new ArrayList<>();
+            if(names == null){
+                if(previousOrdered >=0){
+                    deps.add(previousOrdered);
+                }
+                previousOrdered = node;
+            }else{
+                for(String name : names){
+                    int id = spec.resolve(name);
+                    if(id < 0){
+                        throw new IllegalArgumentException("setter depends on unknown option " + name);
+                    }
+                    //an option without a setter has nothing to wait on
+                    int dependency = nodesById[id];
+                    if(dependency >=0 && dependency != node && !deps.contains(dependency)){
+                        deps.add(dependency);
+                    }
+                }
+            }
+            dependencies[node] = new int[deps.size()];
+            for(int i=0; i< deps.size(); i++){
+                int dependency = deps.get(i);
+                dependencies[node][i] = dependency;
+                dependents.get(dependency).add(node);
+            }
+            numberOfDependencies[node] = deps.size();
+        }
+        //Kahn's algorithm always taking the earliest ready node so without dependencies it's depth first order
+        order = new int[n];
+        PriorityQueue<Integer> ready = new PriorityQueue<>();
+        for(int node=0; node< n; node++){
+            if(numberOfDependencies[node] == 0){
+                ready.add(node);
+            }
+        }
+        int count = 0;
+        while(!ready.isEmpty()){
+            int node = ready.poll();
+            order[count++] = node;
+            for(int dependent : dependents.get(node)){
+                if(--numberOfDependencies[dependent] == 0){
+                    ready.add(dependent);
+                }
+            }
+        }
+        if(count != n){
+            throw new IllegalArgumentException("setter dependencies have a cycle");
+        }
+    }
+
+    static SetterSchedule compile(InternalCliOption root, InternalCliSpecification spec){
+        Builder builder = new Builder(spec);
+        root.addSettersTo(builder);
+        return new SetterSchedule(builder);
+    }
+
+    /**
+     * Call the setters of all the options present in the given command line.
+     * @param cli the parsed command line.
+     * @param executor the executor to run the setters on; if null they are
+     *                 all called on this thread.
+     * @param listener the listener to tell about each setter that is called; may be null.
+     * @throws CliValidationException the exception thrown by the first setter (in depth
+     * first order) that failed; setters that depend on a setter that failed are not called.
+     */
+    void fire(Cli cli, Executor executor, ParseListener listener) throws CliValidationException {
+        if(executor == null || setters.size() < 2){
+            for(int node : order){
+                fire(node, cli, listener);
+            }
+            return;
+        }
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[setters.size()];
+        CliValidationException[] failures = new CliValidationException[setters.size()];
+        for(int node : order){
+            Runnable task = () -> {
+                try {
+                    fire(node, cli, listener);
+                } catch (CliValidationException e) {
+                    failures[node] = e;
+                    throw new CompletionException(e);
+                }
+            };
+            int[] deps = dependencies[node];
+            if(deps.length == 0){
+                futures[node] = CompletableFuture.runAsync(task, executor);
+            }else if(deps.length == 1){
+                futures[node] = futures[deps[0]].thenRunAsync(task, executor);
+            }else{
+                CompletableFuture<?>[] waitOn = new CompletableFuture<?>[deps.length];
+                for(int i=0; i< deps.length; i++){
+                    waitOn[i] = futures[deps[i]];
+                }
+                futures[node] = CompletableFuture.allOf(waitOn).thenRunAsync(task, executor);
+            }
+        }
+        try {
+            CompletableFuture.allOf(futures).join();
+        }catch(CompletionException e){
+            for(CliValidationException failure : failures){
+                if(failure != null){
+                    throw failure;
+                }
+            }
+            Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException){
+                throw (RuntimeException) cause;
+            }
+            if(cause instanceof Error){
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private void fire(int node, Cli cli, ParseListener listener) throws CliValidationException {
+        ThrowableConsumer<Cli, CliValidationException> setter = setters.get(node);
+        //the setter only does something if the option is present
+        if(listener == null || !cli.isPresent(ids[node])){
+            setter.accept(cli);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            setter.accept(cli);
+            succeeded = true;
+        }finally{
+            listener.setterInvoked(names[node], succeeded, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Collects the setters of an option tree in depth first order.
+     */
+    static final class Builder {
+        private final InternalCliSpecification spec;
+        private final List<ThrowableConsumer<Cli, CliValidationException>> setters = new ArrayList<>();
+        private final List<Integer> ids = new ArrayList<>();
+        private final List<String[]> dependencyNames = new ArrayList<>();
+
+        private Builder(InternalCliSpecification spec) {
+            this.spec = spec;
+        }
+
+        /**
+         * Add the setter of an option.
+         * @param id the option id.
+         * @param dependencyNames the names of the options whose setters have to be called
+         *                        before this one, an empty array if the setter is independent,
+         *                        or null if it has to be called in order with the other setters
+         *                        that didn't say.
+         * @param setter calls the option's setter if the option is present.
+         */
+        void add(int id, String[] dependencyNames, ThrowableConsumer<Cli, CliValidationException> setter){
+            ids.add(id);
+            this.dependencyNames.add(dependencyNames);
+            setters.add(setter);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+
+package gov.nih.ncats.common.cli;
+
+/**
+ * Wraps text into lines for the usage in one pass over the characters.
+ * The text is scanned in place and each line is appended to the output
+ * as a range so no intermediate Strings are made.
+ *
+ * The lines are broken the same way HelpFormatter does:
+ * after the last whitespace that fits in the width, and lines after the first
+ * are indented by the tab stop.  A word longer than the width is not broken.
+ */
+final class TextWrapper {
+
+    private static final String NEW_LINE = String.format("%n");
+
+    private TextWrapper(){
+        //can not instantiate
+    }
+
+    /**
+     * Append the given text wrapped to the given width.
+     * @param out the StringBuilder to append to.
+     * @param width the number of characters of text on each line, not counting the tab stop.
+     * @param nextLineTabStop the number of spaces to indent every line after the first.
+     * @param text the text to wrap.
+     */
+    static void wrap(StringBuilder out, int width, int nextLineTabStop, CharSequence text){
+        int length = text.length();
+        int pos = findWrapPos(text, 0, length, width);
+        if(pos == -1){
+            out.append(text, 0, rTrim(text, 0, length));
+            return;
+        }
+        out.append(text, 0, rTrim(text, 0, pos)).append(NEW_LINE);
+
+        //the rest of the text is trimmed the same way as String.trim()
+        //so only the start moves after the first time
+        int end = length;
+        while(end > pos && text.charAt(end -1) <= ' '){
+            end--;
+        }
+        int start = pos;
+        while(true){
+            while(start < end && text.charAt(start) <= ' '){
+                start++;
+            }
+            pos = findWrapPos(text, start, end, width);
+            appendPadding(out, nextLineTabStop);
+            if(pos == -1){
+                out.append(text, start, end);
+                return;
+            }
+            out.append(text, start, rTrim(text, start, pos)).append(NEW_LINE);
+            start = pos;
+        }
+    }
+
+    /**
+     * Find the position just after the last whitespace
+     * in the first {@code width} characters of the given range.
+     * @return the position or -1 if the range fits in the width or there is no whitespace to wrap on.
+     */
+    private static int findWrapPos(CharSequence text, int start, int end, int width){
+        if(end - start < width){
+            return -1;
+        }
+        for(int i = start + width -1; i >= start; i--){
+            if(isWrapWhitespace(text.charAt(i))){
+                return i +1;
+            }
+        }
+        //no more whitespace
+        return -1;
+    }
+
+    /**
+     * The same characters as the regular expression {@code \s}.
+     */
+    private static boolean isWrapWhitespace(char c){
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static int rTrim(CharSequence text, int start, int end){
+        int pos = end;
+        while(pos > start && Character.isWhitespace(text.charAt(pos -1))){
+            --pos;
+        }
+        return pos;
+    }
+
+    private static void appendPadding(StringBuilder out, int length){
+        for(int i =0; i< length; i++){
+            out.append(' ');
+        }
+    }
+}
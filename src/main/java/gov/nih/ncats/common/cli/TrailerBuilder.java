@@ -2,7 +2,9 @@ package gov.nih.ncats.common.cli;
 
 import java.io.File;
 import java.util.Objects;
+import java.util.function.DoublePredicate;
 import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
 import java.util.function.Predicate;
 
 import gov.nih.ncats.common.functions.ThrowableConsumer;
@@ -33,7 +35,7 @@ public class TrailerBuilder {
 	                if( t instanceof CliValidationException){
 	                    throw (CliValidationException)t;
 	                }
-	                throw new CliValidationException(t.getMessage(), t);
+	                throw CliValidationException.stackless(t.getMessage(), t);
 	            }
 	        };
 	        return this;
@@ -49,7 +51,7 @@ public class TrailerBuilder {
 	            try {
 	                value = Integer.parseInt(s);
 	            }catch(Throwable t){
-	                throw new CliValidationException("error parsing int value", t);
+	                throw CliValidationException.stackless("error parsing int value", t);
 	            }
 	            if(validator.test(value)){
 	                try {
@@ -58,10 +60,10 @@ public class TrailerBuilder {
 	                    if( t instanceof CliValidationException){
 	                        throw (CliValidationException)t;
 	                    }
-	                    throw new CliValidationException(t.getMessage(), t);
+	                    throw CliValidationException.stackless(t.getMessage(), t);
 	                }
 	            }else{
-	                throw new CliValidationException("setter did not pass validation test");
+	                throw CliValidationException.stackless("setter did not pass validation test");
 	            }
 	        };
 	        return this;
@@ -77,7 +79,7 @@ public class TrailerBuilder {
 	                    if( t instanceof CliValidationException){
 	                        throw (CliValidationException)t;
 	                    }
-	                    throw new CliValidationException(t.getMessage(), t);
+	                    throw CliValidationException.stackless(t.getMessage(), t);
 	                }
 	            };
 	        }else{
@@ -90,7 +92,7 @@ public class TrailerBuilder {
 	                    if( t instanceof CliValidationException){
 	                        throw (CliValidationException)t;
 	                    }
-	                   throw new CliValidationException(t);
+	                   throw CliValidationException.stackless(t);
 	                }
 	                if(validator.test(value)){
 	                    try {
@@ -99,10 +101,10 @@ public class TrailerBuilder {
 	                        if( t instanceof CliValidationException){
 	                            throw (CliValidationException)t;
 	                        }
-	                        throw new CliValidationException(t.getMessage(), t);
+	                        throw CliValidationException.stackless(t.getMessage(), t);
 	                    }
 	                }else{
-	                    throw new CliValidationException("setter did not pass validation test");
+	                    throw CliValidationException.stackless("setter did not pass validation test");
 	                }
 	            };
 	        }
@@ -119,7 +121,99 @@ public class TrailerBuilder {
 	            try {
 	                consumer.accept(Integer.parseInt(s));
 	            }catch(Throwable t){
-	                throw new CliValidationException(t);
+	                throw CliValidationException.stackless(t);
+	            }
+	        };
+	        return this;
+	    }
+
+	    public <T extends Throwable> TrailerBuilder setToLong(ThrowableLongConsumer<T> consumer){
+	        Objects.requireNonNull(consumer);
+	        this.consumer = s ->{
+	            try {
+	                consumer.accept(Long.parseLong(s));
+	            }catch(Throwable t){
+	                throw CliValidationException.stackless(t);
+	            }
+	        };
+	        return this;
+	    }
+	    
+	    public <T extends Throwable> TrailerBuilder setToLong(ThrowableLongConsumer<T> consumer, LongPredicate validator) {
+	        if(validator == null){
+	            return setToLong(consumer);
+	        }
+	    
+	        this.consumer = s->{
+	            long value;
+	            try {
+	                value = Long.parseLong(s);
+	            }catch(Throwable t){
+	                throw CliValidationException.stackless("error parsing long value", t);
+	            }
+	            if(validator.test(value)){
+	                try {
+	                    consumer.accept(value);
+	                }catch(Throwable t){
+	                    if( t instanceof CliValidationException){
+	                        throw (CliValidationException)t;
+	                    }
+	                    throw CliValidationException.stackless(t.getMessage(), t);
+	                }
+	            }else{
+	                throw CliValidationException.stackless("setter did not pass validation test");
+	            }
+	        };
+	        return this;
+	    }
+	    
+	    public <T extends Throwable> TrailerBuilder setToDouble(ThrowableDoubleConsumer<T> consumer){
+	        Objects.requireNonNull(consumer);
+	        this.consumer = s ->{
+	            try {
+	                consumer.accept(PrimitiveParsing.parseDouble(s));
+	            }catch(Throwable t){
+	                throw CliValidationException.stackless(t);
+	            }
+	        };
+	        return this;
+	    }
+	    
+	    public <T extends Throwable> TrailerBuilder setToDouble(ThrowableDoubleConsumer<T> consumer, DoublePredicate validator) {
+	        if(validator == null){
+	            return setToDouble(consumer);
+	        }
+	    
+	        this.consumer = s->{
+	            double value;
+	            try {
+	                value = PrimitiveParsing.parseDouble(s);
+	            }catch(Throwable t){
+	                throw CliValidationException.stackless("error parsing double value", t);
+	            }
+	            if(validator.test(value)){
+	                try {
+	                    consumer.accept(value);
+	                }catch(Throwable t){
+	                    if( t instanceof CliValidationException){
+	                        throw (CliValidationException)t;
+	                    }
+	                    throw CliValidationException.stackless(t.getMessage(), t);
+	                }
+	            }else{
+	                throw CliValidationException.stackless("setter did not pass validation test");
+	            }
+	        };
+	        return this;
+	    }
+	    
+	    public <T extends Throwable> TrailerBuilder setToBoolean(ThrowableBooleanConsumer<T> consumer){
+	        Objects.requireNonNull(consumer);
+	        this.consumer = s ->{
+	            try {
+	                consumer.accept(PrimitiveParsing.parseBoolean(s));
+	            }catch(Throwable t){
+	                throw CliValidationException.stackless(t);
 	            }
 	        };
 	        return this;
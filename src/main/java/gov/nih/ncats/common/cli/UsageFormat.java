@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+
+package gov.nih.ncats.common.cli;
+
+/**
+ * How the usage of a {@link CliSpecification} is laid out:
+ * the width the text is wrapped to and how much the options and their descriptions are padded.
+ * UsageFormats are immutable, each of the methods that change
+ * a setting return a new UsageFormat.
+ */
+public final class UsageFormat {
+    /**
+     * The default format which uses the same width, left and desc padding
+     * as the commons-cli HelpFormatter.
+     */
+    public static final UsageFormat DEFAULT = new UsageFormat(120, 1, 3);
+
+    private final int width;
+    private final int leftPadding;
+    private final int descPadding;
+
+    private UsageFormat(int width, int leftPadding, int descPadding) {
+        this.width = width;
+        this.leftPadding = leftPadding;
+        this.descPadding = descPadding;
+    }
+
+    /**
+     * Get the default format with the width of the terminal
+     * if it is set in the {@code COLUMNS} environment variable.
+     * Most shells don't export {@code COLUMNS} so it is often not set.
+     * @return a UsageFormat will never be null.
+     */
+    public static UsageFormat fromTerminal(){
+        return fromColumns(System.getenv("COLUMNS"));
+    }
+
+    static UsageFormat fromColumns(String columns){
+        if(columns != null){
+            try{
+                int width = Integer.parseInt(columns.trim());
+                if(width > 0){
+                    return DEFAULT.width(width);
+                }
+            }catch(NumberFormatException e){
+                //not a number so use the default
+            }
+        }
+        return DEFAULT;
+    }
+
+    /**
+     * Change the width the text is wrapped to.
+     * @param width the maximum number of characters on each line; must be positive.
+     * @return a new UsageFormat with the same paddings.
+     * @throws IllegalArgumentException if width is not positive.
+     */
+    public UsageFormat width(int width){
+        if(width < 1){
+            throw new IllegalArgumentException("width must be positive: " + width);
+        }
+        return new UsageFormat(width, leftPadding, descPadding);
+    }
+
+    /**
+     * Change how many spaces are before each option.
+     * @param leftPadding the number of spaces; can not be negative.
+     * @return a new UsageFormat with the same width and desc padding.
+     * @throws IllegalArgumentException if leftPadding is negative.
+     */
+    public UsageFormat leftPadding(int leftPadding){
+        if(leftPadding < 0){
+            throw new IllegalArgumentException("left padding can not be negative: " + leftPadding);
+        }
+        return new UsageFormat(width, leftPadding, descPadding);
+    }
+
+    /**
+     * Change how many spaces are between the options and their descriptions.
+     * @param descPadding the number of spaces; can not be negative.
+     * @return a new UsageFormat with the same width and left padding.
+     * @throws IllegalArgumentException if descPadding is negative.
+     */
+    public UsageFormat descPadding(int descPadding){
+        if(descPadding < 0){
+            throw new IllegalArgumentException("desc padding can not be negative: " + descPadding);
+        }
+        return new UsageFormat(width, leftPadding, descPadding);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getLeftPadding() {
+        return leftPadding;
+    }
+
+    public int getDescPadding() {
+        return descPadding;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof UsageFormat)) return false;
+        UsageFormat that = (UsageFormat) o;
+        return width == that.width &&
+                leftPadding == that.leftPadding &&
+                descPadding == that.descPadding;
+    }
+
+    @Override
+    public int hashCode() {
+        return (width * 31 + leftPadding) * 31 + descPadding;
+    }
+
+    @Override
+    public String toString() {
+        return "UsageFormat{" +
+                "width=" + width +
+                ", leftPadding=" + leftPadding +
+                ", descPadding=" + descPadding +
+                '}';
+    }
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+package gov.nih.ncats.common.cli;
+
+import gov.nih.ncats.common.functions.ThrowableConsumer;
+
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A trailer that takes any number of arguments between a minimum and maximum,
+ * for example a list of input files.  It takes all the positional arguments
+ * on the command line that come before the other {@link Trailer}s.
+ *
+ * @see VariadicTrailerBuilder
+ * @see Cli#getVariadicTrailer()
+ */
+public class VariadicTrailer {
+
+    private final String name;
+    private final String description;
+    private final int min;
+    private final int max;
+
+    private final ThrowableConsumer<Stream<String>, CliValidationException> consumer;
+
+    VariadicTrailer(String name, String description, int min, int max,
+                    ThrowableConsumer<Stream<String>, CliValidationException> consumer) {
+        this.name = name;
+        this.description = description;
+        this.min = min;
+        this.max = max;
+        this.consumer = consumer;
+    }
+
+    void validate(int numberOfArgs) throws CliValidationException {
+        if(numberOfArgs < min){
+            throw CliValidationException.stackless("not enough arguments for " + getLabel() + ": expected at least " + min + " but found " + numberOfArgs);
+        }
+        if(numberOfArgs > max){
+            throw CliValidationException.stackless("too many arguments for " + getLabel() + ": expected at most " + max + " but found " + numberOfArgs);
+        }
+    }
+
+    private String getLabel(){
+        return name == null ? "trailer" : name;
+    }
+
+    /**
+     * Give the consumer a stream of the given arguments.  The stream is sequential
+     * but splits evenly so the consumer can make it parallel.
+     */
+    public void fireConsumerIfNeeded(List<String> args) throws CliValidationException {
+        if(consumer != null){
+            consumer.accept(StreamSupport.stream(args.spliterator(), false));
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getMin() {
+        return min;
+    }
+
+    public int getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+package gov.nih.ncats.common.cli;
+
+import gov.nih.ncats.common.functions.ThrowableConsumer;
+
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Builds a {@link VariadicTrailer}.  By default it takes any number of arguments
+ * including none.
+ */
+public class VariadicTrailerBuilder {
+
+    private String name;
+    private String description;
+    private int min = 0;
+    private int max = Integer.MAX_VALUE;
+
+    private ThrowableConsumer<Stream<String>, CliValidationException> consumer;
+
+    public VariadicTrailerBuilder name(String name){
+        this.name = name;
+        return this;
+    }
+
+    public VariadicTrailerBuilder description(String description){
+        this.description = description;
+        return this;
+    }
+
+    /**
+     * Set the minimum number of arguments.
+     * @param min the minimum, can not be negative.
+     * @return this.
+     */
+    public VariadicTrailerBuilder min(int min){
+        if(min < 0){
+            throw new IllegalArgumentException("min can not be negative");
+        }
+        this.min = min;
+        return this;
+    }
+
+    /**
+     * Set the maximum number of arguments.
+     * @param max the maximum, can not be negative.
+     * @return this.
+     */
+    public VariadicTrailerBuilder max(int max){
+        if(max < 0){
+            throw new IllegalArgumentException("max can not be negative");
+        }
+        this.max = max;
+        return this;
+    }
+
+    /**
+     * Set the setter that is given all the arguments as one stream.
+     * The stream is over the parsed arguments themselves, so nothing is copied,
+     * and it splits evenly so calling {@link Stream#parallel()} on it works well.
+     * @param consumer the consumer of the stream of arguments.
+     * @param <T> the Throwable type the consumer might throw.
+     * @return this.
+     */
+    public <T extends Throwable> VariadicTrailerBuilder setToStream(ThrowableConsumer<Stream<String>, T> consumer){
+        Objects.requireNonNull(consumer);
+        this.consumer = args -> {
+            try{
+                consumer.accept(args);
+            }catch(Throwable t){
+                if( t instanceof CliValidationException){
+                    throw (CliValidationException)t;
+                }
+                throw CliValidationException.stackless(t.getMessage(), t);
+            }
+        };
+        return this;
+    }
+
+    public VariadicTrailer build(){
+        if(min > max){
+            throw new IllegalStateException("min " + min + " is more than max " + max);
+        }
+        return new VariadicTrailer(name, description, min, max, consumer);
+    }
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Records one parse as JDK Flight Recorder events.  A new listener is made for each parse
+ * when it starts so the parse event's duration is the whole parse.
+ * Validations and setters are only reported after they are done
+ * so their events have the time they took as a field instead of as the event's duration.
+ */
+final class FlightRecorderParseListener implements ParseListener {
+
+    private final String programName;
+    private final ParseEvent parseEvent = new ParseEvent();
+
+    FlightRecorderParseListener(String programName) {
+        this.programName = programName;
+        parseEvent.begin();
+    }
+
+    /**
+     * Is at least one of the events enabled in a recording.
+     */
+    static boolean isRecording(){
+        return ParseEvent.TYPE.isEnabled() || ValidationEvent.TYPE.isEnabled() || SetterEvent.TYPE.isEnabled();
+    }
+
+    @Override
+    public void validatorCompleted(int index, boolean passed, long nanos) {
+        ValidationEvent event = new ValidationEvent();
+        if(event.shouldCommit()){
+            event.programName = programName;
+            event.validatorIndex = index;
+            event.passed = passed;
+            event.time = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void setterInvoked(String optionName, boolean succeeded, long nanos) {
+        SetterEvent event = new SetterEvent();
+        if(event.shouldCommit()){
+            event.programName = programName;
+            event.optionName = optionName;
+            event.succeeded = succeeded;
+            event.time = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void parseCompleted(boolean succeeded, long nanos) {
+        parseEvent.end();
+        if(parseEvent.shouldCommit()){
+            parseEvent.programName = programName;
+            parseEvent.succeeded = succeeded;
+            parseEvent.commit();
+        }
+    }
+
+    @Name("gov.nih.ncats.common.cli.Parse")
+    @Label("CLI Parse")
+    @Category({"NCATS", "CLI"})
+    @Description("Parsing, validating and calling the setters of a command line")
+    static final class ParseEvent extends Event {
+        static final jdk.jfr.EventType TYPE = jdk.jfr.EventType.getEventType(ParseEvent.class);
+
+        @Label("Program Name")
+        String programName;
+
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+
+    @Name("gov.nih.ncats.common.cli.Validation")
+    @Label("CLI Validation")
+    @Category({"NCATS", "CLI"})
+    @Description("A validation added to a command line specification")
+    @StackTrace(false)
+    static final class ValidationEvent extends Event {
+        static final jdk.jfr.EventType TYPE = jdk.jfr.EventType.getEventType(ValidationEvent.class);
+
+        @Label("Program Name")
+        String programName;
+
+        @Label("Validator Index")
+        @Description("The index of the validation in the order they were added")
+        int validatorIndex;
+
+        @Label("Passed")
+        boolean passed;
+
+        @Label("Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long time;
+    }
+
+    @Name("gov.nih.ncats.common.cli.Setter")
+    @Label("CLI Setter")
+    @Category({"NCATS", "CLI"})
+    @Description("The setter of an option on the command line")
+    @StackTrace(false)
+    static final class SetterEvent extends Event {
+        static final jdk.jfr.EventType TYPE = jdk.jfr.EventType.getEventType(SetterEvent.class);
+
+        @Label("Program Name")
+        String programName;
+
+        @Label("Option Name")
+        String optionName;
+
+        @Label("Succeeded")
+        boolean succeeded;
+
+        @Label("Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long time;
+    }
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+/**
+ * Where parses get a {@link ParseListener} that records JDK Flight Recorder events.
+ * This is the Java 11 version of this class in the multi-release jar which returns
+ * a listener whenever any of the events are enabled in a recording.
+ */
+final class FlightRecorderSupport {
+
+    /**
+     * Whether the jdk.jfr module is in this runtime, which it might not be
+     * in an image made with jlink.
+     */
+    private static final boolean AVAILABLE = isAvailable();
+
+    private FlightRecorderSupport(){
+        //can not instantiate
+    }
+
+    private static boolean isAvailable(){
+        try{
+            FlightRecorderParseListener.isRecording();
+            return true;
+        }catch(LinkageError e){
+            return false;
+        }
+    }
+
+    /**
+     * Get a listener that records a parse that is starting as Flight Recorder events.
+     * @param programName the program name to put in the events; may be null.
+     * @return a new listener, or null if the events aren't being recorded.
+     */
+    static ParseListener recordingListener(String programName){
+        if(!AVAILABLE || !FlightRecorderParseListener.isRecording()){
+            return null;
+        }
+        return new FlightRecorderParseListener(programName);
+    }
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+import static org.junit.Assert.*;
+
+public class TestArgFiles {
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    private File write(String contents) throws IOException {
+        File f = tmpDir.newFile();
+        Files.write(f.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return f;
+    }
+
+    private static List<String> tokenize(File f, int bufferSize) throws IOException{
+        List<String> tokens = new ArrayList<>();
+        new ArgFileTokenizer(bufferSize).tokenize(f.toPath(), tokens::add);
+        return tokens;
+    }
+
+    @Test
+    public void quotesAndComments() throws IOException{
+        File f = write("# a comment\n-foo  bar\t-path \"/tmp/with space\"\n'single \"quoted\"' \"esc\\\"aped\\n\" #trailing\n  a#b \"\"");
+        List<String> expected = Arrays.asList("-foo", "bar", "-path", "/tmp/with space", "single \"quoted\"", "esc\"aped\n", "a#b", "");
+        assertEquals(expected, tokenize(f, 4));
+        assertEquals(expected, tokenize(f, 1024));
+    }
+
+    @Test
+    public void multiByteCharactersAcrossBufferBoundaries() throws IOException{
+        StringBuilder builder = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for(int i=0; i< 1000; i++){
+            String token = "\u00e9\u4e2d\ud83d\ude00" + i;
+            expected.add(token);
+            builder.append(token).append(i % 2 ==0 ? " " : "\r\n");
+        }
+        File f = write(builder.toString());
+        for(int bufferSize = 4; bufferSize < 20; bufferSize++){
+            assertEquals(expected, tokenize(f, bufferSize));
+        }
+    }
+
+    @Test(expected = CliValidationException.class)
+    public void unterminatedQuote() throws IOException{
+        tokenize(write("-foo \"bar"), 16);
+    }
+
+    @Test
+    public void argFileIsExpandedInline() throws IOException{
+        File f = write("-foo 1\n-bar 2\n");
+        Cli cli = CliSpecification.create(option("foo"), option("bar"), option("baz"))
+                                    .trailer(new TrailerBuilder().build())
+                                    .argFiles(true)
+                                    .parse(new String[]{"-baz", "0", "@" + f.getAbsolutePath(), "@@last"});
+
+        assertEquals("0", cli.getOptionValue("baz"));
+        assertEquals("1", cli.getOptionValue("foo"));
+        assertEquals("2", cli.getOptionValue("bar"));
+        assertEquals("@last", cli.getTrailer(0));
+    }
+
+    @Test
+    public void trailersCanComeFromArgFile() throws IOException{
+        File f = write("-foo 1 in1 in2");
+        for(boolean commons : new boolean[]{false, true}) {
+            Cli cli = CliSpecification.create(option("foo"))
+                    .trailer(new TrailerBuilder().build())
+                    .trailer(new TrailerBuilder().build())
+                    .commonsCliParser(commons)
+                    .argFiles(true)
+                    .parse(new String[]{"@" + f.getAbsolutePath()});
+            assertEquals("1", cli.getOptionValue("foo"));
+            assertEquals("in1", cli.getTrailer(0));
+            assertEquals("in2", cli.getTrailer(1));
+        }
+    }
+
+    @Test
+    public void notExpandedByDefault() throws IOException{
+        File f = write("-foo 1");
+        Cli cli = CliSpecification.create(option("foo")).parse(new String[]{"-foo", "@" + f.getAbsolutePath()});
+        assertEquals("@" + f.getAbsolutePath(), cli.getOptionValue("foo"));
+    }
+
+    @Test
+    public void urlParametersAreNeverArgFiles() throws IOException{
+        File f = write("-foo 1");
+        Cli cli = CliSpecification.create(option("foo"))
+                                    .argFiles(true)
+                                    .parse(new URL("http://example.com?foo=@" + f.getAbsolutePath()));
+        assertEquals("@" + f.getAbsolutePath(), cli.getOptionValue("foo"));
+    }
+
+    @Test
+    public void missingArgFile(){
+        ParseResult result = CliSpecification.create(option("foo"))
+                                                .argFiles(true)
+                                                .tryParse(new String[]{"@" + new File(tmpDir.getRoot(), "doesNotExist").getAbsolutePath()});
+        assertFalse(result.isSuccess());
+        assertTrue(result.getErrorMessage().startsWith("error reading argument file"));
+    }
+}
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+import static org.junit.Assert.*;
+
+public class TestByteParsing {
+
+    private static final String[] OPTION_NAMES = {"foo", "bar", "v", "x", "a", "path", "value"};
+
+    private static CliSpecification createSpec(){
+        return CliSpecification.create(option("foo"), option("bar").isFlag(true),
+                                       option("v").isFlag(true), option("x").isFlag(true),
+                                       option("a"),
+                                       option("path").longName("value"));
+    }
+
+    private static byte[] toCmdline(String[] args, boolean trailingNul){
+        StringBuilder builder = new StringBuilder();
+        for(int i=0; i< args.length; i++){
+            if(i > 0){
+                builder.append('\0');
+            }
+            builder.append(args[i]);
+        }
+        if(trailingNul){
+            builder.append('\0');
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void sameAsStringArguments(){
+        String[][] commandLines = {
+                {"-foo", "bar", "-bar"},
+                {"-vx", "-a", "-1"},
+                {"-vax3"},
+                {"--value=/tmp/x", "-foo", "\"quoted\""},
+                {"--val", "/tmp/\u00e9\u4e2d\ud83d\ude00"},
+                {"-foo", ""},
+                {"-unknown"},
+                {"-foo"},
+                {"positional", "-foo", "bar", "--", "-bar"},
+        };
+        for(String[] args : commandLines){
+            ParseResult expected = createSpec().tryParse(args);
+            for(boolean trailingNul : new boolean[]{true, false}){
+                if(!trailingNul && args[args.length -1].isEmpty()){
+                    //an empty last argument needs the trailing NUL
+                    continue;
+                }
+                byte[] bytes = toCmdline(args, trailingNul);
+                assertSameResult(expected, createSpec().tryParse(bytes, 0, bytes.length));
+
+                ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 2);
+                direct.put((byte) 'z').put(bytes).flip();
+                direct.position(1);
+                assertSameResult(expected, createSpec().tryParse(direct));
+                assertEquals(1, direct.position());
+            }
+        }
+    }
+
+    private static void assertSameResult(ParseResult expected, ParseResult actual){
+        assertEquals(expected.getErrorMessage(), actual.getErrorMessage());
+        if(!expected.isSuccess()){
+            return;
+        }
+        for(String name : OPTION_NAMES){
+            assertEquals(name, expected.getCli().hasOption(name), actual.getCli().hasOption(name));
+            assertEquals(name, expected.getCli().getOptionValue(name), actual.getCli().getOptionValue(name));
+        }
+    }
+
+    @Test
+    public void offsetIntoArray() throws CliValidationException{
+        byte[] bytes = "junk\0-foo\0abc\0-bar\0junk".getBytes(StandardCharsets.UTF_8);
+        Cli cli = createSpec().parse(bytes, 5, 14);
+        assertEquals("abc", cli.getOptionValue("foo"));
+        assertTrue(cli.hasOption("bar"));
+    }
+
+    @Test
+    public void trailers() throws CliValidationException{
+        byte[] bytes = toCmdline(new String[]{"-foo", "1", "in", "out"}, true);
+        Cli cli = createSpec().trailer(new TrailerBuilder().build())
+                              .trailer(new TrailerBuilder().build())
+                              .parse(bytes, 0, bytes.length);
+        assertEquals("1", cli.getOptionValue("foo"));
+        assertEquals("in", cli.getTrailer(0));
+        assertEquals("out", cli.getTrailer(1));
+    }
+
+    @Test
+    public void valueIsOnlyDecodedWhenAskedFor() throws CliValidationException{
+        byte[] bytes = toCmdline(new String[]{"-foo", "abc"}, false);
+        Cli cli = createSpec().parse(bytes, 0, bytes.length);
+        bytes[bytes.length -1] = 'x';
+        assertEquals("abx", cli.getOptionValue("foo"));
+        bytes[bytes.length -1] = 'y';
+        assertEquals("abx", cli.getOptionValue("foo"));
+    }
+}
@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+import static org.junit.Assert.*;
+
+/**
+ * Make sure the built-in parser interprets command lines
+ * the same way as the commons-cli parser.
+ */
+public class TestCommonsCliCompatibility {
+
+    private static final String[] OPTION_NAMES = {"foo", "bar", "baz", "path", "a", "v", "x", "anotherFoo",
+                                                  "verbose", "value", "output", "h", "help", "b", "valid", "val"};
+
+    private static CliSpecification simpleSpec(){
+        return CliSpecification.create(option("foo"), option("bar").isFlag(true),
+                                        option("v").isFlag(true), option("x").isFlag(true),
+                                        option("a"),
+                                        option("path").longName("value"),
+                                        option("o").longName("output"),
+                                        option("verb").longName("verbose").isFlag(true));
+    }
+
+    @Test
+    public void shortOptions(){
+        assertSameResult(TestCommonsCliCompatibility::simpleSpec,
+                "-foo bar",
+                "-foo bar -bar",
+                "-bar -foo bar",
+                "-foo -bar",
+                "-foo",
+                "-a 1 -foo 2",
+                "-a -1",
+                "-a=5",
+                "-a5",
+                "-vx",
+                "-vxa 3",
+                "-vax3",
+                "-foo \"quoted\"",
+                "-foo bar -foo baz",
+                "-unknown",
+                "- -foo x",
+                "positional -foo bar",
+                "-foo bar -- -bar");
+    }
+
+    @Test
+    public void longOptions(){
+        assertSameResult(TestCommonsCliCompatibility::simpleSpec,
+                "--value /tmp/x",
+                "--value=/tmp/x",
+                "-value=/tmp/x",
+                "--val /tmp/x",
+                "--verbose",
+                "--verb",
+                "-verbose",
+                "--ver",
+                "--v",
+                "--output out.txt",
+                "--outputs",
+                "--verbose=true",
+                "-output=out.txt",
+                "-outputfile.txt");
+    }
+
+    @Test
+    public void longPrefixes(){
+        Supplier<CliSpecification> spec = ()-> CliSpecification.create(option("a").longName("value"),
+                                                                    option("b").longName("valid").isFlag(true),
+                                                                    option("v").longName("verbose").isFlag(true),
+                                                                    option("val").isFlag(true));
+        assertSameResult(spec,
+                "--va",
+                "--val",
+                "--vali",
+                "--valu x",
+                "--valu=x",
+                "-val",
+                "-valux",
+                "-value=x",
+                "--ve",
+                "--verbosely",
+                "--",
+                "-b -v",
+                "-bv");
+    }
+
+    @Test
+    public void existingCases(){
+        Supplier<CliSpecification> groupSpec = ()-> CliSpecification.create( group(option("foo").setRequired(true),
+                                                        option("bar").setRequired(true))
+                                                        .setRequired(true),
+                                                        option("path").setRequired(true));
+
+        assertSameResult(groupSpec,
+                "-path /usr/local/foo/bar/baz.txt -foo 123 -bar lah",
+                "-path /usr/local/foo/bar/baz.txt -foo 123");
+
+        Supplier<CliSpecification> nestedSpec = ()->CliSpecification.create( group(option("foo").setRequired(true),
+                                                    radio(option("bar"), option("baz"))
+                                                    .setRequired(true)
+                                                    ).setRequired(true),
+                                                    option("path").setRequired(true));
+        assertSameResult(nestedSpec,
+                "-path /usr/local/foo/bar/baz.txt -foo 123 -bar stool",
+                "-path /usr/local/foo/bar/baz.txt -foo 123",
+                "-path /usr/local/foo/bar/baz.txt -foo 123 -bar stool -baz x");
+
+        Supplier<CliSpecification> radioGroupSpec = ()->CliSpecification.create( radio( option("bar"), option("baz"),
+                                                            group(option("foo").setRequired(true),
+                                                                option("anotherFoo"))),
+                                                    option("path").setRequired(true));
+        assertSameResult(radioGroupSpec,
+                "-path /usr/local/foo/bar/baz.txt -bar stool",
+                "-path /usr/local/foo/bar/baz.txt -foo 123 -bar stool",
+                "-path /usr/local/foo/bar/baz.txt -anotherFoo 1",
+                "-bar stool");
+
+        assertSameResult(()->CliSpecification.createWithHelp(option("foo").setRequired(true)),
+                "-h",
+                "--help",
+                "-foo x");
+    }
+
+    @Test
+    public void variadicTrailer(){
+        assertSameResult(()-> simpleSpec().variadicTrailer(new VariadicTrailerBuilder().build()),
+                "a -x 1 b c",
+                "a -foo 1 b c",
+                "-foo 1 a b",
+                "a b -foo 1",
+                "a -- -foo 1",
+                "-- a b",
+                "a -bar b -v c");
+    }
+
+    @Test
+    public void missingRequiredOptionMessagesDiffer(){
+        Supplier<CliSpecification> spec = ()-> CliSpecification.create(option("x").setRequired(true),
+                                                                    option("v").isFlag(true));
+        assertSameResult(spec, "-v");
+        //commons-cli checks required options itself, the built-in parser leaves it to the validation
+        String commons = failureMessage(spec.get().commonsCliParser(true), "-v");
+        assertTrue(commons, commons.contains("Missing required option: x"));
+        String builtIn = failureMessage(spec.get(), "-v");
+        assertFalse(builtIn, builtIn.contains("Missing required option"));
+        assertTrue(builtIn, builtIn.contains("-x"));
+    }
+
+    @Test
+    public void queriesAndBytesUseTheSelectedParser() throws CliValidationException{
+        Supplier<CliSpecification> spec = ()-> CliSpecification.create(option("x").setRequired(true),
+                                                                    option("o"), option("v").isFlag(true));
+        byte[] bytes = "-v\0-o\0out".getBytes(StandardCharsets.UTF_8);
+        ParseResult commonsQuery = spec.get().commonsCliParser(true).tryParse("v&o=out");
+        ParseResult commonsBytes = spec.get().commonsCliParser(true).tryParse(bytes, 0, bytes.length);
+        assertTrue(commonsQuery.getErrorMessage().contains("Missing required option: x"));
+        assertTrue(commonsBytes.getErrorMessage().contains("Missing required option: x"));
+        assertFalse(spec.get().tryParse("v&o=out").getErrorMessage().contains("Missing required option"));
+        assertFalse(spec.get().tryParse(bytes, 0, bytes.length).getErrorMessage().contains("Missing required option"));
+
+        Cli cli = spec.get().commonsCliParser(true).parse("x=a%20b&o=out&v");
+        assertEquals("a b", cli.getOptionValue("x"));
+        assertEquals("out", cli.getOptionValue("o"));
+        assertTrue(cli.hasOption("v"));
+        //a value that looks like an option is only a value to the built-in parser
+        assertEquals("-v", spec.get().parse("x=1&o=-v").getOptionValue("o"));
+        assertFalse(spec.get().commonsCliParser(true).tryParse("x=1&o=-v").isSuccess());
+    }
+
+    private static String failureMessage(CliSpecification spec, String... args){
+        try{
+            spec.parse(args);
+            fail("should throw");
+            return null;
+        }catch(CliValidationException e){
+            return e.getMessage();
+        }
+    }
+
+    private static void assertSameResult(Supplier<CliSpecification> specSupplier, String... commandLines){
+        for(String commandLine : commandLines){
+            String[] args = commandLine.split(" ");
+            Cli expected, actual;
+            try{
+                expected = specSupplier.get().commonsCliParser(true).parse(args);
+            }catch(CliValidationException e){
+                expected = null;
+            }
+            try{
+                actual = specSupplier.get().parse(args);
+            }catch(CliValidationException e){
+                actual = null;
+            }
+            if(expected == null){
+                assertNull(commandLine + " should fail", actual);
+                continue;
+            }
+            assertNotNull(commandLine + " should pass", actual);
+            for(String name : OPTION_NAMES){
+                assertEquals(commandLine + " hasOption " + name, expected.hasOption(name), actual.hasOption(name));
+                assertEquals(commandLine + " value of " + name, expected.getOptionValue(name), actual.getOptionValue(name));
+            }
+            assertEquals(commandLine, expected.helpRequested(), actual.helpRequested());
+            assertEquals(commandLine + " variadic trailer", expected.getVariadicTrailer(), actual.getVariadicTrailer());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+import static org.junit.Assert.*;
+
+public class TestCompiledCliSpecification {
+
+    private static CliSpecification createSpec(){
+        return CliSpecification.create( group(option("foo").setRequired(true),
+                                            radio(option("bar"), option("baz"))
+                                                .setRequired(true)
+                                        ).setRequired(true),
+                                        option("path").longName("file").setRequired(true),
+                                        option("v").isFlag(true));
+    }
+
+    @Test
+    public void changesAfterCompileAreNotSeen() throws CliValidationException{
+        CliSpecification spec = createSpec();
+        CompiledCliSpecification compiled = spec.compile();
+
+        spec.addValidation(cli -> !cli.hasOption("v"), "no v allowed");
+        String[] args = new String[]{"-path", "x", "-foo", "1", "-bar", "2", "-v"};
+
+        assertTrue(compiled.parse(args).hasOption("v"));
+        try{
+            spec.parse(args);
+            fail("should have used the new validation");
+        }catch(CliValidationException expected){
+            assertEquals("no v allowed", expected.getMessage());
+        }
+        assertTrue(spec.compile().helpRequested(new String[]{"--help"}));
+    }
+
+    @Test
+    public void compileIsCachedUntilModified(){
+        CliSpecification spec = createSpec();
+        CompiledCliSpecification compiled = spec.compile();
+        assertSame(compiled, spec.compile());
+
+        spec.addValidation(cli -> true, "never");
+        assertNotSame(compiled, spec.compile());
+    }
+
+    @Test
+    public void radioChildrenForcedOptionalInCompatibilityMode() throws CliValidationException{
+        CompiledCliSpecification compiled = CliSpecification.create(radio(option("bar").setRequired(true),
+                                                                          option("baz").setRequired(true)))
+                                                            .commonsCliParser(true)
+                                                            .compile();
+        //parsing the same spec twice shouldn't change anything
+        assertTrue(compiled.parse(new String[]{"-bar", "x"}).hasOption("bar"));
+        assertTrue(compiled.parse(new String[]{"-baz", "x"}).hasOption("baz"));
+    }
+
+    @Test
+    public void concurrentParsing() throws Exception{
+        CompiledCliSpecification compiled = createSpec().compile();
+
+        String[][] valid = {
+                {"-path", "a", "-foo", "1", "-bar", "x"},
+                {"--file", "b", "-foo", "2", "-baz", "y", "-v"},
+                {"-foo", "3", "--file=c", "-bar", "z"},
+        };
+        String[][] invalid = {
+                {"-path", "a", "-foo", "1"},
+                {"-path", "a", "-foo", "1", "-bar", "x", "-baz", "y"},
+                {"-foo", "1", "-bar", "x"},
+                {"-path"},
+        };
+        int numberOfThreads = 16;
+        int iterations = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger failures = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < numberOfThreads; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < iterations; i++) {
+                        int index = i + offset;
+                        String[] args = valid[index % valid.length];
+                        Cli cli = compiled.parse(args);
+                        if (!cli.hasOption("foo") || !cli.hasOption("path")
+                                || cli.hasOption("bar") == cli.hasOption("baz")
+                                || !Integer.toString(index % valid.length + 1).equals(cli.getOptionValue("foo"))) {
+                            failures.incrementAndGet();
+                        }
+                        try {
+                            compiled.parse(invalid[index % invalid.length]);
+                            failures.incrementAndGet();
+                        } catch (CliValidationException expected) {
+                            //expected
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) {
+                f.get(1, TimeUnit.MINUTES);
+            }
+        }finally{
+            executor.shutdownNow();
+        }
+        assertEquals(0, failures.get());
+    }
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.junit.Test;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+import static org.junit.Assert.*;
+
+/**
+ * Make sure the compiled constraint program accepts and rejects
+ * exactly the same command lines as walking the option tree.
+ */
+public class TestConstraintProgram {
+
+    @Test
+    public void requiredGroupWithRadio(){
+        assertSameAsTree(group(option("foo").setRequired(true),
+                                radio(option("bar"), option("baz")).setRequired(true)
+                         ).setRequired(true),
+                         option("path").setRequired(true));
+    }
+
+    @Test
+    public void radioOfGroups(){
+        assertSameAsTree(radio( option("bar"), option("baz"),
+                                group(option("foo").setRequired(true), option("anotherFoo"))),
+                         option("path").setRequired(true));
+    }
+
+    @Test
+    public void optionalGroupsAndAtLeastOneOf(){
+        assertSameAsTree(group(option("a"), option("b")),
+                         atLeastOneOf(option("c"), group(option("d").setRequired(true), option("e").setRequired(true)))
+                                .setRequired(true),
+                         radio(group(option("f"), option("g")), atLeastOneOf(option("h"), option("i"))));
+    }
+
+    @Test
+    public void validatorsRunInTreeOrder(){
+        assertSameAsTree(group(option("foo").addValidation(cli-> !cli.hasOption("bar"), "foo validator"),
+                                radio(option("bar"), option("baz"))
+                                    .addValidation(cli -> !cli.hasOption("baz"), "radio validator"))
+                                .addValidation(cli -> !cli.hasOption("qux"), "group validator"),
+                         option("qux").addValidation(cli -> cli.hasOption("foo"), "qux validator"));
+    }
+
+    private static void assertSameAsTree(CliOptionBuilder... options){
+        InternalCliOption tree = ((InternalCliOptionBuilder) group(options)).build();
+        InternalCliSpecification spec = new InternalCliSpecification();
+        tree.addTo(spec, null);
+        spec.buildIndex();
+        spec.compileConstraints(tree);
+        ConstraintProgram program = spec.getConstraints();
+
+        int numberOfOptions = spec.getOptionCount();
+        //try every combination of options being present
+        for(int combination=0; combination < (1 << numberOfOptions); combination++){
+            long[] present = OptionBits.newBits(numberOfOptions);
+            present[0] = combination;
+            Cli cli = new Cli(spec, present, new OptionValues.Builder(numberOfOptions).build(), new String[0]);
+
+            String expected = null, actual = null;
+            try{
+                tree.validate(cli);
+            }catch(CliValidationException e){
+                expected = e.getMessage();
+            }
+            try{
+                program.validate(cli, tree);
+            }catch(CliValidationException e){
+                actual = e.getMessage();
+            }
+            assertEquals("combination " + Integer.toBinaryString(combination), expected, actual);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+import static org.junit.Assert.*;
+
+public class TestDuplicateOptionNames {
+
+    private static void assertRejected(String expectedMessage, CliOptionBuilder... options){
+        try{
+            CliSpecification.create(options);
+            fail("should throw");
+        }catch(IllegalArgumentException e){
+            assertEquals(expectedMessage, e.getMessage());
+        }
+    }
+
+    @Test
+    public void duplicateShortName(){
+        assertRejected("more than one option is named -foo",
+                option("foo"), option("bar"), option("foo").isFlag(true));
+    }
+
+    @Test
+    public void duplicateLongName(){
+        assertRejected("options -p and -q both have the long name --path",
+                option("p").longName("path"), option("q").longName("path"));
+    }
+
+    @Test
+    public void duplicatesInNestedGroupsAreFound(){
+        assertRejected("more than one option is named -x",
+                radio(option("a"), group(option("x"), option("b"))),
+                atLeastOneOf(option("c"), option("x")));
+        assertRejected("options -a and -d both have the long name --all",
+                group(option("a").longName("all")),
+                radio(option("c"), group(option("d").longName("all"))));
+    }
+
+    @Test
+    public void userDefinedHelpOptionConflictsWithHelp(){
+        try{
+            CliSpecification.createWithHelp(option("h").longName("host"));
+            fail("should throw");
+        }catch(IllegalArgumentException e){
+            assertEquals("more than one option is named -h", e.getMessage());
+        }
+    }
+
+    @Test
+    public void shortNameMayMatchAnotherLongName() throws Exception{
+        CliSpecification spec = CliSpecification.create(option("path"), option("p").longName("path"));
+        Cli cli = spec.parse(new String[]{"-path", "a", "--path", "b"});
+        assertEquals("a", cli.getOptionValue("path"));
+        assertEquals("b", cli.getOptionValue("p"));
+
+        StringWriter writer = new StringWriter();
+        spec.writeOptionHelp(writer, "--path");
+        assertEquals("-path", writer.toString().trim());
+    }
+
+    @Test
+    public void wideRadioChoicesSpanManyWords() throws Exception{
+        //each group has more options than fit in one long so the choices straddle word boundaries
+        CliOptionBuilder[] first = new CliOptionBuilder[70];
+        CliOptionBuilder[] second = new CliOptionBuilder[70];
+        for(int i=0; i< first.length; i++){
+            first[i] = option("a" + i).isFlag(true);
+            second[i] = option("b" + i).isFlag(true);
+        }
+        CliSpecification spec = CliSpecification.create(radio(group(first), group(second)).setRequired(true));
+
+        assertTrue(spec.parse(new String[]{"-b69"}).hasOption("b69"));
+        assertTrue(spec.parse(new String[]{"-a63", "-a64"}).hasOption("a64"));
+        assertEquals("Radio option must only select at most 1 choice but found [((a69)), ((b0))]",
+                spec.tryParse(new String[]{"-a69", "-b0"}).getErrorMessage());
+        assertFalse(spec.tryParse(new String[0]).isSuccess());
+    }
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+import static org.junit.Assert.*;
+
+public class TestParseAll {
+
+    private static final int NUMBER_OF_COMMAND_LINES = 10_000;
+
+    private final AtomicInteger setterCalls = new AtomicInteger();
+
+    private CliSpecification createSpec(){
+        return CliSpecification.create(option("n").setRequired(true).setToInt(i-> setterCalls.incrementAndGet()),
+                                       radio(option("bar"), option("baz")));
+    }
+
+    /**
+     * Every third command line is invalid.
+     */
+    private static List<String[]> createCommandLines(List<String[]> list){
+        for(int i=0; i< NUMBER_OF_COMMAND_LINES; i++){
+            if(i % 3 ==2){
+                list.add(new String[]{"-n", Integer.toString(i), "-bar", "x", "-baz", "y"});
+            }else{
+                list.add(new String[]{"-n", Integer.toString(i)});
+            }
+        }
+        return list;
+    }
+
+    private static void assertResultsInOrder(List<ParseResult> results){
+        assertEquals(NUMBER_OF_COMMAND_LINES, results.size());
+        for(int i=0; i< NUMBER_OF_COMMAND_LINES; i++){
+            ParseResult result = results.get(i);
+            if(i % 3 ==2){
+                assertFalse(result.isSuccess());
+            }else{
+                assertEquals(Integer.toString(i), result.getCli().getOptionValue("n"));
+            }
+        }
+    }
+
+    @Test
+    public void resultsAreInInputOrder(){
+        assertResultsInOrder(createSpec().parseAll(createCommandLines(new ArrayList<>())));
+        assertEquals(6667, setterCalls.get());
+    }
+
+    @Test
+    public void settersCanBeSkipped(){
+        assertResultsInOrder(createSpec().parseAll(createCommandLines(new LinkedList<>()), false));
+        assertEquals(0, setterCalls.get());
+    }
+
+    @Test
+    public void stream(){
+        assertResultsInOrder(createSpec().compile().parseAll(createCommandLines(new ArrayList<>()).stream(), false));
+        assertEquals(0, setterCalls.get());
+    }
+
+    @Test
+    public void empty(){
+        assertTrue(createSpec().parseAll(new ArrayList<>()).isEmpty());
+    }
+}
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+
+package gov.nih.ncats.common.cli;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+import static org.junit.Assert.*;
+
+public class TestParseListener {
+
+    /**
+     * Records each call without the timings.
+     */
+    private static final class Recorder implements ParseListener{
+        private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void phaseCompleted(ParsePhase phase, long nanos) {
+            assertTrue(nanos >= 0);
+            events.add(phase.name());
+        }
+
+        @Override
+        public void validatorCompleted(int index, boolean passed, long nanos) {
+            assertTrue(nanos >= 0);
+            events.add("validator " + index + " " + passed);
+        }
+
+        @Override
+        public void setterInvoked(String optionName, boolean succeeded, long nanos) {
+            assertTrue(nanos >= 0);
+            events.add("setter " + optionName + " " + succeeded);
+        }
+
+        @Override
+        public void parseCompleted(boolean succeeded, long nanos) {
+            assertTrue(nanos >= 0);
+            events.add("parse " + succeeded);
+        }
+    }
+
+    private static CliSpecification createSpec(){
+        return CliSpecification.create(option("foo").setter(s -> {}),
+                                       option("bar").setToInt(i -> {}),
+                                       option("baz").isFlag(true))
+                               .addValidation(cli -> true, "first")
+                               .addValidation(cli -> !cli.hasOption("baz"), "no baz")
+                               .trailer(new TrailerBuilder().setter(s -> {}).build());
+    }
+
+    @Test
+    public void everyPhaseIsReported() throws CliValidationException{
+        Recorder recorder = new Recorder();
+        createSpec().parseListener(recorder).parse(new String[]{"-foo", "a", "last"});
+        assertEquals(Arrays.asList("TOKENIZE", "CONSTRAINTS",
+                                   "validator 0 true", "validator 1 true", "VALIDATORS",
+                                   "setter foo true", "SETTERS",
+                                   "TRAILER_SETTERS",
+                                   "parse true"), recorder.events);
+    }
+
+    @Test
+    public void failuresAreReported(){
+        Recorder recorder = new Recorder();
+        CliSpecification spec = createSpec().parseListener(recorder);
+
+        assertFalse(spec.tryParse(new String[]{"-baz", "last"}).isSuccess());
+        assertEquals(Arrays.asList("TOKENIZE", "CONSTRAINTS",
+                                   "validator 0 true", "validator 1 false",
+                                   "parse false"), recorder.events);
+
+        recorder.events.clear();
+        assertFalse(spec.tryParse(new String[]{"-bar", "notANumber", "last"}).isSuccess());
+        assertEquals(Arrays.asList("TOKENIZE", "CONSTRAINTS",
+                                   "validator 0 true", "validator 1 true", "VALIDATORS",
+                                   "setter bar false",
+                                   "parse false"), recorder.events);
+
+        recorder.events.clear();
+        assertFalse(spec.tryParse(new String[]{"-unknown", "last"}).isSuccess());
+        assertEquals(Collections.singletonList("parse false"), recorder.events);
+    }
+
+    @Test
+    public void queriesAndBytesAreReported() throws CliValidationException{
+        Recorder recorder = new Recorder();
+        CliSpecification spec = CliSpecification.create(option("foo").setter(s -> {})).parseListener(recorder);
+        spec.parse("foo=a");
+        assertEquals("setter foo true", recorder.events.get(3));
+        assertEquals("parse true", recorder.events.get(recorder.events.size() -1));
+
+        recorder.events.clear();
+        spec.parse("-foo\0a".getBytes(), 0, 6);
+        assertEquals("parse true", recorder.events.get(recorder.events.size() -1));
+    }
+
+    @Test
+    public void settersOnAnExecutorAreReported() throws Exception{
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Recorder recorder = new Recorder();
+            CliSpecification.create(option("a").independentSetter(true).setter(s -> {}),
+                                    option("b").independentSetter(true).setter(s -> {}),
+                                    option("c").independentSetter(true).setter(s -> {}))
+                            .setterExecutor(executor)
+                            .parseListener(recorder)
+                            .parse(new String[]{"-a", "1", "-b", "2"});
+            assertTrue(recorder.events.contains("setter a true"));
+            assertTrue(recorder.events.contains("setter b true"));
+            assertFalse(recorder.events.contains("setter c true"));
+        }finally{
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void onlySampledParsesAreReported() throws CliValidationException{
+        Recorder recorder = new Recorder();
+        CliSpecification spec = createSpec().parseListener(recorder, Integer.MAX_VALUE);
+        for(int i=0; i< 100; i++){
+            spec.parse(new String[]{"-foo", "a", "last"});
+        }
+        assertTrue(recorder.events.isEmpty());
+
+        spec.parseListener(null);
+        spec.parse(new String[]{"-foo", "a", "last"});
+        assertTrue(recorder.events.isEmpty());
+    }
+
+    @Test
+    public void compositeTellsBothListeners(){
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        ParseListener composite = new CompositeParseListener(first, second);
+        composite.phaseCompleted(ParsePhase.SETTERS, 1);
+        composite.validatorCompleted(2, false, 1);
+        composite.setterInvoked("foo", true, 1);
+        composite.parseCompleted(false, 1);
+        List<String> expected = Arrays.asList("SETTERS", "validator 2 false", "setter foo true", "parse false");
+        assertEquals(expected, first.events);
+        assertEquals(expected, second.events);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sampleRateMustBePositive(){
+        createSpec().parseListener(new Recorder(), 0);
+    }
+}
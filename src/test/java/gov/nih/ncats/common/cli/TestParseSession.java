@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+import static org.junit.Assert.*;
+
+public class TestParseSession {
+
+    private static final String[] VOCABULARY = {"-a", "x", "-b", "--long-c", "-c=1", "-d", "y", "-vx", "-v",
+                                                "--", "pos", "-unknown", "-5", "--lo", "--long-e", "\"q\""};
+
+    private static CliSpecification createSpec(){
+        return CliSpecification.create(option("a"),
+                                       radio(option("b").isFlag(true),
+                                             group(option("c").longName("long-c"), option("d").setRequired(true))),
+                                       atLeastOneOf(option("v").isFlag(true), option("x").isFlag(true)).setRequired(true),
+                                       option("e").longName("long-e").isFlag(true));
+    }
+
+    @Test
+    public void diagnosticsOfAnEmptyCommandLine(){
+        ParseSession session = createSpec().newSession();
+        assertEquals(0, session.size());
+        assertFalse(session.isValid());
+        assertEquals(Collections.singletonList(new ParseDiagnostic(-1,
+                "required group was not found require ( [ -v | -x ] )")), session.getDiagnostics());
+    }
+
+    @Test
+    public void editsUpdateTheDiagnostics(){
+        ParseSession session = createSpec().newSession();
+        session.add("-v");
+        assertTrue(session.getDiagnostics().toString(), session.isValid());
+
+        session.add("-a");
+        assertEquals(Collections.singletonList(new ParseDiagnostic(1, "Missing argument for option: a")), session.getDiagnostics());
+        session.add("x");
+        assertTrue(session.isValid());
+
+        session.insert(0, "-b").insert(1, "-c");
+        assertEquals(Arrays.asList(new ParseDiagnostic(2, "Missing argument for option: c"),
+                                   new ParseDiagnostic(-1, "Radio option must only select at most 1 choice but found [(b), ((c))]")),
+                     session.getDiagnostics());
+
+        session.set(2, "1");
+        assertEquals(Arrays.asList("-b", "-c", "1", "-a", "x"), session.getTokens());
+        assertEquals(Collections.singletonList(new ParseDiagnostic(-1, "required group was not found require ( [ -v | -x ] )")),
+                     session.getDiagnostics());
+
+        session.remove(0).add("-v");
+        assertTrue(session.isValid());
+        assertEquals("1", session.toParseResult().getCli().getOptionValue("c"));
+    }
+
+    @Test
+    public void everyTokenErrorIsReported(){
+        ParseSession session = createSpec().newSession().setTokens("-unknown", "-v", "--lo", "-a");
+        assertEquals(Arrays.asList(new ParseDiagnostic(0, "Unrecognized option: -unknown"),
+                                   new ParseDiagnostic(2, "Ambiguous option: '--lo'  (could be: 'long-c', 'long-e')"),
+                                   new ParseDiagnostic(3, "Missing argument for option: a")),
+                     session.getDiagnostics());
+    }
+
+    @Test
+    public void trailersMoveAsTokensAreAdded(){
+        CliSpecification spec = createSpec().trailer(new TrailerBuilder().build());
+        ParseSession session = spec.newSession();
+        assertEquals(new ParseDiagnostic(-1, "not enough arguments"), session.getDiagnostics().get(0));
+        session.add("-v");
+        //-v is the trailer so the constraint isn't met
+        assertFalse(session.isValid());
+        session.add("out");
+        assertTrue(session.isValid());
+        session.remove(1);
+        assertFalse(session.isValid());
+    }
+
+    @Test
+    public void setTokensOnlyReparsesWhatChanged(){
+        ParseSession session = createSpec().newSession().setTokens("-v", "-a", "x", "-e");
+        assertTrue(session.isValid());
+        session.setTokens("-v", "-a", "y", "-e");
+        assertEquals(Arrays.asList("-v", "-a", "y", "-e"), session.getTokens());
+        assertTrue(session.isValid());
+        session.setTokens("-v", "-e");
+        assertTrue(session.isValid());
+        session.setTokens();
+        assertEquals(0, session.size());
+        assertFalse(session.isValid());
+    }
+
+    @Test
+    public void settersAndValidatorsAreNotRun(){
+        AtomicInteger setterCalls = new AtomicInteger();
+        AtomicInteger validatorCalls = new AtomicInteger();
+        CliSpecification spec = CliSpecification.create(option("n").setToInt(i -> setterCalls.incrementAndGet())
+                                                         .addValidation(cli -> validatorCalls.incrementAndGet() > 0, "never"));
+        ParseSession session = spec.newSession().setTokens("-n", "1");
+        assertTrue(session.isValid());
+        assertTrue(session.toParseResult().isSuccess());
+        assertEquals(0, setterCalls.get());
+        assertEquals(1, validatorCalls.get());
+    }
+
+    @Test
+    public void variadicTrailerCount(){
+        CliSpecification spec = createSpec().variadicTrailer(new VariadicTrailerBuilder().min(2).build());
+        ParseSession session = spec.newSession().setTokens("-v", "a", "b");
+        assertTrue(session.isValid());
+        //positional arguments on both sides of an option or a -- count
+        session.insert(2, "-e");
+        assertTrue(session.isValid());
+        session.set(2, "--");
+        assertTrue(session.isValid());
+        session.remove(1);
+        assertEquals(session.toParseResult().getErrorMessage(), session.getDiagnostics().get(0).getMessage());
+        session.set(1, "c");
+        assertTrue(session.isValid());
+    }
+
+    @Test
+    public void randomEditsMatchAFullParse(){
+        Random random = new Random(1234);
+        for(CliSpecification spec : Arrays.asList(createSpec(),
+                                                  createSpec().trailer(new TrailerBuilder().build()),
+                                                  createSpec().variadicTrailer(new VariadicTrailerBuilder().min(1).max(2).build()))){
+            ParseSession session = spec.newSession();
+            List<String> tokens = new ArrayList<>();
+            for(int edit=0; edit< 3000; edit++){
+                int size = tokens.size();
+                int choice = random.nextInt(size == 0 ? 2 : 5);
+                String token = VOCABULARY[random.nextInt(VOCABULARY.length)];
+                if(choice == 0 || size > 12){
+                    if(size > 0 && size > 12){
+                        int index = random.nextInt(size);
+                        tokens.remove(index);
+                        session.remove(index);
+                    }else{
+                        tokens.add(token);
+                        session.add(token);
+                    }
+                }else if(choice == 1){
+                    int index = random.nextInt(size +1);
+                    tokens.add(index, token);
+                    session.insert(index, token);
+                }else if(choice == 2){
+                    int index = random.nextInt(size);
+                    tokens.set(index, token);
+                    session.set(index, token);
+                }else if(choice == 3){
+                    int index = random.nextInt(size);
+                    tokens.remove(index);
+                    session.remove(index);
+                }else{
+                    //retype a random part of the line
+                    int from = random.nextInt(size);
+                    int to = from + random.nextInt(size - from +1);
+                    List<String> retyped = new ArrayList<>(tokens.subList(0, from));
+                    for(int i= random.nextInt(3); i > 0; i--){
+                        retyped.add(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+                    }
+                    retyped.addAll(tokens.subList(to, size));
+                    tokens = retyped;
+                    session.setTokens(tokens);
+                }
+                assertEquals(tokens, session.getTokens());
+                assertSameAsFullParse(spec, tokens, session);
+            }
+        }
+    }
+
+    private static void assertSameAsFullParse(CliSpecification spec, List<String> tokens, ParseSession session){
+        ParseResult expected = spec.tryParse(tokens.toArray(new String[0]));
+        List<ParseDiagnostic> diagnostics = session.getDiagnostics();
+        assertEquals(tokens.toString(), expected.isSuccess(), session.isValid());
+        assertEquals(tokens.toString(), expected.isSuccess(), diagnostics.isEmpty());
+        if(!expected.isSuccess()){
+            assertEquals(tokens.toString(), expected.getErrorMessage(), diagnostics.get(0).getMessage());
+        }
+        //a session that parsed everything from scratch finds the same problems
+        assertEquals(tokens.toString(), spec.newSession().setTokens(tokens).getDiagnostics(), diagnostics);
+    }
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+import static org.junit.Assert.*;
+
+public class TestPrimitiveSetters {
+
+    private long longValue;
+    private double doubleValue;
+    private Boolean booleanValue;
+
+    @Test
+    public void setters() throws CliValidationException{
+        CliSpecification.create(option("offset").setToLong(v -> longValue = v),
+                                option("threshold").setToDouble(v -> doubleValue = v),
+                                option("b").setToBoolean(v -> booleanValue = v))
+                        .parse(new String[]{"-offset", "12345678901", "-threshold", "-0.125", "-b", "FALSE"});
+        assertEquals(12345678901L, longValue);
+        assertEquals(-0.125, doubleValue, 0);
+        assertFalse(booleanValue);
+    }
+
+    @Test
+    public void booleanFlagIsTrue() throws CliValidationException{
+        CliSpecification.create(option("v").isFlag(true).setToBoolean(v -> booleanValue = v))
+                        .parse(new String[]{"-v"});
+        assertTrue(booleanValue);
+    }
+
+    @Test
+    public void validators(){
+        CliSpecification spec = CliSpecification.create(option("offset").setToLong(v -> longValue = v, v -> v >= 0),
+                                                        option("threshold").setToDouble(v -> doubleValue = v, v -> v <= 1));
+        assertTrue(spec.tryParse(new String[]{"-offset", "0", "-threshold", "1"}).isSuccess());
+        assertEquals("setter did not pass validation test", spec.tryParse(new String[]{"-offset", "-1"}).getErrorMessage());
+        assertEquals("setter did not pass validation test", spec.tryParse(new String[]{"-threshold", "1.5"}).getErrorMessage());
+        assertEquals("error parsing long value", spec.tryParse(new String[]{"-offset", "1.5"}).getErrorMessage());
+        assertEquals("error parsing double value", spec.tryParse(new String[]{"-threshold", "x"}).getErrorMessage());
+    }
+
+    @Test
+    public void badValues(){
+        assertTrue(CliSpecification.create(option("n").setToLong(v -> {})).tryParse(new String[]{"-n", "x"})
+                        .getFailure().getCause() instanceof NumberFormatException);
+        assertFalse(CliSpecification.create(option("b").setToBoolean(v -> {})).tryParse(new String[]{"-b", "maybe"}).isSuccess());
+    }
+
+    @Test
+    public void getterReusesSetterValue() throws CliValidationException{
+        Cli cli = CliSpecification.create(option("n").setToLong(v -> longValue = v), option("i").setToInt(v -> {}))
+                                  .parse(new String[]{"-n", "5", "-i", "6"});
+        assertEquals(5L, cli.getLong("n", -1));
+        assertEquals(6, cli.getInt("i", -1));
+    }
+
+    @Test
+    public void trailers() throws CliValidationException{
+        CliSpecification.create(option("v").isFlag(true))
+                        .trailer(new TrailerBuilder().setToLong(v -> longValue = v, v -> v > 0).build())
+                        .trailer(new TrailerBuilder().setToDouble(v -> doubleValue = v).build())
+                        .trailer(new TrailerBuilder().setToBoolean(v -> booleanValue = v).build())
+                        .parse(new String[]{"-v", "7", "2.5e3", "true"});
+        assertEquals(7L, longValue);
+        assertEquals(2500, doubleValue, 0);
+        assertTrue(booleanValue);
+    }
+
+    @Test
+    public void parseDoubleIsTheSameAsTheJdk(){
+        String[] values = {"0", "-0", "+1", "1.", ".5", "0.1", "3.14159", "-2.5e-3", "1E22", "1e23", "123456789012345",
+                           "1234567890123456789", "0.000001", "1e-22", "4.9e-324", "1.7976931348623157e308", "1e400",
+                           "NaN", "-Infinity", "0x1p3", "1.5d", " 2 ", "00012.5000"};
+        for(String value : values){
+            assertEquals(value, Double.doubleToRawLongBits(Double.parseDouble(value)),
+                                Double.doubleToRawLongBits(PrimitiveParsing.parseDouble(value)));
+        }
+        Random random = new Random(1234);
+        for(int i=0; i< 100_000; i++){
+            String value = random.nextInt(1_000_000) + "." + random.nextInt(1_000_000) + (random.nextBoolean() ? "" : "e" + (random.nextInt(50) - 25));
+            assertEquals(value, Double.parseDouble(value), PrimitiveParsing.parseDouble(value), 0);
+        }
+        for(String value : new String[]{"", "-", ".", "1e", "1.2.3", "e5", "1e+", null}){
+            try{
+                PrimitiveParsing.parseDouble(value);
+                fail(value);
+            }catch(NumberFormatException expected){
+            }
+        }
+    }
+
+    @Test
+    public void parsingAndGettingDoesNotAllocate() throws CliValidationException{
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("need to be able to measure allocations",
+                bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported());
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) bean;
+        allocations.setThreadAllocatedMemoryEnabled(true);
+        Cli cli = CliSpecification.create(option("n"), option("d")).parse(new String[]{"-n", "123456789", "-d", "0.25"});
+
+        long threadId = Thread.currentThread().getId();
+        long sum = 0;
+        for(int round=0; round< 2; round++){
+            //the first round is the warm up
+            long before = allocations.getThreadAllocatedBytes(threadId);
+            for(int i=0; i< 10_000; i++){
+                sum += cli.getLong("n", 0);
+                sum += (long) PrimitiveParsing.parseDouble("0.25");
+                sum += Long.parseLong("123456789");
+            }
+            long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+            if(round == 1){
+                assertTrue("allocated " + allocated + " bytes", allocated < 1_000);
+            }
+        }
+        assertTrue(sum > 0);
+    }
+}
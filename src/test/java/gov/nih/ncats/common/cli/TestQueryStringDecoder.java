@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.net.URL;
+import java.net.URLEncoder;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+import static org.junit.Assert.*;
+
+public class TestQueryStringDecoder {
+
+    private static CliSpecification createSpec(){
+        return CliSpecification.create(option("foo"), option("bar"),
+                                       option("v").isFlag(true),
+                                       option("p").longName("path"));
+    }
+
+    @Test
+    public void plainParameters() throws CliValidationException{
+        Cli cli = createSpec().parse("foo=1&bar=two&v");
+        assertEquals("1", cli.getOptionValue("foo"));
+        assertEquals("two", cli.getOptionValue("bar"));
+        assertTrue(cli.hasOption("v"));
+        assertFalse(cli.hasOption("p"));
+    }
+
+    @Test
+    public void percentDecoding() throws Exception{
+        String value = "/tmp/a b+c&d=\u00e9\u4e2d\ud83d\ude00%";
+        Cli cli = createSpec().parse("f%6Fo=" + URLEncoder.encode(value, "UTF-8") + "&bar=x+y");
+        assertEquals(value, cli.getOptionValue("foo"));
+        assertEquals("x y", cli.getOptionValue("bar"));
+    }
+
+    @Test
+    public void longNamesAndHyphens() throws CliValidationException{
+        assertEquals("a", createSpec().parse("path=a").getOptionValue("p"));
+        assertEquals("b", createSpec().parse("pa=b").getOptionValue("p"));
+        assertEquals("c", createSpec().parse("--path=c").getOptionValue("p"));
+        assertEquals("d", createSpec().parse("-foo=d").getOptionValue("foo"));
+    }
+
+    @Test
+    public void valuesThatLookLikeOptionsAreStillValues() throws CliValidationException{
+        Cli cli = createSpec().parse("foo=-bar&bar=-1");
+        assertEquals("-bar", cli.getOptionValue("foo"));
+        assertEquals("-1", cli.getOptionValue("bar"));
+    }
+
+    @Test
+    public void emptyAndNullQueries() throws Exception{
+        assertFalse(createSpec().parse((CharSequence) null).hasOption("foo"));
+        assertFalse(createSpec().parse("").hasOption("foo"));
+        assertFalse(createSpec().parse(new URI("http://example.com/path")).hasOption("foo"));
+        assertFalse(createSpec().parse(new URL("http://example.com/path")).hasOption("foo"));
+        assertTrue(createSpec().parse("&&v&").hasOption("v"));
+    }
+
+    @Test
+    public void uriUsesRawQuery() throws Exception{
+        Cli cli = createSpec().parse(new URI("http://example.com/?foo=a%26b&bar=%3D"));
+        assertEquals("a&b", cli.getOptionValue("foo"));
+        assertEquals("=", cli.getOptionValue("bar"));
+    }
+
+    @Test
+    public void failures(){
+        CliSpecification spec = createSpec();
+        assertEquals("Unrecognized option: -baz", spec.tryParse("baz=1").getErrorMessage());
+        assertEquals("Missing argument for option: foo", spec.tryParse("foo&v").getErrorMessage());
+        assertEquals("Missing argument for option: foo", spec.tryParse("foo").getErrorMessage());
+        assertEquals("Incomplete trailing escape (%) pattern", spec.tryParse("foo=%4").getErrorMessage());
+        assertEquals("Illegal hex characters in escape (%) pattern", spec.tryParse("foo=%g0").getErrorMessage());
+        assertEquals("Unrecognized option: -=x", spec.tryParse("=x").getErrorMessage());
+    }
+}
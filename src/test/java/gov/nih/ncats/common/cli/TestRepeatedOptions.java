@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+import static org.junit.Assert.*;
+
+public class TestRepeatedOptions {
+
+    private static CliSpecification createSpec(){
+        return CliSpecification.create(option("i"), option("o"), option("v").isFlag(true));
+    }
+
+    @Test
+    public void repeatedOption() throws CliValidationException{
+        for(boolean commonsCli : new boolean[]{false, true}){
+            Cli cli = createSpec().commonsCliParser(commonsCli)
+                                  .parse(new String[]{"-i", "a", "-o", "x", "-i", "b", "-v", "-i", "c"});
+            assertEquals(Arrays.asList("a", "b", "c"), cli.getOptionValues("i"));
+            assertEquals("a", cli.getOptionValue("i"));
+            assertEquals(Collections.singletonList("x"), cli.getOptionValues("o"));
+            assertTrue(cli.getOptionValues("v").isEmpty());
+            assertTrue(cli.getOptionValues("notAnOption").isEmpty());
+        }
+    }
+
+    @Test
+    public void repeatedQueryKeys() throws Exception{
+        Cli cli = createSpec().parse(new URL("http://example.com?i=1&o=2&i=3%204"));
+        assertEquals(Arrays.asList("1", "3 4"), cli.getOptionValues("i"));
+        assertEquals(Arrays.asList("2"), cli.getOptionValues("o"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void valuesAreUnmodifiable() throws CliValidationException{
+        createSpec().parse(new String[]{"-i", "a"}).getOptionValues("i").add("b");
+    }
+
+    @Test
+    public void streamSetterGetsEveryValue() throws CliValidationException{
+        int n = 50_000;
+        String[] args = new String[n * 2 +2];
+        for(int i=0; i< n; i++){
+            args[2*i] = "-i";
+            args[2*i +1] = Integer.toString(i);
+        }
+        args[n*2] = "-o";
+        args[n*2 +1] = "out";
+        List<List<String>> calls = new ArrayList<>();
+        CliSpecification.create(option("i").setToStream(s -> calls.add(s.collect(Collectors.toList()))),
+                                option("o"))
+                        .parse(args);
+        assertEquals(1, calls.size());
+        List<String> values = calls.get(0);
+        assertEquals(n, values.size());
+        for(int i=0; i< n; i++){
+            assertEquals(Integer.toString(i), values.get(i));
+        }
+    }
+
+    @Test
+    public void streamSetterNotCalledIfOptionMissing() throws CliValidationException{
+        List<String> seen = new ArrayList<>();
+        CliSpecification.create(option("i").setToStream(s -> s.forEach(seen::add)), option("o"))
+                        .parse(new String[]{"-o", "x"});
+        assertTrue(seen.isEmpty());
+    }
+
+    @Test
+    public void laterSetterReplacesStreamSetter() throws CliValidationException{
+        List<String> seen = new ArrayList<>();
+        CliSpecification.create(option("i").setToStream(s -> fail("should not be called"))
+                                           .setter(seen::add))
+                        .parse(new String[]{"-i", "a", "-i", "b"});
+        assertEquals(Collections.singletonList("a"), seen);
+    }
+}
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+import static org.junit.Assert.*;
+
+public class TestSetterSchedule {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+    @After
+    public void shutdown(){
+        executor.shutdownNow();
+    }
+
+    private BasicCliOptionBuilder recorded(String name){
+        return option(name).isFlag(true).setter(s -> calls.add(name));
+    }
+
+    @Test
+    public void defaultIsDeclarationOrder() throws CliValidationException{
+        for(ExecutorService e : Arrays.asList(null, executor)){
+            calls.clear();
+            CliSpecification.create(recorded("c"), group(recorded("a"), recorded("d")), recorded("b"))
+                            .setterExecutor(e)
+                            .parse(new String[]{"-b", "-a", "-d", "-c"});
+            assertEquals(Arrays.asList("c", "a", "d", "b"), calls);
+        }
+    }
+
+    @Test
+    public void dependenciesComeFirst() throws CliValidationException{
+        CliSpecification.create(recorded("a").setterDependsOn("c"), recorded("b"), recorded("c").independentSetter(true))
+                        .parse(new String[]{"-a", "-b", "-c"});
+        assertEquals(Arrays.asList("b", "c", "a"), calls);
+    }
+
+    @Test
+    public void dependencyOnMissingOptionIsIgnored() throws CliValidationException{
+        CliSpecification.create(recorded("a").setterDependsOn("c"), recorded("c"), option("v").isFlag(true))
+                        .setterExecutor(executor)
+                        .parse(new String[]{"-a"});
+        assertEquals(Collections.singletonList("a"), calls);
+    }
+
+    @Test
+    public void independentSettersRunConcurrently() throws CliValidationException{
+        //each setter waits for the other two so this only finishes if they run at the same time
+        CyclicBarrier barrier = new CyclicBarrier(3);
+        List<BasicCliOptionBuilder> options = new ArrayList<>();
+        for(String name : new String[]{"x", "y", "z"}){
+            options.add(option(name).isFlag(true).independentSetter(true).setter(s -> {
+                barrier.await(10, TimeUnit.SECONDS);
+                calls.add(name);
+            }));
+        }
+        options.add(recorded("last").setterDependsOn("x", "y", "z"));
+        CliSpecification.create(options.toArray(new CliOptionBuilder[0]))
+                        .setterExecutor(executor)
+                        .parse(new String[]{"-x", "-y", "-z", "-last"});
+        assertEquals(4, calls.size());
+        assertEquals("last", calls.get(3));
+    }
+
+    @Test
+    public void concurrentTypedSettersAllGetTheirValues() throws CliValidationException{
+        int n = 8;
+        AtomicIntegerArray values = new AtomicIntegerArray(n);
+        List<BasicCliOptionBuilder> options = new ArrayList<>();
+        String[] args = new String[2 * n];
+        for(int i=0; i< n; i++){
+            int index = i;
+            options.add(option("o" + i).independentSetter(true).setToInt(v -> values.set(index, v)));
+            args[2 * i] = "-o" + i;
+        }
+        ExecutorService wide = Executors.newFixedThreadPool(n);
+        try {
+            CompiledCliSpecification spec = CliSpecification.create(options.toArray(new CliOptionBuilder[0]))
+                                                            .setterExecutor(wide)
+                                                            .compile();
+            //the setters race to fill in the Cli's caches so do it enough times for a bad race to show up
+            for(int run=1; run<= 20_000; run++){
+                for(int i=0; i< n; i++){
+                    args[2 * i + 1] = Integer.toString(run * n + i);
+                }
+                Cli cli = spec.parse(args);
+                for(int i=0; i< n; i++){
+                    assertEquals(run * n + i, values.get(i));
+                    assertEquals(run * n + i, cli.getInt("o" + i, -1));
+                }
+            }
+        }finally{
+            wide.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrentTypedGettersOnASharedCli() throws Exception{
+        int n = 8;
+        CompiledCliSpecification spec = CliSpecification.create(option("n"), option("big"), option("path"),
+                                                                option("unit"), option("f").setToFile(f -> {}))
+                                                        .compile();
+        ExecutorService wide = Executors.newFixedThreadPool(n);
+        try {
+            for(int run=1; run<= 2_000; run++){
+                Cli cli = spec.parse(new String[]{"-n", Integer.toString(run), "-big", Long.toString(run * 10_000_000_000L),
+                                                  "-path", "/tmp/" + run, "-unit", "SECONDS", "-f", "file" + run});
+                int expected = run;
+                //every thread asks for every value at once, some as a different type, so they race to fill the caches
+                CyclicBarrier start = new CyclicBarrier(n);
+                List<Future<?>> readers = new ArrayList<>();
+                for(int i=0; i< n; i++){
+                    boolean asLong = i % 2 == 0;
+                    readers.add(wide.submit(() -> {
+                        start.await(10, TimeUnit.SECONDS);
+                        if(asLong){
+                            assertEquals(expected, cli.getLong("n", -1));
+                        }else{
+                            assertEquals(expected, cli.getInt("n", -1));
+                        }
+                        assertEquals(expected * 10_000_000_000L, cli.getLong("big", -1));
+                        assertEquals(Paths.get("/tmp/" + expected), cli.getPath("path"));
+                        assertEquals(TimeUnit.SECONDS, cli.getEnum("unit", TimeUnit.class));
+                        assertEquals(Paths.get("file" + expected), cli.getPath("f"));
+                        return null;
+                    }));
+                }
+                for(Future<?> reader : readers){
+                    reader.get(10, TimeUnit.SECONDS);
+                }
+            }
+        }finally{
+            wide.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failedSetterIsThrownAndDependentsAreSkipped(){
+        CliSpecification spec = CliSpecification.create(
+                                        option("n").independentSetter(true).setToInt(i -> {}),
+                                        recorded("after").setterDependsOn("n"),
+                                        recorded("other").independentSetter(true))
+                                    .setterExecutor(executor);
+        ParseResult result = spec.tryParse(new String[]{"-n", "x", "-after", "-other"});
+        assertFalse(result.isSuccess());
+        assertTrue(result.getFailure().getCause() instanceof NumberFormatException);
+        assertFalse(calls.contains("after"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownDependency(){
+        CliSpecification.create(recorded("a").setterDependsOn("notAnOption"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cycle(){
+        CliSpecification.create(recorded("a").setterDependsOn("b"), recorded("b").setterDependsOn("a"));
+    }
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+
+package gov.nih.ncats.common.cli;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class TestTextWrapper {
+
+    private static final String NEW_LINE = String.format("%n");
+
+    private static String wrap(int width, int nextLineTabStop, String text){
+        StringBuilder builder = new StringBuilder();
+        TextWrapper.wrap(builder, width, nextLineTabStop, text);
+        return builder.toString();
+    }
+
+    @Test
+    public void shortTextIsNotWrapped(){
+        assertEquals("short text", wrap(20, 2, "short text  "));
+        assertEquals("", wrap(20, 2, ""));
+    }
+
+    @Test
+    public void wrapsOnLastWhitespaceThatFits(){
+        assertEquals("the quick brown" + NEW_LINE +
+                     "  fox jumps over" + NEW_LINE +
+                     "  the lazy dog", wrap(16, 2, "the quick brown fox jumps over the lazy dog"));
+    }
+
+    @Test
+    public void longWordIsNotBroken(){
+        assertEquals("abcdefghijklmnop", wrap(5, 0, "abcdefghijklmnop"));
+        assertEquals("ab" + NEW_LINE + "   cdefghijklmnop", wrap(5, 3, "ab cdefghijklmnop"));
+    }
+
+    @Test
+    public void sameAsRegexWrapper(){
+        Random random = new Random(1234);
+        char[] alphabet = {'a', 'b', ' ', ' ', '\t', '\n', '\u0001', '\u00a0', '\u2003', 'z'};
+        for(int i=0; i< 5_000; i++){
+            char[] chars = new char[random.nextInt(60)];
+            for(int j=0; j< chars.length; j++){
+                chars[j] = alphabet[random.nextInt(alphabet.length)];
+            }
+            String text = new String(chars);
+            int width = 1 + random.nextInt(20);
+            int tabStop = random.nextInt(5);
+            assertEquals(text, regexWrap(width, tabStop, text), wrap(width, tabStop, text));
+        }
+    }
+
+    /**
+     * The wrapper the usage used before, which copies and reverses
+     * every line to find the whitespace.
+     */
+    private static String regexWrap(int width, int nextLineTabStop, String text){
+        StringBuilder builder = new StringBuilder();
+        int pos = regexFindWrapPos(text, width);
+        if(pos == -1){
+            return builder.append(regexRTrim(text)).toString();
+        }
+        builder.append(regexRTrim(text.substring(0, pos))).append(NEW_LINE);
+        StringBuilder padding = new StringBuilder();
+        for(int i=0; i< nextLineTabStop; i++){
+            padding.append(' ');
+        }
+        while(true){
+            text = text.substring(pos).trim();
+            pos = regexFindWrapPos(text, width);
+            if(pos == -1){
+                return builder.append(padding).append(text).toString();
+            }
+            builder.append(padding).append(regexRTrim(text.substring(0, pos))).append(NEW_LINE);
+        }
+    }
+
+    private static String regexRTrim(String buf){
+        int pos = buf.length();
+        while(pos > 0 && Character.isWhitespace(buf.charAt(pos -1))){
+            --pos;
+        }
+        return buf.substring(0, pos);
+    }
+
+    private static int regexFindWrapPos(String text, int width){
+        if(text.length() < width){
+            return -1;
+        }
+        String subString = new StringBuilder(text.substring(0, width)).reverse().toString();
+        Matcher matcher = Pattern.compile("\\s").matcher(subString);
+        if(matcher.find()){
+            return subString.length() - matcher.start();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.junit.Test;
+
+import java.net.URL;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+import static org.junit.Assert.*;
+
+public class TestTryParse {
+
+    private static CliSpecification createSpec(){
+        return CliSpecification.create(radio(option("bar"), option("baz")).setRequired(true),
+                                       option("n").setToInt(i->{}));
+    }
+
+    @Test
+    public void success(){
+        ParseResult result = createSpec().tryParse(new String[]{"-bar", "x"});
+        assertTrue(result.isSuccess());
+        assertEquals("x", result.getCli().getOptionValue("bar"));
+        assertNull(result.getErrorMessage());
+        assertNull(result.getFailure());
+    }
+
+    @Test
+    public void failureDoesNotThrowOrFillInStackTrace(){
+        ParseResult result = createSpec().tryParse(new String[]{"-bar", "x", "-baz", "y"});
+        assertFalse(result.isSuccess());
+        assertEquals("Radio option must only select at most 1 choice but found [(bar), (baz)]", result.getErrorMessage());
+        assertEquals(0, result.getFailure().getStackTrace().length);
+
+        assertEquals("Unrecognized option: -foo", createSpec().tryParse(new String[]{"-foo"}).getErrorMessage());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getCliOfFailureShouldThrow(){
+        createSpec().tryParse(new String[0]).getCli();
+    }
+
+    @Test
+    public void parseStillThrowsWithStackTrace(){
+        try{
+            createSpec().parse(new String[]{"-n", "notANumber", "-bar", "x"});
+            fail("should throw");
+        }catch(CliValidationException e){
+            assertTrue(e.getStackTrace().length > 0);
+            assertTrue(e.getCause() instanceof NumberFormatException);
+        }
+    }
+
+    @Test
+    public void urlThatCanNotBeDecodedIsAFailure() throws Exception{
+        ParseResult result = createSpec().tryParse(new URL("http://example.com?bar=%zz"));
+        assertFalse(result.isSuccess());
+        assertEquals("Illegal hex characters in escape (%) pattern", result.getErrorMessage());
+
+        assertTrue(createSpec().tryParse(new URL("http://example.com?baz=y")).getCli().hasOption("baz"));
+    }
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+import static org.junit.Assert.*;
+
+public class TestTypedValues {
+
+    private static CliSpecification createSpec(){
+        return CliSpecification.create(option("n"), option("big"), option("path"),
+                                       option("unit"), option("v").isFlag(true));
+    }
+
+    @Test
+    public void typedValues() throws CliValidationException{
+        Cli cli = createSpec().parse(new String[]{"-n", "42", "-big", "12345678901", "-path", "/tmp/x", "-unit", "SECONDS"});
+        assertEquals(42, cli.getInt("n", -1));
+        assertEquals(12345678901L, cli.getLong("big", -1));
+        assertEquals(42L, cli.getLong("n", -1));
+        assertEquals(Paths.get("/tmp/x"), cli.getPath("path"));
+        assertEquals(TimeUnit.SECONDS, cli.getEnum("unit", TimeUnit.class));
+        //the raw value is still there
+        assertEquals("42", cli.getOptionValue("n"));
+    }
+
+    @Test
+    public void missingOptionsGetTheDefault() throws CliValidationException{
+        Cli cli = createSpec().parse(new String[]{"-v"});
+        assertEquals(7, cli.getInt("n", 7));
+        assertEquals(7, cli.getInt("notAnOption", 7));
+        assertEquals(8L, cli.getLong("big", 8L));
+        assertNull(cli.getPath("path"));
+        assertNull(cli.getEnum("unit", TimeUnit.class));
+    }
+
+    @Test
+    public void valuesAreOnlyConvertedOnce() throws CliValidationException{
+        Cli cli = createSpec().parse(new String[]{"-path", "/tmp/x", "-unit", "DAYS"});
+        Path path = cli.getPath("path");
+        assertSame(path, cli.getPath("path"));
+        assertSame(TimeUnit.DAYS, cli.getEnum("unit", TimeUnit.class));
+    }
+
+    @Test
+    public void setterConverterIsReused() throws CliValidationException{
+        AtomicInteger conversions = new AtomicInteger();
+        AtomicInteger setValue = new AtomicInteger();
+        Cli cli = CliSpecification.create(option("n").setter(s->{
+                                                            conversions.incrementAndGet();
+                                                            return Integer.valueOf(s);
+                                                        }, setValue::set, null))
+                                  .parse(new String[]{"-n", "5"});
+        assertEquals(5, setValue.get());
+        for(int i=0; i< 10; i++){
+            assertEquals(5, cli.getInt("n", -1));
+        }
+        assertEquals(1, conversions.get());
+    }
+
+    @Test
+    public void setToFileThenGetPath() throws CliValidationException{
+        File[] file = new File[1];
+        Cli cli = CliSpecification.create(option("f").setToFile(f-> file[0] = f))
+                                  .parse(new String[]{"-f", "a/b"});
+        assertEquals(new File("a/b"), file[0]);
+        assertEquals(Paths.get("a/b"), cli.getPath("f"));
+    }
+
+    @Test
+    public void getPathInValidatorBeforeSetToFile() throws CliValidationException{
+        File[] file = new File[1];
+        Cli cli = CliSpecification.create(option("f").setToFile(f-> file[0] = f))
+                                  .addValidation(c -> c.getPath("f") != null, "no path")
+                                  .parse(new String[]{"-f", "a/b"});
+        assertEquals(new File("a/b"), file[0]);
+        assertEquals(Paths.get("a/b"), cli.getPath("f"));
+    }
+
+    @Test
+    public void getIntInValidatorBeforeStringSetter() throws CliValidationException{
+        String[] value = new String[1];
+        Cli cli = CliSpecification.create(option("n").setter(s-> value[0] = s))
+                                  .addValidation(c -> c.getInt("n", 0) > 0, "n must be positive")
+                                  .parse(new String[]{"-n", "5"});
+        assertEquals("5", value[0]);
+        assertEquals(5, cli.getInt("n", 0));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void notAnInt() throws CliValidationException{
+        createSpec().parse(new String[]{"-n", "x"}).getInt("n", 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notAnEnumConstant() throws CliValidationException{
+        createSpec().parse(new String[]{"-unit", "FORTNIGHTS"}).getEnum("unit", TimeUnit.class);
+    }
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+
+package gov.nih.ncats.common.cli;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.charset.StandardCharsets;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+import static org.junit.Assert.*;
+
+public class TestUsageCache {
+
+    private static CliSpecification createSpec(){
+        return CliSpecification.create(option("foo").description("the foo option which has a long description " +
+                                                                 "that will need to be wrapped at narrow widths"),
+                                       option("bar").isFlag(true));
+    }
+
+    @Test
+    public void usageIsReusedUntilChanged(){
+        CliSpecification spec = createSpec();
+        String usage = spec.generateUsage();
+        assertSame(usage, spec.generateUsage());
+
+        spec.description("does things");
+        String withDescription = spec.generateUsage();
+        assertNotSame(usage, withDescription);
+        assertTrue(withDescription.contains("does things"));
+        assertSame(withDescription, spec.generateUsage());
+    }
+
+    @Test
+    public void everyPrintedPartClearsTheCache(){
+        CliSpecification spec = createSpec();
+        String usage = spec.generateUsage();
+
+        assertTrue(spec.programName("myProg").generateUsage().contains("myProg"));
+        assertTrue(spec.footer("the end").generateUsage().contains("the end"));
+        assertTrue(spec.example("-foo 1", "an example").generateUsage().contains("an example"));
+
+        String beforeTrailer = spec.generateUsage();
+        spec.trailer(new TrailerBuilder().build());
+        assertNotSame(beforeTrailer, spec.generateUsage());
+        String beforeVariadic = spec.generateUsage();
+        spec.variadicTrailer(new VariadicTrailerBuilder().build());
+        assertNotSame(beforeVariadic, spec.generateUsage());
+
+        assertNotEquals(usage, spec.generateUsage());
+    }
+
+    @Test
+    public void eachWidthIsCachedSeparately(){
+        CliSpecification spec = createSpec();
+        String wide = spec.generateUsage(120);
+        String narrow = spec.generateUsage(40);
+        assertNotEquals(wide, narrow);
+        assertSame(wide, spec.generateUsage());
+        assertSame(narrow, spec.generateUsage(40));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void widthMustBePositive(){
+        createSpec().generateUsage(0);
+    }
+
+    @Test
+    public void utf8BytesAreShared(){
+        CliSpecification spec = createSpec().description("caf\u00e9");
+        ByteBuffer bytes = spec.generateUsageUtf8();
+        assertEquals(spec.generateUsage(), StandardCharsets.UTF_8.decode(bytes).toString());
+        assertFalse(bytes.hasRemaining());
+
+        //each call gets its own position
+        assertEquals(0, spec.generateUsageUtf8().position());
+        assertEquals(spec.generateUsage(40), StandardCharsets.UTF_8.decode(spec.generateUsageUtf8(40)).toString());
+
+        spec.description("tea");
+        assertEquals(spec.generateUsage(), StandardCharsets.UTF_8.decode(spec.generateUsageUtf8()).toString());
+    }
+
+    @Test(expected = ReadOnlyBufferException.class)
+    public void utf8BytesCanNotBeModified(){
+        createSpec().generateUsageUtf8().put(0, (byte) 'x');
+    }
+}
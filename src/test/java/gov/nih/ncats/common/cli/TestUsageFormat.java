@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+
+package gov.nih.ncats.common.cli;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+import static org.junit.Assert.*;
+
+public class TestUsageFormat {
+
+    private static final String NEW_LINE = String.format("%n");
+
+    private static CliSpecification createSpec(){
+        return CliSpecification.create(option("foo").description("the foo option which has a long description " +
+                                                                 "that will need to be wrapped at narrow widths"),
+                                       option("bar").isFlag(true).description("a flag"),
+                                       option("p").longName("path").argName("file"))
+                               .programName("prog")
+                               .description("does things")
+                               .example("-foo 1", "an example")
+                               .footer("the end");
+    }
+
+    /**
+     * Keeps each piece that is written separately.
+     */
+    private static final class Pieces implements Appendable{
+        private final List<String> pieces = new ArrayList<>();
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            pieces.add(csq.toString());
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            return append(csq.subSequence(start, end));
+        }
+
+        @Override
+        public Appendable append(char c) {
+            return append(String.valueOf(c));
+        }
+
+        String joined(){
+            return String.join("", pieces);
+        }
+    }
+
+    @Test
+    public void writeUsageIsWrittenASectionAtATime() throws IOException{
+        for(UsageFormat format : new UsageFormat[]{UsageFormat.DEFAULT, UsageFormat.DEFAULT.width(30),
+                                                   UsageFormat.DEFAULT.leftPadding(0).descPadding(6)}){
+            Pieces pieces = new Pieces();
+            createSpec().writeUsage(pieces, format);
+            //header, one for each option, the example and the footer
+            assertEquals(6, pieces.pieces.size());
+            assertEquals(createSpec().generateUsage(format), pieces.joined());
+        }
+    }
+
+    @Test
+    public void writeUsageUsesAlreadyGeneratedUsage() throws IOException{
+        CliSpecification spec = createSpec();
+        String usage = spec.generateUsage();
+        Pieces pieces = new Pieces();
+        spec.writeUsage(pieces, UsageFormat.DEFAULT);
+        assertEquals(1, pieces.pieces.size());
+        assertSame(usage, pieces.pieces.get(0));
+    }
+
+    @Test
+    public void defaultFormatIsTheSameAsGenerateUsage(){
+        CliSpecification spec = createSpec();
+        assertEquals(spec.generateUsage(), spec.generateUsage(UsageFormat.DEFAULT));
+        assertEquals(spec.generateUsage(30), spec.generateUsage(UsageFormat.DEFAULT.width(30)));
+    }
+
+    @Test
+    public void paddings(){
+        String usage = createSpec().generateUsage(UsageFormat.DEFAULT.leftPadding(0).descPadding(1));
+        assertTrue(usage, usage.contains(NEW_LINE + "    -bar             a flag" + NEW_LINE));
+        usage = createSpec().generateUsage(UsageFormat.DEFAULT.leftPadding(2).descPadding(3));
+        assertTrue(usage, usage.contains(NEW_LINE + "      -bar               a flag" + NEW_LINE));
+    }
+
+    @Test
+    public void optionHelpIsTheSameAsInTheUsage() throws IOException{
+        CliSpecification spec = createSpec();
+        UsageFormat format = UsageFormat.DEFAULT.width(30);
+        String usage = spec.generateUsage(format);
+        for(String name : new String[]{"foo", "bar", "p", "path", "--path"}){
+            StringBuilder builder = new StringBuilder();
+            spec.writeOptionHelp(builder, name, format);
+            assertTrue(builder.toString(), builder.toString().endsWith(NEW_LINE));
+            assertTrue(builder.toString(), usage.contains(NEW_LINE + builder));
+        }
+        StringBuilder builder = new StringBuilder();
+        spec.writeOptionHelp(builder, "bar");
+        assertEquals("     -bar               a flag" + NEW_LINE, builder.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownOptionHelpShouldThrow() throws IOException{
+        createSpec().writeOptionHelp(new StringBuilder(), "unknown");
+    }
+
+    @Test
+    public void columns(){
+        assertEquals(80, UsageFormat.fromColumns("80").getWidth());
+        assertEquals(UsageFormat.DEFAULT, UsageFormat.fromColumns(null));
+        assertEquals(UsageFormat.DEFAULT, UsageFormat.fromColumns("wide"));
+        assertEquals(UsageFormat.DEFAULT, UsageFormat.fromColumns("0"));
+        assertNotNull(UsageFormat.fromTerminal());
+    }
+
+    @Test
+    public void formatsAreValues(){
+        assertEquals(UsageFormat.DEFAULT.width(50), UsageFormat.DEFAULT.width(50));
+        assertEquals(UsageFormat.DEFAULT.width(50).hashCode(), UsageFormat.DEFAULT.width(50).hashCode());
+        assertNotEquals(UsageFormat.DEFAULT.width(50), UsageFormat.DEFAULT.width(50).descPadding(1));
+        assertEquals(3, UsageFormat.DEFAULT.width(50).getDescPadding());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativePaddingShouldThrow(){
+        UsageFormat.DEFAULT.leftPadding(-1);
+    }
+}
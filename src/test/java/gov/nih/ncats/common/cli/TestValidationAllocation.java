@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+import static org.junit.Assert.*;
+
+/**
+ * Validating a command line that passes shouldn't create any garbage.
+ */
+public class TestValidationAllocation {
+
+    private static final int ITERATIONS = 10_000;
+
+    @Test
+    public void validCommandLineDoesNotAllocate() throws CliValidationException{
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("need to be able to measure allocations",
+                bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported());
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) bean;
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        InternalCliOption tree = ((InternalCliOptionBuilder) group(
+                                        group(option("foo").setRequired(true),
+                                                radio(option("bar"), option("baz")).setRequired(true),
+                                                atLeastOneOf(option("x").isFlag(true), option("y").isFlag(true)))
+                                            .setRequired(true),
+                                        radio(group(option("a"), option("b")), option("c"))
+                                            .addValidation(cli -> !cli.hasOption("c"), "no c"),
+                                        option("path").setRequired(true)
+                                            .addValidation(cli -> cli.hasOption("foo"), "path needs foo")))
+                                    .build();
+        InternalCliSpecification spec = new InternalCliSpecification();
+        tree.addTo(spec, null);
+        spec.buildIndex();
+        spec.compileConstraints(tree);
+        ConstraintProgram program = spec.getConstraints();
+
+        Cli cli = new ArgumentParser(spec).parse(new String[]{"-path", "p", "-foo", "1", "-baz", "2", "-y", "-a", "3"});
+
+        //warm up so class loading and the JIT don't count
+        for(int i=0; i< ITERATIONS; i++){
+            program.validate(cli, tree);
+        }
+        long threadId = Thread.currentThread().getId();
+        long overhead = measureOverhead(allocations, threadId);
+
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        for(int i=0; i< ITERATIONS; i++){
+            program.validate(cli, tree);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before - overhead;
+        assertTrue("validation allocated " + allocated + " bytes", allocated <= 0);
+    }
+
+    /**
+     * Asking for the allocated bytes can allocate a little itself.
+     */
+    private static long measureOverhead(com.sun.management.ThreadMXBean allocations, long threadId){
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        return allocations.getThreadAllocatedBytes(threadId) - before;
+    }
+}
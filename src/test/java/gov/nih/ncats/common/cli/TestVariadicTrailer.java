@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * NCATS-COMMON-CLI
+ *
+ * Copyright 2019 NIH/NCATS
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ ******************************************************************************/
+
+package gov.nih.ncats.common.cli;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static gov.nih.ncats.common.cli.CliSpecification.*;
+import static org.junit.Assert.*;
+
+public class TestVariadicTrailer {
+
+    private static CliSpecification createSpec(VariadicTrailer variadicTrailer){
+        return CliSpecification.create(option("v").isFlag(true), option("o"))
+                               .variadicTrailer(variadicTrailer);
+    }
+
+    @Test
+    public void everyPositionalArgument() throws CliValidationException{
+        CliSpecification spec = createSpec(new VariadicTrailerBuilder().build());
+        assertEquals(Arrays.asList("a", "b", "c"), spec.parse(new String[]{"-v", "a", "b", "c"}).getVariadicTrailer());
+        assertEquals(Arrays.asList("a", "b", "c"), spec.parse(new String[]{"a", "-o", "x", "b", "c"}).getVariadicTrailer());
+        assertEquals(Arrays.asList("a", "b", "c"), spec.parse(new String[]{"a", "-v", "b", "-o", "x", "c"}).getVariadicTrailer());
+        assertEquals(Arrays.asList("-a", "b"), spec.parse(new String[]{"-v", "--", "-a", "b"}).getVariadicTrailer());
+        assertEquals(Arrays.asList("a", "-v"), spec.parse(new String[]{"a", "--", "-v"}).getVariadicTrailer());
+        assertEquals(Collections.singletonList("a"), spec.parse(new String[]{"a", "-v"}).getVariadicTrailer());
+        assertTrue(spec.parse(new String[]{"-o", "a", "-v"}).getVariadicTrailer().isEmpty());
+    }
+
+    @Test
+    public void viewOfTheArguments() throws CliValidationException{
+        String[] args = {"-v", "a", "b"};
+        List<String> files = createSpec(new VariadicTrailerBuilder().build()).parse(args).getVariadicTrailer();
+        args[2] = "changed";
+        assertEquals(Arrays.asList("a", "changed"), files);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void unmodifiable() throws CliValidationException{
+        createSpec(new VariadicTrailerBuilder().build()).parse(new String[]{"a"}).getVariadicTrailer().set(0, "b");
+    }
+
+    @Test
+    public void comesBeforeFixedTrailers() throws CliValidationException{
+        Cli cli = createSpec(new VariadicTrailerBuilder().min(1).build())
+                        .trailer(new TrailerBuilder().build())
+                        .parse(new String[]{"-v", "a", "b", "dest"});
+        assertEquals(Arrays.asList("a", "b"), cli.getVariadicTrailer());
+        assertEquals("dest", cli.getTrailer(0));
+    }
+
+    @Test
+    public void minAndMax(){
+        CliSpecification spec = createSpec(new VariadicTrailerBuilder().name("files").min(1).max(2).build());
+        assertEquals("not enough arguments for files: expected at least 1 but found 0",
+                     spec.tryParse(new String[]{"-v"}).getErrorMessage());
+        assertEquals("too many arguments for files: expected at most 2 but found 3",
+                     spec.tryParse(new String[]{"a", "b", "c"}).getErrorMessage());
+        assertTrue(spec.tryParse(new String[]{"a", "b"}).isSuccess());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void minMoreThanMax(){
+        new VariadicTrailerBuilder().min(3).max(2).build();
+    }
+
+    @Test
+    public void parallelStreamSetter() throws CliValidationException{
+        int n = 100_000;
+        String[] args = new String[n +1];
+        args[0] = "-v";
+        for(int i=1; i<= n; i++){
+            args[i] = Integer.toString(i);
+        }
+        AtomicLong sum = new AtomicLong();
+        List<Boolean> wasParallel = new ArrayList<>();
+        createSpec(new VariadicTrailerBuilder().setToStream(s -> {
+                        wasParallel.add(s.isParallel());
+                        sum.set(s.parallel().mapToLong(Long::parseLong).sum());
+                    }).build())
+                .parse(args);
+        assertEquals(Collections.singletonList(false), wasParallel);
+        assertEquals((long) n * (n +1) /2, sum.get());
+    }
+
+    @Test
+    public void sameFromBytesAndArgFilesAndCommonsCli() throws Exception{
+        String[] args = {"x", "-o", "out", "a", "b"};
+        List<String> expected = Arrays.asList("x", "a", "b");
+        byte[] bytes = String.join("\0", args).getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected, createSpec(new VariadicTrailerBuilder().build()).parse(bytes, 0, bytes.length).getVariadicTrailer());
+        assertEquals(expected, createSpec(new VariadicTrailerBuilder().build()).argFiles(true).parse(args).getVariadicTrailer());
+        assertEquals(expected, createSpec(new VariadicTrailerBuilder().build())
+                                                        .commonsCliParser(true).parse(args).getVariadicTrailer());
+    }
+
+    @Test
+    public void noVariadicTrailer() throws CliValidationException{
+        assertTrue(createSpec(null).parse(new String[]{"a", "b"}).getVariadicTrailer().isEmpty());
+    }
+}